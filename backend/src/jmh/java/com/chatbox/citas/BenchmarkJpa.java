@@ -0,0 +1,72 @@
+package com.chatbox.citas;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The application's entities on an embedded PostgreSQL, for benchmarks that need a real database
+ *
+ * Starts with the settings of application.properties (pooled-lo ids, batch size 50, ordered
+ * inserts and updates, rewritten batched inserts) and a fresh schema; a benchmark overrides
+ * what it compares.
+ */
+public final class BenchmarkJpa implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+    private final HikariDataSource dataSource;
+    private final EntityManagerFactory entityManagerFactory;
+
+    private BenchmarkJpa(EmbeddedPostgres postgres, HikariDataSource dataSource, EntityManagerFactory entityManagerFactory) {
+        this.postgres = postgres;
+        this.dataSource = dataSource;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * @param propiedades Hibernate properties replacing the application defaults
+     * @param mappingResources orm.xml files applied over the entity annotations
+     */
+    public static BenchmarkJpa iniciar(Map<String, Object> propiedades, String... mappingResources) throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(postgres.getJdbcUrl("postgres", "postgres"));
+        dataSource.setUsername("postgres");
+        dataSource.setMaximumPoolSize(2);
+        dataSource.addDataSourceProperty("reWriteBatchedInserts", true);
+
+        Map<String, Object> configuracion = new HashMap<>();
+        configuracion.put("hibernate.hbm2ddl.auto", "create-only");
+        configuracion.put("hibernate.id.optimizer.pooled.preferred", "pooled-lo");
+        configuracion.put("hibernate.jdbc.batch_size", 50);
+        configuracion.put("hibernate.order_inserts", true);
+        configuracion.put("hibernate.order_updates", true);
+        configuracion.putAll(propiedades);
+
+        LocalContainerEntityManagerFactoryBean fabrica = new LocalContainerEntityManagerFactoryBean();
+        fabrica.setDataSource(dataSource);
+        fabrica.setPackagesToScan("com.chatbox.citas.model");
+        fabrica.setMappingResources(mappingResources);
+        fabrica.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        fabrica.setJpaPropertyMap(configuracion);
+        fabrica.afterPropertiesSet();
+        return new BenchmarkJpa(postgres, dataSource, fabrica.getObject());
+    }
+
+    public EntityManagerFactory entityManagerFactory() {
+        return entityManagerFactory;
+    }
+
+    @Override
+    public void close() throws IOException {
+        entityManagerFactory.close();
+        dataSource.close();
+        postgres.close();
+    }
+}
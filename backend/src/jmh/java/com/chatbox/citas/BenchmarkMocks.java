@@ -0,0 +1,20 @@
+package com.chatbox.citas;
+
+import org.mockito.Mockito;
+
+/**
+ * Mocks for the I/O collaborators of benchmarked services
+ */
+public final class BenchmarkMocks {
+
+    private BenchmarkMocks() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * A mock that does not record its invocations, so millions of calls do not fill the heap
+     */
+    public static <T> T stubOnly(Class<T> tipo) {
+        return Mockito.mock(tipo, Mockito.withSettings().stubOnly());
+    }
+}
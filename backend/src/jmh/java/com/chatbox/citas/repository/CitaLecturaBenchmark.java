@@ -0,0 +1,119 @@
+package com.chatbox.citas.repository;
+
+import com.chatbox.citas.BenchmarkJpa;
+import com.chatbox.citas.dto.CitaResponse;
+import com.chatbox.citas.model.Cita;
+import com.chatbox.citas.model.Paciente;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading every appointment as {@link CitaResponse}, on embedded PostgreSQL
+ *
+ * {@code entidades} is the read path before the projection: load the {@link Cita} entities,
+ * then copy eight fields out of each one and its lazily loaded {@link Paciente}, as
+ * CitaService.mapearAResponse does. {@code proyeccion} runs {@link CitaRepository#SELECT_CITA_RESPONSE}.
+ * Both open a fresh EntityManager per call and never flush, like a read-only repository call.
+ *
+ * Scores are rows per second. Run with {@code -prof gc}: gc.alloc.rate.norm is then bytes per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CitaLecturaBenchmark {
+
+    private static final int FILAS = 10_000;
+    private static final int CITAS_POR_PACIENTE = 5;
+    private static final String ORDEN = "ORDER BY c.fechaHora DESC";
+
+    private BenchmarkJpa jpa;
+
+    @Setup
+    public void preparar() throws IOException {
+        jpa = BenchmarkJpa.iniciar(Map.of());
+
+        EntityManager em = jpa.entityManagerFactory().createEntityManager();
+        em.getTransaction().begin();
+        LocalDateTime inicio = LocalDateTime.of(2026, 3, 16, 8, 0);
+        Paciente paciente = null;
+        for (int i = 0; i < FILAS; i++) {
+            if (i % CITAS_POR_PACIENTE == 0) {
+                paciente = new Paciente();
+                paciente.setNombre("Paciente " + i);
+                paciente.setTelefono("57300" + String.format("%07d", i));
+                paciente.setEmail("paciente" + i + "@correo.com");
+                paciente.setDireccion("Calle " + i + " #45-67, Barrio Centro, Popayán, Cauca");
+                em.persist(paciente);
+            }
+            Cita cita = new Cita();
+            cita.setPaciente(paciente);
+            cita.setFechaHora(inicio.plusMinutes(30L * i));
+            cita.setDoctor("Doctor " + (i % 10));
+            em.persist(cita);
+            if (i % 500 == 499) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @TearDown
+    public void detener() throws IOException {
+        jpa.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILAS)
+    public List<CitaResponse> entidades() {
+        EntityManager em = jpa.entityManagerFactory().createEntityManager();
+        try {
+            return em.createQuery("SELECT c FROM Cita c " + ORDEN, Cita.class)
+                .getResultStream()
+                .map(cita -> new CitaResponse(
+                    cita.getId(),
+                    cita.getPaciente().getNombre(),
+                    cita.getPaciente().getTelefono(),
+                    cita.getPaciente().getEmail(),
+                    cita.getFechaHora(),
+                    cita.getDoctor(),
+                    cita.getEstado(),
+                    cita.getCreadoEn()))
+                .toList();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILAS)
+    public List<CitaResponse> proyeccion() {
+        EntityManager em = jpa.entityManagerFactory().createEntityManager();
+        try {
+            return em.createQuery(CitaRepository.SELECT_CITA_RESPONSE + ORDEN, CitaResponse.class).getResultList();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.chatbox.citas.repository;
+
+import com.chatbox.citas.BenchmarkJpa;
+import com.chatbox.citas.model.Paciente;
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentityGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserting 10k patients with one {@code saveAll} in one transaction, on embedded PostgreSQL
+ *
+ * {@code identity} maps the Paciente id as IDENTITY, as before the switch to sequences: every
+ * INSERT runs on its own to read back the key, so JDBC batching never applies. {@code pooled-lo}
+ * is the current mapping, a sequence with allocation size 50 and batches of 50 statements.
+ * Each call is timed on its own, on an emptied table; single calls are noisy, hence 25 of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 25)
+@Fork(1)
+public class PacienteInsercionBenchmark {
+
+    private static final int FILAS = 10_000;
+
+    @Param({"identity", "pooled-lo"})
+    private String estrategia;
+
+    private BenchmarkJpa jpa;
+    private List<Paciente> pacientes;
+
+    @Setup
+    public void preparar() throws IOException {
+        boolean identity = estrategia.equals("identity");
+        jpa = identity
+            ? BenchmarkJpa.iniciar(Map.of(), "META-INF/paciente-identity-orm.xml")
+            : BenchmarkJpa.iniciar(Map.of());
+
+        Object generador = jpa.entityManagerFactory().unwrap(SessionFactoryImplementor.class)
+            .getMappingMetamodel().getEntityDescriptor(Paciente.class).getGenerator();
+        if (identity != generador instanceof IdentityGenerator) {
+            throw new IllegalStateException("Generador inesperado para " + estrategia + ": " + generador.getClass().getName());
+        }
+        System.out.printf("%n%s: %s%n", estrategia, generador.getClass().getSimpleName());
+    }
+
+    @Setup(Level.Iteration)
+    public void vaciar() {
+        EntityManager em = jpa.entityManagerFactory().createEntityManager();
+        em.getTransaction().begin();
+        em.createNativeQuery("TRUNCATE pacientes CASCADE").executeUpdate();
+        em.getTransaction().commit();
+        em.close();
+
+        pacientes = new ArrayList<>(FILAS);
+        for (int i = 0; i < FILAS; i++) {
+            Paciente paciente = new Paciente();
+            paciente.setNombre("Paciente " + i);
+            paciente.setTelefono("57300" + String.format("%07d", i));
+            paciente.setTipoIdentificacion("CC");
+            paciente.setNumeroIdentificacion(String.valueOf(1_000_000_000L + i));
+            paciente.setEps("EPS Sura");
+            pacientes.add(paciente);
+        }
+    }
+
+    @TearDown
+    public void detener() throws IOException {
+        jpa.close();
+    }
+
+    @Benchmark
+    public int saveAll() {
+        EntityManager em = jpa.entityManagerFactory().createEntityManager();
+        try {
+            em.getTransaction().begin();
+            int guardados = new SimpleJpaRepository<Paciente, Long>(Paciente.class, em).saveAll(pacientes).size();
+            em.getTransaction().commit();
+            return guardados;
+        } finally {
+            em.close();
+        }
+    }
+}
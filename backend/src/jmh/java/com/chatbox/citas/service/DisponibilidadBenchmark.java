@@ -0,0 +1,116 @@
+package com.chatbox.citas.service;
+
+import com.chatbox.citas.BenchmarkMocks;
+import com.chatbox.citas.model.Cita;
+import com.chatbox.citas.model.Doctor;
+import com.chatbox.citas.repository.CitaRepository;
+import com.chatbox.citas.service.estadistica.EstadisticasCitasService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CitaService#obtenerHorariosDisponibles} against an in-memory appointment store
+ *
+ * The repository answers from a hash index, so the figure is the cost of the service itself
+ * (one lookup per doctor and hour, plus result building) without database latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisponibilidadBenchmark {
+
+    private static final int[] HORAS = {6, 7, 8, 9, 10, 11, 14, 15, 16, 17};
+
+    @Param({"5", "20"})
+    private int doctores;
+
+    @Param({"1000", "100000"})
+    private int citas;
+
+    private CitaService citaService;
+    private LocalDate fecha;
+
+    @Setup
+    public void preparar() {
+        List<Doctor> activos = new ArrayList<>();
+        for (int i = 1; i <= doctores; i++) {
+            Doctor doctor = new Doctor();
+            doctor.setId((long) i);
+            doctor.setNombre("Doctor " + i);
+            doctor.setEspecialidad("Urología");
+            activos.add(doctor);
+        }
+
+        // Appointments spread over 90 days from the queried date, so about 1/90 fall on it
+        fecha = LocalDate.of(2026, 3, 16);
+        Map<String, List<Cita>> indice = new HashMap<>();
+        for (int i = 0; i < citas; i++) {
+            Cita cita = new Cita();
+            cita.setDoctor(activos.get(i % doctores).getNombre());
+            cita.setFechaHora(LocalDateTime.of(fecha.plusDays(i % 90), LocalTime.of(HORAS[(i / 90) % HORAS.length], 0)));
+            indice.computeIfAbsent(clave(cita.getDoctor(), cita.getFechaHora().toLocalDate(), cita.getFechaHora().getHour()),
+                k -> new ArrayList<>()).add(cita);
+        }
+
+        DoctorService doctorService = BenchmarkMocks.stubOnly(DoctorService.class);
+        Mockito.when(doctorService.obtenerActivos()).thenReturn(activos);
+
+        citaService = new CitaService(
+            repositorioEnMemoria(indice),
+            BenchmarkMocks.stubOnly(PacienteService.class),
+            doctorService,
+            new ObjectMapper(),
+            new SimpleMeterRegistry(),
+            BenchmarkMocks.stubOnly(EstadisticasCitasService.class)
+        );
+    }
+
+    @Benchmark
+    public List<Object> obtenerHorariosDisponibles() {
+        return citaService.obtenerHorariosDisponibles(fecha);
+    }
+
+    /**
+     * A CitaRepository serving only the availability query, from the given index
+     */
+    private static CitaRepository repositorioEnMemoria(Map<String, List<Cita>> indice) {
+        return (CitaRepository) Proxy.newProxyInstance(
+            CitaRepository.class.getClassLoader(),
+            new Class<?>[] {CitaRepository.class},
+            (proxy, metodo, args) -> {
+                if (metodo.getName().equals("findCitaPorDoctorYFechaHora")) {
+                    return indice.getOrDefault(clave((String) args[0], (LocalDate) args[1], (Integer) args[2]), List.of());
+                }
+                throw new UnsupportedOperationException(metodo.getName());
+            });
+    }
+
+    private static String clave(String doctor, LocalDate fecha, int hora) {
+        return doctor + '|' + fecha + '|' + hora;
+    }
+}
@@ -0,0 +1,55 @@
+package com.chatbox.citas.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Input validators used by the data-entry steps of the WhatsApp flow
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidacionBenchmark {
+
+    private final ValidacionDocumentoService validacionDocumento = new ValidacionDocumentoService();
+    private final ValidacionDatosService validacionDatos = new ValidacionDatosService();
+
+    // Non-final so the JIT cannot fold the inputs
+    private String cedula = "1061234567";
+    private String telefono = "300 123 4567";
+    private String fechaNacimiento = "15-05-1990";
+    private String email = "paciente.prueba@correo.com";
+
+    @Benchmark
+    public boolean validarCC() {
+        return validacionDocumento.validarCC(validacionDocumento.limpiarNumeroDocumento(cedula));
+    }
+
+    @Benchmark
+    public boolean validarTelefono() {
+        return validacionDatos.validarTelefonoColombiano(validacionDatos.formatearTelefono(telefono));
+    }
+
+    @Benchmark
+    public LocalDate validarFechaNacimiento() {
+        return validacionDatos.validarFechaNacimiento(fechaNacimiento);
+    }
+
+    @Benchmark
+    public boolean validarEmail() {
+        return validacionDatos.validarEmail(email);
+    }
+}
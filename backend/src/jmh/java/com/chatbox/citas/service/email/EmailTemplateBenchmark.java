@@ -0,0 +1,48 @@
+package com.chatbox.citas.service.email;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTML rendering of the appointment emails
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailTemplateBenchmark {
+
+    private final EmailTemplateService templates = new EmailTemplateService();
+
+    private String nombre = "María Fernanda López";
+    private String tipo = "PRIMERA VEZ";
+    private String doctor = "Santiago Rivera";
+    private LocalDateTime fecha = LocalDateTime.of(2026, 3, 16, 9, 0);
+
+    @Benchmark
+    public String confirmacion() {
+        return templates.generarConfirmacionCita(nombre, tipo, doctor, fecha);
+    }
+
+    @Benchmark
+    public String recordatorio() {
+        return templates.generarRecordatorioCita(nombre, tipo, doctor, fecha, 24);
+    }
+
+    @Benchmark
+    public String cancelacion() {
+        return templates.generarCancelacionCita(nombre, tipo, doctor, fecha);
+    }
+}
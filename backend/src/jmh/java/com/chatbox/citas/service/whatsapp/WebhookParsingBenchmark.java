@@ -0,0 +1,100 @@
+package com.chatbox.citas.service.whatsapp;
+
+import com.chatbox.citas.BenchmarkMocks;
+import com.chatbox.citas.config.WhatsAppConfig;
+import com.chatbox.citas.service.whatsapp.store.InMemoryConversationStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WhatsAppOrchestratorService#procesarWebhook} up to the hand-off to the flow (a stub-only mock):
+ * JSON parsing, message extraction, deduplication and metrics
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebhookParsingBenchmark {
+
+    private static final String MENSAJE_INICIO = """
+        {"object":"whatsapp_business_account","entry":[{"id":"102290129340398","changes":[{"value":{
+        "messaging_product":"whatsapp","metadata":{"display_phone_number":"15550783881","phone_number_id":"106540352242922"},
+        "contacts":[{"profile":{"name":"María Fernanda"},"wa_id":"573001234567"}],
+        "messages":[{"from":"573001234567","id":"wamid.""";
+    private static final String MENSAJE_FIN = """
+        ","timestamp":"1760000000","text":{"body":"1"},"type":"text"}]},"field":"messages"}]}]}""";
+
+    private static final String ESTADO_ENTREGA = """
+        {"object":"whatsapp_business_account","entry":[{"id":"102290129340398","changes":[{"value":{
+        "messaging_product":"whatsapp","metadata":{"display_phone_number":"15550783881","phone_number_id":"106540352242922"},
+        "statuses":[{"id":"wamid.HBgMNTczMDAxMjM0NTY3FQIAERgSQkQ","status":"delivered","timestamp":"1760000000",
+        "recipient_id":"573001234567"}]},"field":"messages"}]}]}""";
+
+    private WhatsAppOrchestratorService orquestador;
+    private String mensajeRepetido;
+    private long siguienteId;
+
+    @Setup
+    public void preparar() {
+        WhatsAppConfig config = BenchmarkMocks.stubOnly(WhatsAppConfig.class);
+        Mockito.when(config.getDedupCapacity()).thenReturn(65536);
+        Mockito.when(config.getDedupMaxProbe()).thenReturn(8);
+
+        ConversationFunnel conversationFunnel = new ConversationFunnel();
+        ConversationStateService conversationStateService = new ConversationStateService(
+            config, new InMemoryConversationStore(), BenchmarkMocks.stubOnly(PerfilPrefetcher.class), conversationFunnel);
+
+        orquestador = new WhatsAppOrchestratorService(
+            config,
+            conversationStateService,
+            BenchmarkMocks.stubOnly(WhatsAppMessageService.class),
+            new WhatsAppTemplateService(),
+            BenchmarkMocks.stubOnly(WhatsAppFlowService.class),
+            conversationFunnel,
+            new ObjectMapper(),
+            new SimpleMeterRegistry()
+        );
+
+        mensajeRepetido = MENSAJE_INICIO + "repetido" + MENSAJE_FIN;
+        orquestador.procesarWebhook(mensajeRepetido);
+    }
+
+    /**
+     * A new message: parsed, recorded by the deduplicator and handed to the flow
+     */
+    @Benchmark
+    public void mensajeNuevo() {
+        orquestador.procesarWebhook(MENSAJE_INICIO + siguienteId++ + MENSAJE_FIN);
+    }
+
+    /**
+     * A redelivered message: parsed and dropped by the deduplicator
+     */
+    @Benchmark
+    public void mensajeDuplicado() {
+        orquestador.procesarWebhook(mensajeRepetido);
+    }
+
+    /**
+     * A delivery receipt, the most frequent payload: parsed and ignored
+     */
+    @Benchmark
+    public void estadoEntrega() {
+        orquestador.procesarWebhook(ESTADO_ENTREGA);
+    }
+}
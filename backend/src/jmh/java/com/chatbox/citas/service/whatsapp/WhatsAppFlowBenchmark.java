@@ -0,0 +1,158 @@
+package com.chatbox.citas.service.whatsapp;
+
+import com.chatbox.citas.BenchmarkMocks;
+import com.chatbox.citas.config.WhatsAppConfig;
+import com.chatbox.citas.service.CitaService;
+import com.chatbox.citas.service.EmailService;
+import com.chatbox.citas.service.PacienteService;
+import com.chatbox.citas.service.ValidacionDatosService;
+import com.chatbox.citas.service.ValidacionDocumentoService;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.ConversacionState;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.EstadoConversacion;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.OpcionDoctor;
+import com.chatbox.citas.service.whatsapp.store.InMemoryConversationStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One valid answer handled by {@link WhatsAppFlowService#procesarMensaje}, per conversation state
+ *
+ * State handling, validators and templates are real; outbound messages, database-backed services
+ * and email are stub-only mocks. Each invocation first resets the session to the measured state
+ * (one object and a map put), so every call takes the same transition.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WhatsAppFlowBenchmark {
+
+    private static final String TELEFONO = "573001234567";
+
+    @Param({
+        "MENU",
+        "ESPERANDO_TIPO_DOC",
+        "ESPERANDO_NUMERO_DOC",
+        "ESPERANDO_NOMBRE",
+        "ESPERANDO_TELEFONO_PRINCIPAL",
+        "ESPERANDO_FECHA_NACIMIENTO",
+        "ESPERANDO_FECHA_CITA",
+        "ESPERANDO_SELECCION_DOCTOR",
+        "ESPERANDO_EMAIL",
+        "CONFIRMACION_FINAL"
+    })
+    private EstadoConversacion estado;
+
+    private WhatsAppFlowService flowService;
+    private InMemoryConversationStore store;
+    private LocalDate fechaCita;
+    private String mensaje;
+
+    @Setup
+    public void preparar() {
+        // Next working day at least a week ahead, so date checks always pass
+        fechaCita = LocalDate.now().plusDays(7);
+        if (fechaCita.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            fechaCita = fechaCita.plusDays(1);
+        }
+
+        mensaje = Map.of(
+            EstadoConversacion.MENU, "1",
+            EstadoConversacion.ESPERANDO_TIPO_DOC, "CC",
+            EstadoConversacion.ESPERANDO_NUMERO_DOC, "1061234567",
+            EstadoConversacion.ESPERANDO_NOMBRE, "María Fernanda López",
+            EstadoConversacion.ESPERANDO_TELEFONO_PRINCIPAL, "3001234567",
+            EstadoConversacion.ESPERANDO_FECHA_NACIMIENTO, "15-05-1990",
+            EstadoConversacion.ESPERANDO_FECHA_CITA, fechaCita.format(DateTimeFormatter.ofPattern("dd-MM-yyyy")),
+            EstadoConversacion.ESPERANDO_SELECCION_DOCTOR, "1",
+            EstadoConversacion.ESPERANDO_EMAIL, "paciente.prueba@correo.com",
+            EstadoConversacion.CONFIRMACION_FINAL, "SI"
+        ).get(estado);
+
+        WhatsAppConfig config = BenchmarkMocks.stubOnly(WhatsAppConfig.class);
+        Mockito.when(config.getDedupCapacity()).thenReturn(65536);
+        Mockito.when(config.getDedupMaxProbe()).thenReturn(8);
+
+        // Availability as CitaService returns it: one entry per doctor and hour
+        List<Object> disponibilidad = new ArrayList<>();
+        for (int doctor = 1; doctor <= 10; doctor++) {
+            for (String hora : new String[] {"08:00", "09:00", "10:00", "11:00", "14:00", "15:00", "16:00", "17:00"}) {
+                disponibilidad.add(Map.of("doctor", "Doctor " + doctor, "hora", hora,
+                    "disponible", doctor % 2 == 0, "especialidad", "Urología"));
+            }
+        }
+        CitaService citaService = BenchmarkMocks.stubOnly(CitaService.class);
+        Mockito.when(citaService.obtenerHorariosDisponibles(ArgumentMatchers.any())).thenReturn(disponibilidad);
+
+        PerfilPrefetcher perfilPrefetcher = BenchmarkMocks.stubOnly(PerfilPrefetcher.class);
+        ConversationFunnel conversationFunnel = new ConversationFunnel();
+        store = new InMemoryConversationStore();
+
+        flowService = new WhatsAppFlowService(
+            new ConversationStateService(config, store, perfilPrefetcher, conversationFunnel),
+            BenchmarkMocks.stubOnly(WhatsAppMessageService.class),
+            new WhatsAppTemplateService(),
+            citaService,
+            BenchmarkMocks.stubOnly(PacienteService.class),
+            new ValidacionDocumentoService(),
+            new ValidacionDatosService(),
+            BenchmarkMocks.stubOnly(EmailService.class),
+            perfilPrefetcher,
+            conversationFunnel,
+            new SimpleMeterRegistry(),
+            new ObjectMapper()
+        );
+        flowService.inicializarTransiciones();
+    }
+
+    @Benchmark
+    public void procesarMensaje() {
+        store.guardar(TELEFONO, sesion());
+        flowService.procesarMensaje(TELEFONO, mensaje);
+    }
+
+    /**
+     * A session in the measured state with everything the later steps need already filled in
+     */
+    private ConversacionState sesion() {
+        ConversacionState sesion = new ConversacionState(estado);
+        sesion.setTipoIdentificacion("CC");
+        sesion.setNumeroIdentificacion("1061234567");
+        sesion.setNombre("María Fernanda López");
+        sesion.setTelefonoPrincipal("3001234567");
+        sesion.setDireccion("Calle 5 # 10-20, Popayán");
+        sesion.setFechaNacimiento(LocalDate.of(1990, 5, 15));
+        sesion.setEps("Nueva EPS");
+        sesion.setTipoCita("PRIMERA VEZ");
+        sesion.setFechaCita(fechaCita);
+        sesion.setHoraCita("10:00");
+        sesion.setDoctor("Doctor 2");
+        sesion.setOpcionesDoctor(List.of(
+            new OpcionDoctor("Doctor 2", "10:00", "Urología"),
+            new OpcionDoctor("Doctor 4", "15:00", "Urología")));
+        return sesion;
+    }
+}
@@ -0,0 +1,95 @@
+package com.chatbox.citas.service.whatsapp;
+
+import com.chatbox.citas.service.whatsapp.ConversationStateService.ConversacionState;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.EstadoConversacion;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.OpcionDoctor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of the WhatsApp messages sent on every turn
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WhatsAppTemplateBenchmark {
+
+    private final WhatsAppTemplateService templates = new WhatsAppTemplateService();
+
+    private LocalDate fechaCita;
+    private List<OpcionDoctor> opciones;
+    private ConversacionState estado;
+
+    @Setup
+    public void preparar() {
+        fechaCita = LocalDate.of(2026, 3, 16);
+
+        // A busy day: 10 doctors with 3 free slots each
+        opciones = new ArrayList<>();
+        for (int doctor = 1; doctor <= 10; doctor++) {
+            for (String hora : new String[] {"08:00", "10:00", "15:00"}) {
+                opciones.add(new OpcionDoctor("Doctor " + doctor, hora, "Urología"));
+            }
+        }
+
+        estado = new ConversacionState(EstadoConversacion.CONFIRMACION_FINAL);
+        estado.setTipoIdentificacion("CC");
+        estado.setNumeroIdentificacion("1061234567");
+        estado.setNombre("María Fernanda López");
+        estado.setTelefonoPrincipal("3001234567");
+        estado.setDireccion("Calle 5 # 10-20, Popayán");
+        estado.setFechaNacimiento(LocalDate.of(1990, 5, 15));
+        estado.setEps("Nueva EPS");
+        estado.setEmail("paciente.prueba@correo.com");
+        estado.setTipoCita("PRIMERA VEZ");
+        estado.setFechaCita(fechaCita);
+        estado.setHoraCita("10:00");
+        estado.setDoctor("Doctor 3");
+    }
+
+    @Benchmark
+    public String menu() {
+        return templates.generarMenu();
+    }
+
+    @Benchmark
+    public String menuConCita() {
+        return templates.generarMenuConCita("16/03/2026", "10:00 AM", "Doctor 3");
+    }
+
+    @Benchmark
+    public String seleccionDoctor() {
+        return templates.generarSeleccionDoctor(fechaCita, opciones);
+    }
+
+    @Benchmark
+    public String resumenCita() {
+        return templates.generarResumenCita(estado);
+    }
+
+    @Benchmark
+    public String confirmacionCita() {
+        return templates.generarConfirmacionCita("María Fernanda López", "16/03/2026", "10:00 AM", "Doctor 3");
+    }
+
+    @Benchmark
+    public String promptActual() {
+        return templates.generarPromptActual(EstadoConversacion.ESPERANDO_FECHA_CITA);
+    }
+}
@@ -0,0 +1,102 @@
+package com.chatbox.citas.service.whatsapp.store;
+
+import com.chatbox.citas.service.whatsapp.ConversationStateService.ConversacionState;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.EstadoConversacion;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.OpcionDoctor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding one conversation snapshot with the binary codec and with Jackson
+ *
+ * The snapshot is a session at the final confirmation with every field set, the largest one a
+ * store ever writes. Its encoded size per codec is printed once per fork, before the iterations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversationStateCodecBenchmark {
+
+    @Param({"binary", "json"})
+    private String codec;
+
+    private ConversationStateCodec implementacion;
+    private ConversacionState estado;
+    private byte[] codificado;
+
+    @Setup
+    public void preparar() {
+        implementacion = "binary".equals(codec)
+            ? new BinaryConversationStateCodec()
+            : new JsonConversationStateCodec(Jackson2ObjectMapperBuilder.json().build());
+        estado = confirmacionFinal();
+        codificado = implementacion.encode(estado);
+        System.out.printf("%n%s: %d bytes por conversación%n", codec, codificado.length);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return implementacion.encode(estado);
+    }
+
+    @Benchmark
+    public ConversacionState decode() {
+        return implementacion.decode(codificado);
+    }
+
+    private static ConversacionState confirmacionFinal() {
+        ConversacionState estado = new ConversacionState(EstadoConversacion.CONFIRMACION_FINAL);
+        estado.setTipoIdentificacion("CC");
+        estado.setNumeroIdentificacion("1020304050");
+        estado.setNombre("María Fernanda Gómez");
+        estado.setTelefonoPrincipal("3001234567");
+        estado.setTelefonoSecundario("6017654321");
+        estado.setDireccion("Calle 123 # 45-67, Medellín");
+        estado.setFechaNacimiento(LocalDate.of(1988, 2, 29));
+        estado.setEps("Nueva EPS");
+        estado.setEmail("maria.gomez@example.com");
+        estado.setTipoCita("PRIMERA VEZ");
+        estado.setFechaCita(LocalDate.now().plusDays(7));
+        estado.setHoraCita("10:00");
+        estado.setDoctor("Dr. Julián Restrepo");
+        estado.setOpcionesDoctor(List.of(
+            new OpcionDoctor("Dr. Julián Restrepo", "10:00", "Cardiología"),
+            new OpcionDoctor("Dra. Ana Pérez", "11:00", "Medicina General"),
+            new OpcionDoctor("Dr. Carlos Ruiz", "14:00", "Pediatría")
+        ));
+        estado.restaurarHistorial(List.of(
+            EstadoConversacion.ESPERANDO_TIPO_DOC,
+            EstadoConversacion.ESPERANDO_NUMERO_DOC,
+            EstadoConversacion.ESPERANDO_NOMBRE,
+            EstadoConversacion.ESPERANDO_TELEFONO_PRINCIPAL,
+            EstadoConversacion.ESPERANDO_TELEFONO_SECUNDARIO,
+            EstadoConversacion.ESPERANDO_DIRECCION,
+            EstadoConversacion.ESPERANDO_FECHA_NACIMIENTO,
+            EstadoConversacion.ESPERANDO_EPS,
+            EstadoConversacion.ESPERANDO_TIPO_CITA,
+            EstadoConversacion.ESPERANDO_FECHA_CITA,
+            EstadoConversacion.ESPERANDO_SELECCION_DOCTOR,
+            EstadoConversacion.ESPERANDO_EMAIL
+        ));
+        estado.setProximaCita(181_234L, LocalDateTime.now().plusDays(3).withNano(0), "Dra. Ana Pérez");
+        return estado;
+    }
+}
@@ -0,0 +1,61 @@
+package com.chatbox.citas.loadtest;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * The messages a new patient sends to book an appointment over WhatsApp, from the greeting
+ * to the final confirmation
+ *
+ * Every conversation uses its own phone, document and email, and books on one of the next
+ * {@link #DIAS_AGENDA} working days so availability does not run out during long runs.
+ */
+final class ConversacionSintetica {
+
+    private static final DateTimeFormatter FORMATO_FECHA_INPUT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final int DIAS_AGENDA = 300;
+
+    private ConversacionSintetica() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * @param numero distinct per conversation within a run
+     * @param base   distinct per run, so reruns against the same database do not collide
+     */
+    static Guion crear(long numero, long base) {
+        long secuencia = (base + numero) % 1_000_000_000L;
+        String celular = String.format("3%09d", secuencia);
+        String documento = String.valueOf(1_000_000_000L + secuencia);
+
+        return new Guion("57" + celular, List.of(
+            "Hola",
+            "1",                                 // Agendar cita
+            "CC",
+            documento,
+            "Paciente Prueba " + numero,
+            celular,                             // Teléfono principal
+            "OMITIR",                            // Teléfono secundario
+            "Calle " + (numero % 100) + " # 10-20, Popayán",
+            "15-05-1990",
+            "Nueva EPS",
+            "1",                                 // PRIMERA VEZ
+            fechaCita(numero).format(FORMATO_FECHA_INPUT),
+            "1",                                 // First available doctor and hour
+            "paciente" + numero + "@loadtest.local",
+            "SI"
+        ));
+    }
+
+    private static LocalDate fechaCita(long numero) {
+        LocalDate fecha = LocalDate.now().plusDays(1 + numero % DIAS_AGENDA);
+        return fecha.getDayOfWeek() == DayOfWeek.SUNDAY ? fecha.plusDays(1) : fecha;
+    }
+
+    /**
+     * @param telefono sender, in the international format WhatsApp uses
+     */
+    record Guion(String telefono, List<String> mensajes) {}
+}
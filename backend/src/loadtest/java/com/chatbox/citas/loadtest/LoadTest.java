@@ -0,0 +1,441 @@
+package com.chatbox.citas.loadtest;
+
+import com.chatbox.citas.CitasApplication;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator sizing how many concurrent WhatsApp patients one JVM can serve
+ *
+ * Starts PostgreSQL (embedded, unless loadtest.jdbc-url is set), a stub for the Graph and
+ * Brevo APIs and the application itself, seeds doctors, then for each concurrency level has
+ * that many virtual patients run complete booking conversations back to back by POSTing
+ * webhook payloads. A turn is one webhook request; its latency includes the replies sent to the
+ * stub, the first menu and its bounded wait for the profile warm-up included.
+ *
+ * Heap and GC figures are for the whole JVM, which also hosts the load generator; its share
+ * is small next to the application's but not zero.
+ *
+ * Configured through system properties, see the loadtest profile in pom.xml.
+ */
+public final class LoadTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Configuracion configuracion;
+    private final HttpClient http = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+    private final AtomicLong conversaciones = new AtomicLong();
+    private final AtomicLong mensajes = new AtomicLong();
+    private final long base = ThreadLocalRandom.current().nextLong(1_000_000_000L);
+    private String webhookUrl;
+
+    private LoadTest(Configuracion configuracion) {
+        this.configuracion = configuracion;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Configuracion configuracion = Configuracion.desdeSystemProperties();
+        System.out.println("Configuración: " + configuracion);
+
+        LoadTest loadTest = new LoadTest(configuracion);
+        List<ResultadoNivel> resultados = loadTest.ejecutar();
+
+        imprimir(resultados);
+        Path salida = Path.of(configuracion.resultado());
+        Files.createDirectories(salida.toAbsolutePath().getParent());
+        Map<String, Object> reporte = new LinkedHashMap<>();
+        reporte.put("configuracion", configuracion);
+        reporte.put("niveles", resultados);
+        JSON.writeValue(salida.toFile(), reporte);
+        System.out.println("Resultado guardado en " + salida.toAbsolutePath());
+
+        // Non-daemon threads of the application and the stub would otherwise keep the JVM alive
+        System.exit(0);
+    }
+
+    private List<ResultadoNivel> ejecutar() throws Exception {
+        EmbeddedPostgres postgres = null;
+        String jdbcUrl = configuracion.jdbcUrl();
+        String usuario = configuracion.jdbcUsuario();
+        String password = configuracion.jdbcPassword();
+        if (jdbcUrl.isBlank()) {
+            postgres = EmbeddedPostgres.builder().start();
+            jdbcUrl = postgres.getJdbcUrl("postgres", "postgres");
+            usuario = "postgres";
+            password = "postgres";
+        }
+
+        try (StubApis stub = new StubApis(configuracion.latenciaStubMs());
+             ConfigurableApplicationContext app = iniciarAplicacion(jdbcUrl, usuario, password, stub)) {
+
+            String baseUrl = "http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port");
+            webhookUrl = baseUrl + "/api/whatsapp/webhook";
+            crearDoctores(baseUrl);
+
+            if (configuracion.calentamientoSegundos() > 0) {
+                System.out.printf("Calentamiento: %d pacientes durante %ds%n",
+                    configuracion.concurrencias().get(0), configuracion.calentamientoSegundos());
+                ejecutarNivel(configuracion.concurrencias().get(0),
+                    Duration.ofSeconds(configuracion.calentamientoSegundos()), stub);
+            }
+
+            List<ResultadoNivel> resultados = new ArrayList<>();
+            for (int concurrencia : configuracion.concurrencias()) {
+                System.out.printf("Nivel: %d pacientes concurrentes durante %ds%n",
+                    concurrencia, configuracion.duracionSegundos());
+                resultados.add(ejecutarNivel(concurrencia, Duration.ofSeconds(configuracion.duracionSegundos()), stub));
+            }
+            return resultados;
+        } finally {
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext iniciarAplicacion(
+        String jdbcUrl, String usuario, String password, StubApis stub
+    ) {
+        // The restart class loader of DevTools must not wrap an embedded run
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        // Command-line arguments take precedence over application.properties
+        List<String> argumentos = new ArrayList<>(List.of(
+            "--server.port=0",
+            "--spring.main.banner-mode=off",
+            "--spring.datasource.url=" + jdbcUrl,
+            "--spring.datasource.username=" + usuario,
+            "--spring.datasource.password=" + password,
+            "--spring.jpa.show-sql=false",
+            "--logging.level.com.chatbox=WARN",
+            "--logging.level.org.springframework.web=WARN",
+            "--logging.level.org.hibernate=WARN",
+            "--whatsapp.api.base-url=" + stub.baseUrl(),
+            "--brevo.api.url=" + stub.baseUrl() + StubApis.BREVO_PATH,
+            "--brevo.api.key=loadtest",
+            "--reminder.enabled=false"
+        ));
+        if (!configuracion.perfiles().isBlank()) {
+            // e.g. reactive, to compare the WebFlux build against the servlet one
+            argumentos.add("--spring.profiles.active=" + configuracion.perfiles());
+        }
+        return new SpringApplicationBuilder(CitasApplication.class).run(argumentos.toArray(String[]::new));
+    }
+
+    private void crearDoctores(String baseUrl) throws IOException, InterruptedException {
+        for (int i = 1; i <= configuracion.doctores(); i++) {
+            String cuerpo = String.format("{\"nombre\":\"Doctor Carga %d\",\"especialidad\":\"Urología\"}", i);
+            enviar(baseUrl + "/api/doctores", cuerpo);
+        }
+
+        // The doctor directory reloads asynchronously; wait until availability lists every doctor
+        String disponibilidad = baseUrl + "/api/citas/disponibilidad?fecha=" + LocalDate.now().plusDays(1);
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (System.nanoTime() < limite) {
+            HttpResponse<String> respuesta = http.send(HttpRequest.newBuilder(URI.create(disponibilidad)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+            if (JSON.readTree(respuesta.body()).size() >= configuracion.doctores()) {
+                return;
+            }
+            Thread.sleep(200);
+        }
+        throw new IllegalStateException("Los doctores creados no aparecen en la disponibilidad");
+    }
+
+    private ResultadoNivel ejecutarNivel(int concurrencia, Duration duracion, StubApis stub) throws Exception {
+        Memoria memoria = Memoria.iniciar();
+        long whatsAppAntes = stub.mensajesWhatsApp();
+        long emailsAntes = stub.emails();
+
+        long inicio = System.nanoTime();
+        long fin = inicio + duracion.toNanos();
+        ExecutorService pacientes = Executors.newFixedThreadPool(concurrencia);
+        List<Future<Paciente>> futuros = new ArrayList<>();
+        for (int i = 0; i < concurrencia; i++) {
+            futuros.add(pacientes.submit(() -> simularPaciente(fin)));
+        }
+
+        List<Paciente> resultados = new ArrayList<>();
+        for (Future<Paciente> futuro : futuros) {
+            resultados.add(futuro.get());
+        }
+        pacientes.shutdown();
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        long completadas = resultados.stream().mapToLong(Paciente::completadas).sum();
+        long errores = resultados.stream().mapToLong(Paciente::errores).sum();
+        long[] latencias = resultados.stream()
+            .flatMapToLong(paciente -> Arrays.stream(paciente.latenciasNanos(), 0, paciente.turnos()))
+            .sorted()
+            .toArray();
+
+        Memoria.Uso uso = memoria.terminar();
+        return new ResultadoNivel(
+            concurrencia,
+            segundos,
+            latencias.length,
+            latencias.length / segundos,
+            completadas,
+            completadas / segundos,
+            errores,
+            percentilMs(latencias, 0.50),
+            percentilMs(latencias, 0.99),
+            latencias.length > 0 ? latencias[latencias.length - 1] / 1e6 : 0,
+            stub.mensajesWhatsApp() - whatsAppAntes,
+            stub.emails() - emailsAntes,
+            uso.heapUsadoMb(),
+            uso.heapPicoMb(),
+            uso.gcColecciones(),
+            uso.gcTiempoMs()
+        );
+    }
+
+    /**
+     * One virtual patient: whole conversations, one after another, until the level ends;
+     * a conversation cut by the end of the level is not counted as completed
+     */
+    private Paciente simularPaciente(long fin) throws InterruptedException {
+        Paciente paciente = new Paciente();
+        while (System.nanoTime() < fin) {
+            ConversacionSintetica.Guion guion = ConversacionSintetica.crear(conversaciones.getAndIncrement(), base);
+            boolean completa = true;
+            for (String texto : guion.mensajes()) {
+                if (System.nanoTime() >= fin) {
+                    completa = false;
+                    break;
+                }
+                long t0 = System.nanoTime();
+                boolean ok = enviarMensaje(guion.telefono(), texto);
+                paciente.registrar(System.nanoTime() - t0, ok);
+                if (configuracion.pausaMs() > 0) {
+                    Thread.sleep(configuracion.pausaMs());
+                }
+            }
+            if (completa) {
+                paciente.completadas++;
+            }
+        }
+        return paciente;
+    }
+
+    private boolean enviarMensaje(String telefono, String texto) {
+        String payload = String.format(
+            "{\"entry\":[{\"changes\":[{\"value\":{\"messages\":[{\"from\":\"%s\",\"id\":\"wamid.carga.%d.%d\","
+                + "\"type\":\"text\",\"text\":{\"body\":\"%s\"}}]}}]}]}",
+            telefono, base, mensajes.getAndIncrement(), texto);
+        try {
+            return enviar(webhookUrl, payload) == 200;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private int enviar(String url, String cuerpo) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .header("Content-Type", "application/json")
+            .timeout(Duration.ofSeconds(30))
+            .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+            .build();
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static double percentilMs(long[] ordenadas, double percentil) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        int indice = (int) Math.ceil(percentil * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, indice)] / 1e6;
+    }
+
+    private static void imprimir(List<ResultadoNivel> resultados) {
+        System.out.println();
+        System.out.printf("%8s %10s %10s %10s %10s %10s %10s %8s %10s %10s %8s %10s%n",
+            "pacientes", "turnos/s", "conv/s", "p50 ms", "p99 ms", "max ms", "turnos", "errores",
+            "heap MB", "pico MB", "GCs", "GC ms");
+        for (ResultadoNivel r : resultados) {
+            System.out.printf("%8d %10.1f %10.2f %10.1f %10.1f %10.1f %10d %8d %10.0f %10.0f %8d %10d%n",
+                r.concurrencia(), r.turnosPorSegundo(), r.conversacionesPorSegundo(), r.p50Ms(), r.p99Ms(),
+                r.maxMs(), r.turnos(), r.errores(), r.heapUsadoMb(), r.heapPicoMb(), r.gcColecciones(), r.gcTiempoMs());
+        }
+        System.out.println();
+    }
+
+    /**
+     * Latencies and counts of one virtual patient, kept per thread and merged at the end of a level
+     */
+    private static final class Paciente {
+        private long[] latenciasNanos = new long[1024];
+        private int turnos;
+        private long completadas;
+        private long errores;
+
+        void registrar(long latenciaNanos, boolean ok) {
+            if (turnos == latenciasNanos.length) {
+                latenciasNanos = Arrays.copyOf(latenciasNanos, turnos * 2);
+            }
+            latenciasNanos[turnos++] = latenciaNanos;
+            if (!ok) {
+                errores++;
+            }
+        }
+
+        long[] latenciasNanos() { return latenciasNanos; }
+        int turnos() { return turnos; }
+        long completadas() { return completadas; }
+        long errores() { return errores; }
+    }
+
+    /**
+     * Heap sampled every 100 ms during a level, plus GC activity
+     */
+    private static final class Memoria {
+        private final ScheduledExecutorService muestreo = Executors.newSingleThreadScheduledExecutor();
+        private final long gcColeccionesAntes = gcColecciones();
+        private final long gcTiempoAntes = gcTiempoMs();
+        private volatile long pico;
+
+        static Memoria iniciar() {
+            Memoria memoria = new Memoria();
+            memoria.muestreo.scheduleAtFixedRate(memoria::muestrear, 0, 100, TimeUnit.MILLISECONDS);
+            return memoria;
+        }
+
+        private void muestrear() {
+            pico = Math.max(pico, heapUsado());
+        }
+
+        Uso terminar() {
+            muestreo.shutdownNow();
+            muestrear();
+            return new Uso(heapUsado() / 1048576.0, pico / 1048576.0,
+                gcColecciones() - gcColeccionesAntes, gcTiempoMs() - gcTiempoAntes);
+        }
+
+        private static long heapUsado() {
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+
+        private static long gcColecciones() {
+            return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+        }
+
+        private static long gcTiempoMs() {
+            return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+        }
+
+        record Uso(double heapUsadoMb, double heapPicoMb, long gcColecciones, long gcTiempoMs) {}
+    }
+
+    /**
+     * One concurrency level
+     * @param turnos             webhook requests completed
+     * @param mensajesWhatsApp   replies received by the Graph API stub
+     * @param emails             confirmation emails received by the Brevo stub (one per booking)
+     * @param heapUsadoMb        heap in use when the level ended
+     * @param heapPicoMb         highest sampled heap use during the level
+     */
+    record ResultadoNivel(
+        int concurrencia,
+        double segundos,
+        long turnos,
+        double turnosPorSegundo,
+        long conversacionesCompletadas,
+        double conversacionesPorSegundo,
+        long errores,
+        double p50Ms,
+        double p99Ms,
+        double maxMs,
+        long mensajesWhatsApp,
+        long emails,
+        double heapUsadoMb,
+        double heapPicoMb,
+        long gcColecciones,
+        long gcTiempoMs
+    ) {}
+
+    /**
+     * Run settings, read from loadtest.* system properties
+     */
+    record Configuracion(
+        List<Integer> concurrencias,
+        int duracionSegundos,
+        int calentamientoSegundos,
+        long pausaMs,
+        long latenciaStubMs,
+        int doctores,
+        String jdbcUrl,
+        String jdbcUsuario,
+        @JsonIgnore String jdbcPassword,
+        String perfiles,
+        String resultado
+    ) {
+
+        static Configuracion desdeSystemProperties() {
+            List<Integer> concurrencias = Arrays.stream(System.getProperty("loadtest.concurrency", "1,8,32,64").split(","))
+                .map(String::trim)
+                .filter(valor -> !valor.isEmpty())
+                .map(Integer::valueOf)
+                .toList();
+            if (concurrencias.isEmpty() || concurrencias.stream().anyMatch(valor -> valor <= 0)) {
+                throw new IllegalStateException("loadtest.concurrency debe ser una lista de enteros positivos");
+            }
+            return new Configuracion(
+                concurrencias,
+                Integer.getInteger("loadtest.duration-seconds", 30),
+                Integer.getInteger("loadtest.warmup-seconds", 15),
+                Long.getLong("loadtest.think-time-ms", 0L),
+                Long.getLong("loadtest.stub-latency-ms", 50L),
+                Integer.getInteger("loadtest.doctors", 10),
+                System.getProperty("loadtest.jdbc-url", ""),
+                System.getProperty("loadtest.jdbc-username", "postgres"),
+                System.getProperty("loadtest.jdbc-password", ""),
+                System.getProperty("loadtest.profiles", ""),
+                System.getProperty("loadtest.result", "target/loadtest/loadtest-result.json")
+            );
+        }
+
+        @Override
+        public String toString() {
+            // The password stays out of the console and the report
+            return String.format("concurrencias=%s duracion=%ds calentamiento=%ds pausa=%dms latenciaStub=%dms doctores=%d bd=%s perfiles=%s",
+                concurrencias, duracionSegundos, calentamientoSegundos, pausaMs, latenciaStubMs, doctores,
+                jdbcUrl.isBlank() ? "embebida" : jdbcUrl, perfiles.isBlank() ? "-" : perfiles);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.chatbox.citas.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the WhatsApp Graph API and the Brevo email API
+ *
+ * Every call is answered with a success response after a fixed delay that stands for the
+ * network round trip, and counted so the runner can tell how many replies and emails went out.
+ */
+final class StubApis implements AutoCloseable {
+
+    static final String BREVO_PATH = "/v3/smtp/email";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final long latenciaMs;
+    private final LongAdder mensajesWhatsApp = new LongAdder();
+    private final LongAdder emails = new LongAdder();
+
+    StubApis(long latenciaMs) throws IOException {
+        this.latenciaMs = latenciaMs;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::responder);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    long mensajesWhatsApp() {
+        return mensajesWhatsApp.sum();
+    }
+
+    long emails() {
+        return emails.sum();
+    }
+
+    private void responder(HttpExchange exchange) throws IOException {
+        try (InputStream cuerpo = exchange.getRequestBody()) {
+            cuerpo.readAllBytes();
+        }
+        if (latenciaMs > 0) {
+            try {
+                Thread.sleep(latenciaMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        String path = exchange.getRequestURI().getPath();
+        int status;
+        String respuesta;
+        if (path.endsWith("/messages")) {
+            mensajesWhatsApp.increment();
+            status = 200;
+            respuesta = "{\"messaging_product\":\"whatsapp\",\"messages\":[{\"id\":\"wamid.stub\"}]}";
+        } else if (path.equals(BREVO_PATH)) {
+            emails.increment();
+            status = 201;
+            respuesta = "{\"messageId\":\"<stub@loadtest>\"}";
+        } else {
+            status = 404;
+            respuesta = "{}";
+        }
+
+        byte[] bytes = respuesta.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream salida = exchange.getResponseBody()) {
+            salida.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,56 @@
+package com.chatbox.citas.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Moves the id sequences past rows that were inserted without them
+ *
+ * Entities used IDENTITY columns before switching to pooled-lo sequences, so on an existing
+ * database the freshly created sequences start at 1 while the tables already hold higher ids.
+ * A sequence is only advanced when it has never been used or is a whole block behind MAX(id);
+ * a block another instance is currently handing out is never reused.
+ * Runs after the EntityManagerFactory so Hibernate has already created the sequences.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class IdSequenceInitializer {
+
+    private static final Map<String, String> SECUENCIAS = Map.of(
+        "citas_seq", "citas",
+        "pacientes_seq", "pacientes",
+        "doctores_seq", "doctores"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void alinearSecuencias() {
+        SECUENCIAS.forEach(this::alinear);
+    }
+
+    private void alinear(String secuencia, String tabla) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + tabla, Long.class);
+        Map<String, Object> estado = jdbcTemplate.queryForMap(
+            "SELECT last_value, is_called, (SELECT increment_by FROM pg_sequences WHERE sequencename = ?) AS incremento FROM "
+                + secuencia, secuencia);
+
+        long ultimo = ((Number) estado.get("last_value")).longValue();
+        boolean usada = (Boolean) estado.get("is_called");
+        long incremento = ((Number) estado.get("incremento")).longValue();
+
+        boolean atrasada = usada ? ultimo + incremento <= maxId : ultimo <= maxId;
+        if (atrasada) {
+            jdbcTemplate.query("SELECT setval(?, ?, false)", rs -> null, secuencia, maxId + 1);
+            log.info("🔢 Secuencia {} avanzada a {} (MAX(id) de {} = {})", secuencia, maxId + 1, tabla, maxId);
+        }
+    }
+}
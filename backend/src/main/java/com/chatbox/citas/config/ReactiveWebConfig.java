@@ -0,0 +1,80 @@
+package com.chatbox.citas.config;
+
+import com.chatbox.citas.controller.CitaStreamingHandler;
+import com.chatbox.citas.controller.WhatsAppWebhookHandler;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.reactive.config.BlockingExecutionConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Reactive build, enabled by the reactive profile (spring.main.web-application-type=reactive)
+ *
+ * Requests are served by Netty event loops. JPA stays blocking (booking relies on JPA transactions
+ * and locks, so there is no R2DBC variant of the repositories), so every piece of blocking work
+ * (annotated controllers, the turn of a webhook, streaming import and export) runs on one bounded
+ * scheduler sized to the connection pool; only the network waits become non-blocking.
+ * Router functions are matched before annotated controllers, so the routes below replace the
+ * servlet-only mappings with the same paths.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig {
+
+    /**
+     * Netty even though Tomcat is on the classpath for the servlet build
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler bloqueanteScheduler(
+        @Value("${reactive.blocking.threads:10}") int hilos,
+        @Value("${reactive.blocking.queue-capacity:10000}") int capacidadCola
+    ) {
+        if (hilos <= 0 || capacidadCola <= 0) {
+            throw new IllegalStateException("reactive.blocking: threads y queue-capacity deben ser positivos");
+        }
+        return Schedulers.newBoundedElastic(hilos, capacidadCola, "bloqueante");
+    }
+
+    /**
+     * Annotated controllers return plain values from JPA; run them off the event loop
+     */
+    @Bean
+    public WebFluxConfigurer ejecucionBloqueante(@Qualifier("bloqueanteScheduler") Scheduler bloqueante) {
+        return new WebFluxConfigurer() {
+            @Override
+            public void configureBlockingExecution(BlockingExecutionConfigurer configurer) {
+                configurer.setExecutor(new TaskExecutorAdapter(bloqueante::schedule));
+            }
+        };
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> rutasReactivas(
+        WhatsAppWebhookHandler webhookHandler,
+        CitaStreamingHandler citaStreamingHandler
+    ) {
+        return route(POST("/api/whatsapp/webhook"), webhookHandler::recibirWebhook)
+            .andRoute(GET("/api/citas/exportar"), citaStreamingHandler::exportar)
+            .andRoute(POST("/api/citas/import").and(contentType(CitaStreamingHandler.CSV, CitaStreamingHandler.NDJSON)),
+                citaStreamingHandler::importar);
+    }
+}
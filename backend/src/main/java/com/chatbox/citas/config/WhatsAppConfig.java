@@ -27,6 +27,12 @@ public class WhatsAppConfig {
     @Value("${whatsapp.conversation.timeout-minutes:30}")
     private int conversationTimeoutMinutes;
 
+    @Value("${whatsapp.dedup.capacity:65536}")
+    private int dedupCapacity;
+
+    @Value("${whatsapp.dedup.max-probe:8}")
+    private int dedupMaxProbe;
+
     @PostConstruct
     public void validateConfiguration() {
         if (apiToken == null || apiToken.isBlank()) {
@@ -47,6 +53,12 @@ public class WhatsAppConfig {
         if (conversationTimeoutMinutes <= 0) {
             throw new IllegalStateException("WhatsApp conversation timeout must be positive. Current value: " + conversationTimeoutMinutes);
         }
+        if (dedupCapacity <= 0) {
+            throw new IllegalStateException("WhatsApp dedup capacity must be positive. Current value: " + dedupCapacity);
+        }
+        if (dedupMaxProbe <= 0 || dedupMaxProbe > dedupCapacity) {
+            throw new IllegalStateException("WhatsApp dedup max probe must be between 1 and the capacity. Current value: " + dedupMaxProbe);
+        }
 
         log.info("✅ WhatsApp configuration validated successfully");
         log.debug("WhatsApp Config - Base URL: {}, Version: {}, Phone ID: {}, Timeout: {} min",
@@ -77,6 +89,14 @@ public class WhatsAppConfig {
         return conversationTimeoutMinutes;
     }
 
+    public int getDedupCapacity() {
+        return dedupCapacity;
+    }
+
+    public int getDedupMaxProbe() {
+        return dedupMaxProbe;
+    }
+
     public String getApiUrl() {
         return baseUrl + "/" + apiVersion + "/" + phoneNumberId + "/messages";
     }
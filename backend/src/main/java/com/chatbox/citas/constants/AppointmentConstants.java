@@ -30,6 +30,16 @@ public final class AppointmentConstants {
     public static final int RECORDATORIO_24H = 24;
     public static final int RECORDATORIO_1H = 1;
 
+    // Listing pagination
+    public static final int PAGINA_CITAS_POR_DEFECTO = 50;
+    public static final int PAGINA_CITAS_MAXIMO = 500;
+    // Rows fetched per query while streaming an export
+    public static final int EXPORTACION_CITAS_LOTE = 500;
+
+    // Bulk import: rows saved per transaction, and row errors listed in the response
+    public static final int IMPORTACION_CITAS_LOTE = 500;
+    public static final int IMPORTACION_MAX_ERRORES = 1000;
+
     private AppointmentConstants() {
         // Utility class - prevent instantiation
     }
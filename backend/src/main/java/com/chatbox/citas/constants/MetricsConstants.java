@@ -0,0 +1,43 @@
+package com.chatbox.citas.constants;
+
+/**
+ * Constants for Micrometer metrics
+ * Centralizes meter names, tag keys and tag values so dashboards and code agree
+ */
+public final class MetricsConstants {
+
+    // Webhook receipt in WhatsAppController (timer)
+    public static final String WHATSAPP_WEBHOOK = "whatsapp.webhook";
+    // Payload parsing in WhatsAppOrchestratorService (timer) and deduplication result (counter)
+    public static final String WHATSAPP_WEBHOOK_PARSE = "whatsapp.webhook.parse";
+    public static final String WHATSAPP_DEDUP = "whatsapp.dedup";
+    // Handling of one message by WhatsAppFlowService, tagged by the state it arrived in (timer)
+    public static final String WHATSAPP_FLOW = "whatsapp.flow";
+    // Outbound WhatsApp Cloud API call (timer)
+    public static final String WHATSAPP_ENVIO = "whatsapp.envio";
+    // Availability computation in CitaService (timer)
+    public static final String CITAS_DISPONIBILIDAD = "citas.disponibilidad";
+    // Brevo HTTP API call (timer)
+    public static final String EMAIL_BREVO_ENVIO = "email.brevo.envio";
+
+    // Tag keys
+    public static final String TAG_OUTCOME = "outcome";
+    public static final String TAG_ESTADO = "estado";
+    public static final String TAG_STATUS = "status";
+    public static final String TAG_TIPO = "tipo";
+
+    // Tag values
+    public static final String OUTCOME_OK = "ok";
+    public static final String OUTCOME_ERROR = "error";
+    public static final String DEDUP_NUEVO = "nuevo";
+    public static final String DEDUP_DUPLICADO = "duplicado";
+    public static final String TIPO_MENSAJE = "mensaje";
+    // Status updates and other payloads without a message
+    public static final String TIPO_OTRO = "otro";
+    // Status tag when no HTTP response was received
+    public static final String STATUS_SIN_RESPUESTA = "none";
+
+    private MetricsConstants() {
+        // Utility class - prevent instantiation
+    }
+}
@@ -1,5 +1,7 @@
 package com.chatbox.citas.constants;
 
+import java.util.Set;
+
 /**
  * Constants for WhatsApp integration
  * Centralizes all magic numbers and hard-coded strings
@@ -25,6 +27,9 @@ public final class WhatsAppConstants {
     public static final String FORMATO_HORA_PATTERN = "HH:mm";
     public static final String FORMATO_FECHA_INPUT = "dd-MM-yyyy";
 
+    // Document types accepted by the booking flow
+    public static final Set<String> TIPOS_DOCUMENTO = Set.of("CC", "TI", "RC");
+
     // Message templates
     public static final String MENU_TEMPLATE = """
         🏥 *Sociedad Urológica del Cauca*
@@ -37,6 +42,22 @@ public final class WhatsAppConstants {
         _Comandos disponibles: ATRÁS, CANCELAR, INICIO_
         """;
 
+    // Menu for senders with an upcoming appointment: date, time and doctor, then the date again for options 3 and 4
+    public static final String MENU_CON_CITA_TEMPLATE = """
+        🏥 *Sociedad Urológica del Cauca*
+
+        📅 Tienes una cita el %s a las %s con %s.
+
+        Selecciona una opción:
+
+        1️⃣ Agendar Cita
+        2️⃣ Cirugía y Procedimientos
+        3️⃣ Reagendar tu cita del %s
+        4️⃣ Cancelar tu cita del %s
+
+        _Comandos disponibles: ATRÁS, CANCELAR, INICIO_
+        """;
+
     public static final String CONFIRMACION_CITA_TEMPLATE = """
         ¡Hola %s! ✅ Tu cita ha sido agendada correctamente.
 
@@ -44,8 +65,7 @@ public final class WhatsAppConstants {
         ⏰ Hora: %s
         👨‍⚕️ Doctor: %s
 
-        Te enviaremos recordatorios antes de tu cita. ¡No olvides asistir!
-        """;
+        Te enviaremos recordatorios antes de tu cita. ¡No olvides asistir!""";
 
     public static final String RECORDATORIO_CITA_TEMPLATE = """
         ¡Hola %s! ⏰ Recordatorio de cita
@@ -54,12 +74,10 @@ public final class WhatsAppConstants {
         ⏰ Hora: %s
         👨‍⚕️ Doctor: %s
 
-        %s
-        """;
+        %s""";
 
     public static final String CONFIRMACION_CANCELACION_TEMPLATE = """
-        Tu cita del %s a las %s ha sido cancelada. Si deseas reagendar, contáctanos.
-        """;
+        Tu cita del %s a las %s ha sido cancelada. Si deseas reagendar, contáctanos.""";
 
     // Validation messages
     public static final String MENSAJE_OPCION_INVALIDA = "⚠️ Opción inválida.";
@@ -2,14 +2,32 @@ package com.chatbox.citas.controller;
 
 import com.chatbox.citas.dto.CitaRequest;
 import com.chatbox.citas.dto.CitaRequestCompleto;
+import com.chatbox.citas.constants.AppointmentConstants;
 import com.chatbox.citas.dto.CitaResponse;
+import com.chatbox.citas.dto.EstadisticasCitasResponse;
+import com.chatbox.citas.dto.FiltroCitas;
+import com.chatbox.citas.dto.ImportacionCitasResponse;
+import com.chatbox.citas.dto.PaginaCitasResponse;
+import com.chatbox.citas.model.Cita.EstadoCita;
 import com.chatbox.citas.service.CitaService;
+import com.chatbox.citas.service.estadistica.EstadisticasCitasService;
+import com.chatbox.citas.service.importacion.CitaImportService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -19,6 +37,8 @@ import java.util.List;
 public class CitaController {
 
     private final CitaService citaService;
+    private final CitaImportService citaImportService;
+    private final EstadisticasCitasService estadisticasCitasService;
 
     @PostMapping
     public ResponseEntity<CitaResponse> crearCita(@Valid @RequestBody CitaRequest request) {
@@ -32,12 +52,88 @@ public class CitaController {
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    /**
+     * Bulk import from a CSV (header row with CitaRequestCompleto field names) or NDJSON body
+     * Rows that fail are reported individually; the rest of the file is still imported
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ImportacionCitasResponse> importar(
+        @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+        InputStream cuerpo
+    ) throws IOException {
+        MediaType tipo = MediaType.parseMediaType(contentType);
+        Charset charset = tipo.getCharset() != null ? tipo.getCharset() : StandardCharsets.UTF_8;
+
+        ImportacionCitasResponse response = "csv".equals(tipo.getSubtype())
+            ? citaImportService.importarCsv(cuerpo, charset)
+            : citaImportService.importarNdjson(cuerpo, charset);
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/todas")
     public ResponseEntity<List<CitaResponse>> obtenerTodasLasCitas() {
         List<CitaResponse> response = citaService.obtenerTodasLasCitas();
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Keyset-paginated listing, newest first; pass siguienteCursor back as cursor for the next page
+     */
+    @GetMapping("/pagina")
+    public ResponseEntity<PaginaCitasResponse> obtenerPagina(
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "" + AppointmentConstants.PAGINA_CITAS_POR_DEFECTO) int limite,
+        @RequestParam(required = false) EstadoCita estado,
+        @RequestParam(required = false) String doctor,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta
+    ) {
+        FiltroCitas filtro = new FiltroCitas(estado, doctor, desde, hasta);
+        try {
+            return ResponseEntity.ok(citaService.obtenerPagina(filtro, cursor, limite));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Export matching appointments as NDJSON (one JSON object per line), streamed as it is read
+     */
+    @GetMapping(value = "/exportar", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportar(
+        @RequestParam(required = false) EstadoCita estado,
+        @RequestParam(required = false) String doctor,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta
+    ) {
+        FiltroCitas filtro = new FiltroCitas(estado, doctor, desde, hasta);
+        StreamingResponseBody cuerpo = salida -> citaService.exportarNdjson(filtro, salida);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .header("Content-Disposition", "attachment; filename=\"citas.ndjson\"")
+            .body(cuerpo);
+    }
+
+    /**
+     * Dashboard totals per estado, day and doctor for the days from desde to hasta (today by default)
+     * Ranges are limited to 366 days: the unique patient count scans the appointments of the range
+     */
+    @GetMapping("/estadisticas")
+    public ResponseEntity<EstadisticasCitasResponse> obtenerEstadisticas(
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta
+    ) {
+        LocalDate hoy = LocalDate.now();
+        try {
+            return ResponseEntity.ok(estadisticasCitasService.obtenerEstadisticas(
+                desde != null ? desde : hoy,
+                hasta != null ? hasta : hoy
+            ));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<CitaResponse> obtenerCita(@PathVariable Long id) {
         CitaResponse response = citaService.obtenerCitaPorId(id);
@@ -0,0 +1,124 @@
+package com.chatbox.citas.controller;
+
+import com.chatbox.citas.dto.FiltroCitas;
+import com.chatbox.citas.model.Cita.EstadoCita;
+import com.chatbox.citas.service.CitaService;
+import com.chatbox.citas.service.importacion.CitaImportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * NDJSON export and CSV/NDJSON import of the reactive build (profile reactive), replacing the
+ * mappings of {@link CitaController} that rely on servlet streams
+ *
+ * The export is written on the blocking scheduler into buffers sent as they fill. The import body
+ * is first spooled to a temporary file without blocking, then imported from it on the blocking
+ * scheduler, so a large file is never held in memory.
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class CitaStreamingHandler {
+
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    public static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    private final CitaService citaService;
+    private final CitaImportService citaImportService;
+    private final Scheduler bloqueante;
+
+    public CitaStreamingHandler(
+        CitaService citaService,
+        CitaImportService citaImportService,
+        @Qualifier("bloqueanteScheduler") Scheduler bloqueante
+    ) {
+        this.citaService = citaService;
+        this.citaImportService = citaImportService;
+        this.bloqueante = bloqueante;
+    }
+
+    public Mono<ServerResponse> exportar(ServerRequest request) {
+        FiltroCitas filtro = new FiltroCitas(
+            parametro(request, "estado", EstadoCita::valueOf),
+            request.queryParam("doctor").orElse(null),
+            parametro(request, "desde", LocalDate::parse),
+            parametro(request, "hasta", LocalDate::parse)
+        );
+        Flux<DataBuffer> cuerpo = Flux.from(DataBufferUtils.outputStreamPublisher(
+            salida -> {
+                try {
+                    citaService.exportarNdjson(filtro, salida);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            },
+            request.exchange().getResponse().bufferFactory(),
+            bloqueante::schedule
+        ));
+        return ServerResponse.ok()
+            .contentType(NDJSON)
+            .header("Content-Disposition", "attachment; filename=\"citas.ndjson\"")
+            .body(BodyInserters.fromDataBuffers(cuerpo));
+    }
+
+    public Mono<ServerResponse> importar(ServerRequest request) {
+        MediaType tipo = request.headers().contentType().orElse(NDJSON);
+        Charset charset = tipo.getCharset() != null ? tipo.getCharset() : StandardCharsets.UTF_8;
+        boolean csv = CSV.isCompatibleWith(tipo);
+
+        return Mono.fromCallable(() -> Files.createTempFile("citas-import-", csv ? ".csv" : ".ndjson"))
+            .subscribeOn(bloqueante)
+            .flatMap(archivo -> DataBufferUtils.write(request.body(BodyExtractors.toDataBuffers()), archivo)
+                .then(Mono.fromCallable(() -> {
+                    try (InputStream entrada = Files.newInputStream(archivo)) {
+                        return csv
+                            ? citaImportService.importarCsv(entrada, charset)
+                            : citaImportService.importarNdjson(entrada, charset);
+                    }
+                }).subscribeOn(bloqueante))
+                .doFinally(senal -> borrar(archivo)))
+            .flatMap(response -> ServerResponse.ok().bodyValue(response));
+    }
+
+    private static <T> T parametro(ServerRequest request, String nombre, Function<String, T> conversion) {
+        Optional<String> valor = request.queryParam(nombre).filter(texto -> !texto.isBlank());
+        try {
+            return valor.map(conversion).orElse(null);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ServerWebInputException("Parámetro inválido: " + nombre);
+        }
+    }
+
+    private static void borrar(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar el archivo temporal de importación {}: {}", archivo, e.getMessage());
+        }
+    }
+}
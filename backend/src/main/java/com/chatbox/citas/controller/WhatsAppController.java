@@ -1,8 +1,13 @@
 package com.chatbox.citas.controller;
 
+import com.chatbox.citas.constants.MetricsConstants;
 import com.chatbox.citas.dto.WhatsAppMessageRequest;
 import com.chatbox.citas.service.EmailService;
+import com.chatbox.citas.service.traza.Traza;
+import com.chatbox.citas.service.traza.TrazaBuffer;
 import com.chatbox.citas.service.whatsapp.WhatsAppOrchestratorService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +24,8 @@ public class WhatsAppController {
 
     private final WhatsAppOrchestratorService whatsAppOrchestrator;
     private final EmailService emailService;
+    private final MeterRegistry meterRegistry;
+    private final TrazaBuffer trazaBuffer;
 
     @PostMapping("/enviar")
     public ResponseEntity<?> enviarMensaje(@Valid @RequestBody WhatsAppMessageRequest request) {
@@ -26,6 +33,14 @@ public class WhatsAppController {
         return ResponseEntity.ok().body("{\"message\": \"Mensaje enviado correctamente\"}");
     }
 
+    /**
+     * Live sessions per step, drop-off, median reply time per step and message rate
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<WhatsAppOrchestratorService.WhatsAppStats> obtenerEstadisticas() {
+        return ResponseEntity.ok(whatsAppOrchestrator.getStats());
+    }
+
     @GetMapping("/webhook")
     public ResponseEntity<String> verificarWebhook(
             @RequestParam(value = "hub.mode", required = false) String mode,
@@ -49,7 +64,18 @@ public class WhatsAppController {
     public ResponseEntity<Void> recibirWebhook(@RequestBody String payload) {
         log.info("📥 Webhook POST request received");
         log.debug("Payload: {}", payload);
-        whatsAppOrchestrator.procesarWebhook(payload);
+
+        Timer.Sample muestra = Timer.start(meterRegistry);
+        // Spans of this turn, down to each reply sent, are kept for /actuator/traces
+        Traza traza = trazaBuffer.iniciar("webhook");
+        String outcome = MetricsConstants.OUTCOME_ERROR;
+        try {
+            whatsAppOrchestrator.procesarWebhook(payload);
+            outcome = MetricsConstants.OUTCOME_OK;
+        } finally {
+            trazaBuffer.terminar(traza, MetricsConstants.OUTCOME_ERROR.equals(outcome));
+            muestra.stop(meterRegistry.timer(MetricsConstants.WHATSAPP_WEBHOOK, MetricsConstants.TAG_OUTCOME, outcome));
+        }
         return ResponseEntity.ok().build();
     }
 
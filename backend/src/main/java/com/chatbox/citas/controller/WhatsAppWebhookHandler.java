@@ -0,0 +1,79 @@
+package com.chatbox.citas.controller;
+
+import com.chatbox.citas.constants.MetricsConstants;
+import com.chatbox.citas.service.traza.Traza;
+import com.chatbox.citas.service.traza.TrazaBuffer;
+import com.chatbox.citas.service.traza.TrazaContext;
+import com.chatbox.citas.service.whatsapp.WhatsAppMessageService;
+import com.chatbox.citas.service.whatsapp.WhatsAppOrchestratorService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * WhatsApp webhook of the reactive build (profile reactive), replacing the POST mapping of
+ * {@link WhatsAppController}
+ *
+ * The turn itself (parse, deduplication, state and JPA work) still blocks, so it runs on the
+ * bounded blocking scheduler; there are no R2DBC repositories. Every reply of the turn, the
+ * first menu of a session included, is collected instead of sent, then sent in order with
+ * non-blocking Graph API calls, so no thread waits on the network. Meta gets the 200 once
+ * every reply has been accepted, as with the servlet webhook.
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class WhatsAppWebhookHandler {
+
+    private final WhatsAppOrchestratorService whatsAppOrchestrator;
+    private final WhatsAppMessageService messageService;
+    private final TrazaBuffer trazaBuffer;
+    private final MeterRegistry meterRegistry;
+    private final Scheduler bloqueante;
+
+    public WhatsAppWebhookHandler(
+        WhatsAppOrchestratorService whatsAppOrchestrator,
+        WhatsAppMessageService messageService,
+        TrazaBuffer trazaBuffer,
+        MeterRegistry meterRegistry,
+        @Qualifier("bloqueanteScheduler") Scheduler bloqueante
+    ) {
+        this.whatsAppOrchestrator = whatsAppOrchestrator;
+        this.messageService = messageService;
+        this.trazaBuffer = trazaBuffer;
+        this.meterRegistry = meterRegistry;
+        this.bloqueante = bloqueante;
+    }
+
+    public Mono<ServerResponse> recibirWebhook(ServerRequest request) {
+        return request.bodyToMono(String.class)
+            .defaultIfEmpty("")
+            .flatMap(this::procesar)
+            .then(ServerResponse.ok().build());
+    }
+
+    private Mono<Void> procesar(String payload) {
+        log.info("📥 Webhook POST request received");
+        log.debug("Payload: {}", payload);
+
+        Timer.Sample muestra = Timer.start(meterRegistry);
+        Traza traza = trazaBuffer.abrir("webhook");
+        return Mono.fromCallable(() -> TrazaContext.con(traza,
+                () -> messageService.diferirEnvios(() -> whatsAppOrchestrator.procesarWebhook(payload))))
+            .subscribeOn(bloqueante)
+            .flatMap(envios -> messageService.enviarEnOrden(envios, traza))
+            .doFinally(senal -> {
+                String outcome = senal == SignalType.ON_COMPLETE ? MetricsConstants.OUTCOME_OK : MetricsConstants.OUTCOME_ERROR;
+                trazaBuffer.terminar(traza, MetricsConstants.OUTCOME_ERROR.equals(outcome));
+                muestra.stop(meterRegistry.timer(MetricsConstants.WHATSAPP_WEBHOOK, MetricsConstants.TAG_OUTCOME, outcome));
+            });
+    }
+}
@@ -0,0 +1,40 @@
+package com.chatbox.citas.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position in the (fecha_hora DESC, id DESC) ordering of appointments
+ *
+ * Sent to clients as an opaque base64url token; the next page starts strictly after this row.
+ */
+public record CursorCitas(LocalDateTime fechaHora, Long id) {
+
+    private static final char SEPARADOR = '|';
+
+    public String codificar() {
+        String plano = fechaHora.toString() + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plano.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #codificar()}
+     */
+    public static CursorCitas decodificar(String token) {
+        try {
+            String plano = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separador = plano.lastIndexOf(SEPARADOR);
+            if (separador < 0) {
+                throw new IllegalArgumentException("Cursor inválido: " + token);
+            }
+            return new CursorCitas(
+                LocalDateTime.parse(plano.substring(0, separador)),
+                Long.parseLong(plano.substring(separador + 1))
+            );
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.chatbox.citas.dto;
+
+import com.chatbox.citas.model.Cita.EstadoCita;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticasCitasResponse {
+
+    private LocalDate desde;
+    private LocalDate hasta;
+    private long total;
+
+    // Every estado is present, with 0 when there are none
+    private Map<EstadoCita, Long> porEstado;
+
+    // Only days with at least one appointment, oldest first
+    private List<TotalDia> porDia;
+    private List<TotalDoctor> porDoctor;
+    private long pacientesUnicos;
+
+    // All appointments ever booked, regardless of the range
+    private long totalHistorico;
+
+    public record TotalDia(LocalDate fecha, long total, Map<EstadoCita, Long> porEstado) {}
+
+    public record TotalDoctor(String doctor, long total, Map<EstadoCita, Long> porEstado) {}
+}
@@ -0,0 +1,16 @@
+package com.chatbox.citas.dto;
+
+import com.chatbox.citas.model.Cita.EstadoCita;
+
+import java.time.LocalDate;
+
+/**
+ * Optional server-side filters for appointment listings; null fields are ignored
+ * @param doctor case-insensitive substring of the doctor name
+ * @param desde first day included
+ * @param hasta last day included
+ */
+public record FiltroCitas(EstadoCita estado, String doctor, LocalDate desde, LocalDate hasta) {
+
+    public static final FiltroCitas NINGUNO = new FiltroCitas(null, null, null, null);
+}
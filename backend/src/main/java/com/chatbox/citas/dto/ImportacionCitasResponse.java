@@ -0,0 +1,26 @@
+package com.chatbox.citas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportacionCitasResponse {
+
+    private int filasLeidas;
+    private int citasImportadas;
+    private int pacientesCreados;
+    private List<ErrorFila> errores;
+
+    // Errors beyond the reported limit are counted but not listed
+    private int erroresOmitidos;
+
+    /**
+     * @param fila 1-based data row (header excluded for CSV)
+     */
+    public record ErrorFila(int fila, String mensaje) {}
+}
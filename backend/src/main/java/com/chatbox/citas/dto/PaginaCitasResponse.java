@@ -0,0 +1,18 @@
+package com.chatbox.citas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaCitasResponse {
+
+    private List<CitaResponse> citas;
+
+    // Pass back as ?cursor= to get the next page; null on the last page
+    private String siguienteCursor;
+}
@@ -0,0 +1,29 @@
+package com.chatbox.citas.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A traced WhatsApp turn as exposed by {@code /actuator/traces}
+ *
+ * @param enCurso   true while the webhook request is still running
+ * @param atributos e.g. the sender and the conversation state the message arrived in
+ */
+public record TrazaResponse(
+    String id,
+    String nombre,
+    Instant inicio,
+    double duracionMs,
+    boolean enCurso,
+    boolean error,
+    Map<String, String> atributos,
+    List<Tramo> tramos,
+    int tramosOmitidos
+) {
+
+    /**
+     * @param inicioMs offset from the start of the trace
+     */
+    public record Tramo(String nombre, double inicioMs, double duracionMs, boolean error) {}
+}
@@ -7,14 +7,20 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "citas")
+@Table(name = "citas", indexes = {
+    // Keyset pagination walks (fecha_hora, id) descending
+    @Index(name = "idx_citas_fecha_hora_id", columnList = "fecha_hora, id"),
+    // Appointments of one patient (/api/citas/paciente/{telefono})
+    @Index(name = "idx_citas_paciente_id", columnList = "paciente_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Cita {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "citas_seq")
+    @SequenceGenerator(name = "citas_seq", sequenceName = "citas_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -16,7 +16,8 @@ import java.util.List;
 public class Doctor {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "doctores_seq")
+    @SequenceGenerator(name = "doctores_seq", sequenceName = "doctores_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
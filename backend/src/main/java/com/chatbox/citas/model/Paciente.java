@@ -17,7 +17,8 @@ import java.util.List;
 public class Paciente {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pacientes_seq")
+    @SequenceGenerator(name = "pacientes_seq", sequenceName = "pacientes_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -1,19 +1,49 @@
 package com.chatbox.citas.repository;
 
+import com.chatbox.citas.dto.CitaResponse;
 import com.chatbox.citas.model.Cita;
 import com.chatbox.citas.model.Cita.EstadoCita;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface CitaRepository extends JpaRepository<Cita, Long> {
+public interface CitaRepository extends JpaRepository<Cita, Long>, CitaRepositoryCustom {
 
-    List<Cita> findAllByOrderByFechaHoraDesc();
+    /**
+     * Selects exactly the CitaResponse columns with the patient joined in the same query;
+     * rows are built straight into DTOs, never entering the persistence context
+     */
+    String SELECT_CITA_RESPONSE =
+        "SELECT new com.chatbox.citas.dto.CitaResponse(" +
+        "c.id, p.nombre, p.telefono, p.email, c.fechaHora, c.doctor, c.estado, c.creadoEn) " +
+        "FROM Cita c JOIN c.paciente p ";
 
-    List<Cita> findByPaciente_TelefonoOrderByFechaHoraDesc(String telefono);
+    @Query(SELECT_CITA_RESPONSE + "ORDER BY c.fechaHora DESC")
+    List<CitaResponse> findAllResponsesOrderByFechaHoraDesc();
+
+    @Query(SELECT_CITA_RESPONSE + "WHERE p.id = :pacienteId ORDER BY c.fechaHora DESC")
+    List<CitaResponse> findResponsesByPacienteId(Long pacienteId);
+
+    @Query(SELECT_CITA_RESPONSE + "WHERE p.id = :pacienteId AND c.fechaHora > :desde AND c.estado IN :estados " +
+           "ORDER BY c.fechaHora ASC")
+    List<CitaResponse> findProximasResponsesByPacienteId(
+        Long pacienteId, LocalDateTime desde, Collection<EstadoCita> estados, Limit limit);
+
+    @Query(SELECT_CITA_RESPONSE + "WHERE c.id = :id")
+    Optional<CitaResponse> findResponseById(Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cita c WHERE c.id = :id")
+    Optional<Cita> findByIdParaActualizar(Long id);
 
     List<Cita> findByPaciente_IdOrderByFechaHoraDesc(Long pacienteId);
 
@@ -22,16 +52,24 @@ public interface CitaRepository extends JpaRepository<Cita, Long> {
     @Query("SELECT c FROM Cita c WHERE c.estado = 'PROGRAMADA' AND c.fechaHora BETWEEN :inicio AND :fin")
     List<Cita> findCitasProgramadasEntre(LocalDateTime inicio, LocalDateTime fin);
 
-    @Query("SELECT c FROM Cita c WHERE c.estado = 'PROGRAMADA' AND " +
+    @Query("SELECT c FROM Cita c JOIN FETCH c.paciente WHERE c.estado = 'PROGRAMADA' AND " +
            "c.recordatorio24hEnviado = false AND " +
            "c.fechaHora BETWEEN :inicio AND :fin")
     List<Cita> findCitasParaRecordatorio24h(LocalDateTime inicio, LocalDateTime fin);
 
-    @Query("SELECT c FROM Cita c WHERE c.estado = 'PROGRAMADA' AND " +
+    @Query("SELECT c FROM Cita c JOIN FETCH c.paciente WHERE c.estado = 'PROGRAMADA' AND " +
            "c.recordatorio1hEnviado = false AND " +
            "c.fechaHora BETWEEN :inicio AND :fin")
     List<Cita> findCitasParaRecordatorio1h(LocalDateTime inicio, LocalDateTime fin);
 
+    @Modifying
+    @Query("UPDATE Cita c SET c.recordatorio24hEnviado = true, c.actualizadoEn = :ahora WHERE c.id IN :ids")
+    int marcarRecordatorio24hEnviado(Collection<Long> ids, LocalDateTime ahora);
+
+    @Modifying
+    @Query("UPDATE Cita c SET c.recordatorio1hEnviado = true, c.actualizadoEn = :ahora WHERE c.id IN :ids")
+    int marcarRecordatorio1hEnviado(Collection<Long> ids, LocalDateTime ahora);
+
     @Query("SELECT c FROM Cita c WHERE c.estado = 'PROGRAMADA' AND " +
            "c.doctor = :doctor AND " +
            "DATE(c.fechaHora) = :fecha AND " +
@@ -0,0 +1,20 @@
+package com.chatbox.citas.repository;
+
+import com.chatbox.citas.dto.CitaResponse;
+import com.chatbox.citas.dto.CursorCitas;
+import com.chatbox.citas.dto.FiltroCitas;
+
+import java.util.List;
+
+/**
+ * Queries built at runtime, implemented in {@link CitaRepositoryImpl}
+ */
+public interface CitaRepositoryCustom {
+
+    /**
+     * One keyset page ordered by fecha_hora DESC, id DESC, projected straight into DTOs
+     * Nothing is added to the persistence context, so walking many pages keeps memory flat.
+     * @param despuesDe last row of the previous page, or null for the first page
+     */
+    List<CitaResponse> buscarPagina(FiltroCitas filtro, CursorCitas despuesDe, int limite);
+}
@@ -0,0 +1,54 @@
+package com.chatbox.citas.repository;
+
+import com.chatbox.citas.dto.CitaResponse;
+import com.chatbox.citas.dto.CursorCitas;
+import com.chatbox.citas.dto.FiltroCitas;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+class CitaRepositoryImpl implements CitaRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<CitaResponse> buscarPagina(FiltroCitas filtro, CursorCitas despuesDe, int limite) {
+        StringBuilder jpql = new StringBuilder(CitaRepository.SELECT_CITA_RESPONSE).append("WHERE 1 = 1");
+        Map<String, Object> parametros = new HashMap<>();
+
+        if (filtro.estado() != null) {
+            jpql.append(" AND c.estado = :estado");
+            parametros.put("estado", filtro.estado());
+        }
+        if (filtro.doctor() != null && !filtro.doctor().isBlank()) {
+            jpql.append(" AND LOWER(c.doctor) LIKE :doctor");
+            parametros.put("doctor", "%" + filtro.doctor().trim().toLowerCase(Locale.ROOT) + "%");
+        }
+        if (filtro.desde() != null) {
+            jpql.append(" AND c.fechaHora >= :desde");
+            parametros.put("desde", filtro.desde().atStartOfDay());
+        }
+        if (filtro.hasta() != null) {
+            jpql.append(" AND c.fechaHora < :hasta");
+            parametros.put("hasta", filtro.hasta().plusDays(1).atStartOfDay());
+        }
+        if (despuesDe != null) {
+            jpql.append(" AND (c.fechaHora < :cursorFecha OR (c.fechaHora = :cursorFecha AND c.id < :cursorId))");
+            parametros.put("cursorFecha", despuesDe.fechaHora());
+            parametros.put("cursorId", despuesDe.id());
+        }
+        jpql.append(" ORDER BY c.fechaHora DESC, c.id DESC");
+
+        TypedQuery<CitaResponse> query = entityManager.createQuery(jpql.toString(), CitaResponse.class)
+            .setMaxResults(limite);
+        parametros.forEach(query::setParameter);
+
+        return query.getResultList();
+    }
+}
@@ -3,15 +3,21 @@ package com.chatbox.citas.repository;
 import com.chatbox.citas.model.Paciente;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PacienteRepository extends JpaRepository<Paciente, Long> {
+public interface PacienteRepository extends JpaRepository<Paciente, Long>, PacienteRepositoryCustom {
 
     Optional<Paciente> findByTelefono(String telefono);
 
     Optional<Paciente> findByNumeroIdentificacion(String numeroIdentificacion);
 
+    List<Paciente> findByNumeroIdentificacionIn(Collection<String> numerosIdentificacion);
+
+    List<Paciente> findByTelefonoIn(Collection<String> telefonos);
+
     boolean existsByTelefono(String telefono);
 
     boolean existsByNumeroIdentificacion(String numeroIdentificacion);
@@ -0,0 +1,20 @@
+package com.chatbox.citas.repository;
+
+import com.chatbox.citas.model.Paciente;
+
+/**
+ * Find-or-create for bookings, implemented in {@link PacienteRepositoryImpl}
+ */
+public interface PacienteRepositoryCustom {
+
+    /**
+     * Returns the patient with {@code nuevo}'s document number, inserting {@code nuevo} if there is none
+     * Concurrent first bookings of the same patient all get the same row.
+     */
+    Paciente obtenerOCrearPorNumeroIdentificacion(Paciente nuevo);
+
+    /**
+     * Same as {@link #obtenerOCrearPorNumeroIdentificacion} keyed by phone, for bookings without a document
+     */
+    Paciente obtenerOCrearPorTelefono(Paciente nuevo);
+}
@@ -0,0 +1,79 @@
+package com.chatbox.citas.repository;
+
+import com.chatbox.citas.model.Paciente;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A plain lookup first, so returning patients take no id and leave no dead tuple; only a miss
+ * inserts, with INSERT ... ON CONFLICT DO UPDATE ... RETURNING so a concurrent first booking that
+ * won the race is returned instead of failing on the unique constraint.
+ * The id comes from the entity's own pooled-lo generator, the same blocks save() hands out, so a
+ * native insert never takes an id Hibernate may still assign. A lost race only leaves a gap.
+ */
+class PacienteRepositoryImpl implements PacienteRepositoryCustom {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO pacientes (id, nombre, tipo_identificacion, numero_identificacion, telefono, telefono2,
+                               email, direccion, fecha_nacimiento, eps, creado_en, actualizado_en)
+        VALUES (:id, :nombre, :tipoIdentificacion, :numeroIdentificacion, :telefono, :telefono2,
+                :email, :direccion, :fechaNacimiento, :eps, :ahora, :ahora)
+        ON CONFLICT (%1$s) DO UPDATE SET %1$s = EXCLUDED.%1$s
+        RETURNING *
+        """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public Paciente obtenerOCrearPorNumeroIdentificacion(Paciente nuevo) {
+        return obtenerOCrear("numeroIdentificacion", "numero_identificacion", nuevo.getNumeroIdentificacion(), nuevo);
+    }
+
+    @Override
+    @Transactional
+    public Paciente obtenerOCrearPorTelefono(Paciente nuevo) {
+        return obtenerOCrear("telefono", "telefono", nuevo.getTelefono(), nuevo);
+    }
+
+    private Paciente obtenerOCrear(String atributo, String columna, String valor, Paciente nuevo) {
+        List<Paciente> existentes = entityManager
+            .createQuery("SELECT p FROM Paciente p WHERE p." + atributo + " = :valor", Paciente.class)
+            .setParameter("valor", valor)
+            .getResultList();
+        if (!existentes.isEmpty()) {
+            return existentes.get(0);
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        return (Paciente) entityManager.createNativeQuery(INSERT_SQL.formatted(columna), Paciente.class)
+            .setParameter("id", siguienteId(nuevo))
+            .setParameter("nombre", nuevo.getNombre())
+            .setParameter("tipoIdentificacion", nuevo.getTipoIdentificacion())
+            .setParameter("numeroIdentificacion", nuevo.getNumeroIdentificacion())
+            .setParameter("telefono", nuevo.getTelefono())
+            .setParameter("telefono2", nuevo.getTelefono2())
+            .setParameter("email", nuevo.getEmail())
+            .setParameter("direccion", nuevo.getDireccion())
+            .setParameter("fechaNacimiento", nuevo.getFechaNacimiento())
+            .setParameter("eps", nuevo.getEps())
+            .setParameter("ahora", ahora)
+            .getSingleResult();
+    }
+
+    private Object siguienteId(Paciente nuevo) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        BeforeExecutionGenerator generador = (BeforeExecutionGenerator) session
+            .getEntityPersister(Paciente.class.getName(), nuevo)
+            .getGenerator();
+        return generador.generate(session, nuevo, null, EventType.INSERT);
+    }
+}
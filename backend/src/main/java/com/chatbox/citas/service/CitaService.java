@@ -1,19 +1,33 @@
 package com.chatbox.citas.service;
 
+import com.chatbox.citas.constants.AppointmentConstants;
+import com.chatbox.citas.constants.MetricsConstants;
 import com.chatbox.citas.dto.CitaRequest;
 import com.chatbox.citas.dto.CitaRequestCompleto;
 import com.chatbox.citas.dto.CitaResponse;
+import com.chatbox.citas.dto.CursorCitas;
+import com.chatbox.citas.dto.FiltroCitas;
+import com.chatbox.citas.dto.PaginaCitasResponse;
 import com.chatbox.citas.model.Cita;
 import com.chatbox.citas.model.Cita.EstadoCita;
 import com.chatbox.citas.model.Doctor;
 import com.chatbox.citas.model.Paciente;
 import com.chatbox.citas.repository.CitaRepository;
+import com.chatbox.citas.service.estadistica.EstadisticasCitasService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -22,7 +36,11 @@ public class CitaService {
     private final CitaRepository citaRepository;
     private final PacienteService pacienteService;
     private final DoctorService doctorService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final EstadisticasCitasService estadisticasCitasService;
 
+    @Transactional
     public CitaResponse crearCita(CitaRequest request) {
         Paciente paciente = pacienteService.obtenerOCrearPaciente(
                 request.getNombrePaciente(),
@@ -39,34 +57,94 @@ public class CitaService {
         cita.setRecordatorio1hEnviado(false);
 
         Cita citaGuardada = citaRepository.save(cita);
+        estadisticasCitasService.registrarNueva(citaGuardada);
         return mapearAResponse(citaGuardada);
     }
 
     public List<CitaResponse> obtenerTodasLasCitas() {
-        return citaRepository.findAllByOrderByFechaHoraDesc()
-                .stream()
-                .map(this::mapearAResponse)
-                .collect(Collectors.toList());
+        return citaRepository.findAllResponsesOrderByFechaHoraDesc();
+    }
+
+    /**
+     * One page of appointments, newest first, continuing after the given cursor
+     * @param cursor token from a previous page, or null for the first page
+     */
+    public PaginaCitasResponse obtenerPagina(FiltroCitas filtro, String cursor, int limite) {
+        int tamano = Math.max(1, Math.min(limite, AppointmentConstants.PAGINA_CITAS_MAXIMO));
+        CursorCitas despuesDe = cursor != null && !cursor.isBlank() ? CursorCitas.decodificar(cursor) : null;
+
+        // One extra row tells whether another page exists
+        List<CitaResponse> citas = citaRepository.buscarPagina(filtro, despuesDe, tamano + 1);
+        boolean hayMas = citas.size() > tamano;
+        if (hayMas) {
+            citas = citas.subList(0, tamano);
+        }
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            CitaResponse ultima = citas.get(citas.size() - 1);
+            siguienteCursor = new CursorCitas(ultima.getFechaHora(), ultima.getId()).codificar();
+        }
+
+        return new PaginaCitasResponse(List.copyOf(citas), siguienteCursor);
+    }
+
+    /**
+     * Write every matching appointment as newline-delimited JSON
+     * Walks keyset pages of a fixed size, so memory stays flat and no transaction is held
+     * open while a slow client reads the response
+     */
+    public void exportarNdjson(FiltroCitas filtro, OutputStream salida) throws IOException {
+        CursorCitas despuesDe = null;
+        List<CitaResponse> lote;
+        do {
+            lote = citaRepository.buscarPagina(filtro, despuesDe, AppointmentConstants.EXPORTACION_CITAS_LOTE);
+            for (CitaResponse cita : lote) {
+                salida.write(objectMapper.writeValueAsBytes(cita));
+                salida.write('\n');
+            }
+            salida.flush();
+
+            if (!lote.isEmpty()) {
+                CitaResponse ultima = lote.get(lote.size() - 1);
+                despuesDe = new CursorCitas(ultima.getFechaHora(), ultima.getId());
+            }
+        } while (lote.size() == AppointmentConstants.EXPORTACION_CITAS_LOTE);
     }
 
     public List<CitaResponse> obtenerCitasPorTelefono(String telefono) {
-        return citaRepository.findByPaciente_TelefonoOrderByFechaHoraDesc(telefono)
+        // Patient id from the lookup cache; the query then reads only that patient's rows
+        return pacienteService.buscarResumenPorTelefono(telefono)
+                .map(paciente -> citaRepository.findResponsesByPacienteId(paciente.id()))
+                .orElseGet(List::of);
+    }
+
+    /**
+     * Next scheduled or confirmed appointment of a patient, if any
+     */
+    public Optional<CitaResponse> obtenerProximaCita(Long pacienteId) {
+        return citaRepository.findProximasResponsesByPacienteId(
+                pacienteId, LocalDateTime.now(), List.of(EstadoCita.PROGRAMADA, EstadoCita.CONFIRMADA), Limit.of(1))
                 .stream()
-                .map(this::mapearAResponse)
-                .collect(Collectors.toList());
+                .findFirst();
     }
 
     public CitaResponse obtenerCitaPorId(Long id) {
-        Cita cita = citaRepository.findById(id)
+        return citaRepository.findResponseById(id)
                 .orElseThrow(() -> new RuntimeException("Cita no encontrada"));
-        return mapearAResponse(cita);
     }
 
+    /**
+     * The row is locked until commit so concurrent cancellations move the counters only once
+     */
+    @Transactional
     public CitaResponse cancelarCita(Long id) {
-        Cita cita = citaRepository.findById(id)
+        Cita cita = citaRepository.findByIdParaActualizar(id)
                 .orElseThrow(() -> new RuntimeException("Cita no encontrada"));
+        EstadoCita anterior = cita.getEstado();
         cita.setEstado(EstadoCita.CANCELADA);
         Cita citaCancelada = citaRepository.save(cita);
+        estadisticasCitasService.registrarCambioEstado(citaCancelada, anterior);
         return mapearAResponse(citaCancelada);
     }
 
@@ -78,16 +156,24 @@ public class CitaService {
         return citaRepository.findCitasParaRecordatorio1h(inicio, fin);
     }
 
-    public void marcarRecordatorioEnviado(Cita cita, int horas) {
-        if (horas == 24) {
-            cita.setRecordatorio24hEnviado(true);
-        } else if (horas == 1) {
-            cita.setRecordatorio1hEnviado(true);
+    /**
+     * Flag the reminder as sent for every given appointment with a single UPDATE
+     */
+    @Transactional
+    public void marcarRecordatoriosEnviados(Collection<Long> citaIds, int horas) {
+        if (citaIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        if (horas == AppointmentConstants.RECORDATORIO_24H) {
+            citaRepository.marcarRecordatorio24hEnviado(citaIds, ahora);
+        } else if (horas == AppointmentConstants.RECORDATORIO_1H) {
+            citaRepository.marcarRecordatorio1hEnviado(citaIds, ahora);
         }
-        citaRepository.save(cita);
     }
 
     // Nuevo método para crear cita con información completa del paciente
+    @Transactional
     public CitaResponse crearCitaCompleta(CitaRequestCompleto request) {
         Paciente paciente = pacienteService.obtenerOCrearPacienteCompleto(
                 request.getNombrePaciente(),
@@ -110,6 +196,7 @@ public class CitaService {
         cita.setRecordatorio1hEnviado(false);
 
         Cita citaGuardada = citaRepository.save(cita);
+        estadisticasCitasService.registrarNueva(citaGuardada);
         return mapearAResponse(citaGuardada);
     }
 
@@ -131,6 +218,18 @@ public class CitaService {
      * Retorna una lista de objetos con doctor y hora disponibles
      */
     public List<Object> obtenerHorariosDisponibles(LocalDate fecha) {
+        Timer.Sample muestra = Timer.start(meterRegistry);
+        String outcome = MetricsConstants.OUTCOME_ERROR;
+        try {
+            List<Object> disponibilidad = calcularHorariosDisponibles(fecha);
+            outcome = MetricsConstants.OUTCOME_OK;
+            return disponibilidad;
+        } finally {
+            muestra.stop(meterRegistry.timer(MetricsConstants.CITAS_DISPONIBILIDAD, MetricsConstants.TAG_OUTCOME, outcome));
+        }
+    }
+
+    private List<Object> calcularHorariosDisponibles(LocalDate fecha) {
         List<Object> disponibilidad = new java.util.ArrayList<>();
         var doctores = doctorService.obtenerActivos();
 
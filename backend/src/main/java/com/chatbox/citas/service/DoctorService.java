@@ -2,8 +2,12 @@ package com.chatbox.citas.service;
 
 import com.chatbox.citas.model.Doctor;
 import com.chatbox.citas.repository.DoctorRepository;
+import com.chatbox.citas.service.doctor.DoctorDirectory;
+import com.chatbox.citas.service.doctor.DoctoresCambiadosEvent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,13 +16,18 @@ import java.util.Optional;
 public class DoctorService {
 
     private final DoctorRepository doctorRepository;
+    private final DoctorDirectory doctorDirectory;
+    private final ApplicationEventPublisher eventPublisher;
 
     public List<Doctor> obtenerTodos() {
         return doctorRepository.findAll();
     }
 
+    /**
+     * Active doctors from the in-memory directory (no database round trip)
+     */
     public List<Doctor> obtenerActivos() {
-        return doctorRepository.findByEstado(Doctor.EstadoDoctor.ACTIVO);
+        return doctorDirectory.activos();
     }
 
     public List<Doctor> obtenerPorEspecialidad(String especialidad) {
@@ -26,20 +35,21 @@ public class DoctorService {
     }
 
     public List<Doctor> obtenerActivosPorEspecialidad(String especialidad) {
-        return doctorRepository.findByEstadoAndEspecialidadContainingIgnoreCase(
-            Doctor.EstadoDoctor.ACTIVO,
-            especialidad
-        );
+        return doctorDirectory.activosPorEspecialidad(especialidad);
     }
 
     public Optional<Doctor> obtenerPorId(Long id) {
         return doctorRepository.findById(id);
     }
 
+    @Transactional
     public Doctor guardar(Doctor doctor) {
-        return doctorRepository.save(doctor);
+        Doctor guardado = doctorRepository.save(doctor);
+        eventPublisher.publishEvent(new DoctoresCambiadosEvent(guardado.getId()));
+        return guardado;
     }
 
+    @Transactional
     public Doctor actualizar(Long id, Doctor doctorActualizado) {
         Doctor doctor = doctorRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Doctor no encontrado"));
@@ -50,9 +60,12 @@ public class DoctorService {
         doctor.setEmail(doctorActualizado.getEmail());
         doctor.setEstado(doctorActualizado.getEstado());
 
-        return doctorRepository.save(doctor);
+        Doctor guardado = doctorRepository.save(doctor);
+        eventPublisher.publishEvent(new DoctoresCambiadosEvent(id));
+        return guardado;
     }
 
+    @Transactional
     public void eliminar(Long id) {
         Doctor doctor = doctorRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Doctor no encontrado"));
@@ -60,12 +73,15 @@ public class DoctorService {
         // Soft delete: cambiar estado a INACTIVO en lugar de borrar
         doctor.setEstado(Doctor.EstadoDoctor.INACTIVO);
         doctorRepository.save(doctor);
+        eventPublisher.publishEvent(new DoctoresCambiadosEvent(id));
     }
 
+    @Transactional
     public void eliminarPermanentemente(Long id) {
         if (!doctorRepository.existsById(id)) {
             throw new RuntimeException("Doctor no encontrado");
         }
         doctorRepository.deleteById(id);
+        eventPublisher.publishEvent(new DoctoresCambiadosEvent(id));
     }
 }
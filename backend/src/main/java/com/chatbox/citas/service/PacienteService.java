@@ -2,7 +2,11 @@ package com.chatbox.citas.service;
 
 import com.chatbox.citas.model.Paciente;
 import com.chatbox.citas.repository.PacienteRepository;
+import com.chatbox.citas.service.paciente.PacienteGuardadoEvent;
+import com.chatbox.citas.service.paciente.PacienteLookupCache;
+import com.chatbox.citas.service.paciente.PacienteResumen;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import java.time.LocalDate;
 import java.util.Optional;
@@ -12,17 +16,20 @@ import java.util.Optional;
 public class PacienteService {
 
     private final PacienteRepository pacienteRepository;
+    private final PacienteLookupCache pacienteLookupCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     // Método existente (mantener para compatibilidad)
     public Paciente obtenerOCrearPaciente(String nombre, String telefono, String email) {
-        return pacienteRepository.findByTelefono(telefono)
-                .orElseGet(() -> {
-                    Paciente nuevoPaciente = new Paciente();
-                    nuevoPaciente.setNombre(nombre);
-                    nuevoPaciente.setTelefono(telefono);
-                    nuevoPaciente.setEmail(email);
-                    return pacienteRepository.save(nuevoPaciente);
-                });
+        // INSERT ... ON CONFLICT si no existe: sin carrera entre reservas simultáneas del mismo paciente
+        Paciente nuevoPaciente = new Paciente();
+        nuevoPaciente.setNombre(nombre);
+        nuevoPaciente.setTelefono(telefono);
+        nuevoPaciente.setEmail(email);
+        Paciente paciente = pacienteRepository.obtenerOCrearPorTelefono(nuevoPaciente);
+        // Cached once the caller's transaction commits, so a rolled-back booking leaves no entry
+        eventPublisher.publishEvent(new PacienteGuardadoEvent(paciente, false));
+        return paciente;
     }
 
     // Nuevo método completo con todos los campos
@@ -37,21 +44,20 @@ public class PacienteService {
         LocalDate fechaNacimiento,
         String eps
     ) {
-        // Buscar por número de identificación (prioridad sobre teléfono)
-        return pacienteRepository.findByNumeroIdentificacion(numeroIdentificacion)
-                .orElseGet(() -> {
-                    Paciente nuevoPaciente = new Paciente();
-                    nuevoPaciente.setNombre(nombre);
-                    nuevoPaciente.setTipoIdentificacion(tipoIdentificacion);
-                    nuevoPaciente.setNumeroIdentificacion(numeroIdentificacion);
-                    nuevoPaciente.setTelefono(telefono);
-                    nuevoPaciente.setTelefono2(telefono2);
-                    nuevoPaciente.setEmail(email);
-                    nuevoPaciente.setDireccion(direccion);
-                    nuevoPaciente.setFechaNacimiento(fechaNacimiento);
-                    nuevoPaciente.setEps(eps);
-                    return pacienteRepository.save(nuevoPaciente);
-                });
+        // Buscar por número de identificación (prioridad sobre teléfono); se crea si no existe
+        Paciente nuevoPaciente = new Paciente();
+        nuevoPaciente.setNombre(nombre);
+        nuevoPaciente.setTipoIdentificacion(tipoIdentificacion);
+        nuevoPaciente.setNumeroIdentificacion(numeroIdentificacion);
+        nuevoPaciente.setTelefono(telefono);
+        nuevoPaciente.setTelefono2(telefono2);
+        nuevoPaciente.setEmail(email);
+        nuevoPaciente.setDireccion(direccion);
+        nuevoPaciente.setFechaNacimiento(fechaNacimiento);
+        nuevoPaciente.setEps(eps);
+        Paciente paciente = pacienteRepository.obtenerOCrearPorNumeroIdentificacion(nuevoPaciente);
+        eventPublisher.publishEvent(new PacienteGuardadoEvent(paciente, false));
+        return paciente;
     }
 
     public Optional<Paciente> buscarPorTelefono(String telefono) {
@@ -62,7 +68,18 @@ public class PacienteService {
         return pacienteRepository.findByNumeroIdentificacion(numeroIdentificacion);
     }
 
+    // Búsquedas en caché para los flujos de agendamiento (teléfono normalizado o número de documento)
+    public Optional<PacienteResumen> buscarResumenPorTelefono(String telefono) {
+        return pacienteLookupCache.buscarPorTelefono(telefono);
+    }
+
+    public Optional<PacienteResumen> buscarResumenPorNumeroIdentificacion(String numeroIdentificacion) {
+        return pacienteLookupCache.buscarPorNumeroIdentificacion(numeroIdentificacion);
+    }
+
     public Paciente guardar(Paciente paciente) {
-        return pacienteRepository.save(paciente);
+        Paciente guardado = pacienteRepository.save(paciente);
+        eventPublisher.publishEvent(new PacienteGuardadoEvent(guardado, true));
+        return guardado;
     }
 }
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
@@ -53,6 +54,7 @@ public class RecordatorioService {
 
         log.info("Found {} appointments for 24h reminder", citas.size());
 
+        List<Long> enviadas = new ArrayList<>(citas.size());
         for (Cita cita : citas) {
             try {
                 String fecha = cita.getFechaHora().format(FORMATO_FECHA);
@@ -67,7 +69,7 @@ public class RecordatorioService {
                         24
                 );
 
-                citaService.marcarRecordatorioEnviado(cita, 24);
+                enviadas.add(cita.getId());
 
                 log.info("Recordatorio 24h enviado para cita ID: {}", cita.getId());
 
@@ -76,6 +78,8 @@ public class RecordatorioService {
                         cita.getId(), e.getMessage(), e);
             }
         }
+
+        citaService.marcarRecordatoriosEnviados(enviadas, 24);
     }
 
     private void enviarRecordatorios1h() {
@@ -89,6 +93,7 @@ public class RecordatorioService {
 
         log.info("Found {} appointments for 1h reminder", citas.size());
 
+        List<Long> enviadas = new ArrayList<>(citas.size());
         for (Cita cita : citas) {
             try {
                 String fecha = cita.getFechaHora().format(FORMATO_FECHA);
@@ -103,7 +108,7 @@ public class RecordatorioService {
                         1
                 );
 
-                citaService.marcarRecordatorioEnviado(cita, 1);
+                enviadas.add(cita.getId());
 
                 log.info("Recordatorio 1h enviado para cita ID: {}", cita.getId());
 
@@ -112,6 +117,8 @@ public class RecordatorioService {
                         cita.getId(), e.getMessage(), e);
             }
         }
+
+        citaService.marcarRecordatoriosEnviados(enviadas, 1);
     }
 
     @Scheduled(cron = "0 */30 * * * *")
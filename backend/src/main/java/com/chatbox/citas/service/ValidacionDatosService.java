@@ -1,5 +1,6 @@
 package com.chatbox.citas.service;
 
+import com.chatbox.citas.constants.WhatsAppConstants;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -12,6 +13,8 @@ import java.time.format.DateTimeParseException;
 @Service
 public class ValidacionDatosService {
 
+    private static final DateTimeFormatter FORMATO_FECHA_INPUT = DateTimeFormatter.ofPattern(WhatsAppConstants.FORMATO_FECHA_INPUT);
+
     /**
      * Valida número de teléfono colombiano (formato: 3XX XXX XXXX)
      */
@@ -20,10 +23,18 @@ public class ValidacionDatosService {
             return false;
         }
 
-        // Eliminar espacios y guiones
-        String telefonoLimpio = telefono.replaceAll("[\\s\\-]", "");
-
-        boolean valido = telefonoLimpio.matches("^3\\d{9}$");
+        // Equivale a "^3\d{9}$" ignorando espacios y guiones, sin crear el texto limpio
+        int digitos = 0;
+        boolean valido = true;
+        for (int i = 0; i < telefono.length() && valido; i++) {
+            char c = telefono.charAt(i);
+            if (c == '-' || esEspacio(c)) {
+                continue;
+            }
+            valido = c >= '0' && c <= '9' && (digitos > 0 || c == '3');
+            digitos++;
+        }
+        valido = valido && digitos == 10;
         log.debug("Teléfono {} válido: {}", telefono, valido);
         return valido;
     }
@@ -34,8 +45,7 @@ public class ValidacionDatosService {
      */
     public LocalDate validarFechaNacimiento(String fechaStr) {
         try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
-            LocalDate fechaNacimiento = LocalDate.parse(fechaStr, formatter);
+            LocalDate fechaNacimiento = LocalDate.parse(fechaStr, FORMATO_FECHA_INPUT);
             LocalDate hoy = LocalDate.now();
 
             if (fechaNacimiento.isAfter(hoy)) {
@@ -70,6 +80,82 @@ public class ValidacionDatosService {
         if (telefono == null) {
             return null;
         }
-        return telefono.replaceAll("[\\s\\-]", "");
+
+        for (int i = 0; i < telefono.length(); i++) {
+            char c = telefono.charAt(i);
+            if (c == '-' || esEspacio(c)) {
+                return quitarEspaciosYGuiones(telefono, i);
+            }
+        }
+        return telefono;
+    }
+
+    /**
+     * Valida formato básico de email (usuario@dominio.tld)
+     * Equivale a "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\.[A-Za-z]{2,}$" recorriendo el texto una sola vez
+     */
+    public boolean validarEmail(String email) {
+        if (email == null) {
+            return false;
+        }
+
+        int arroba = email.indexOf('@');
+        if (arroba <= 0) {
+            return false;
+        }
+        for (int i = 0; i < arroba; i++) {
+            char c = email.charAt(i);
+            if (!esAlfanumerico(c) && c != '+' && c != '_' && c != '.' && c != '-') {
+                return false;
+            }
+        }
+
+        int ultimoPunto = -1;
+        for (int i = arroba + 1; i < email.length(); i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                ultimoPunto = i;
+            } else if (!esAlfanumerico(c) && c != '-') {
+                return false;
+            }
+        }
+
+        // Debe haber algo entre la arroba y el último punto, y al menos dos letras después
+        if (ultimoPunto <= arroba + 1 || email.length() - ultimoPunto - 1 < 2) {
+            return false;
+        }
+        for (int i = ultimoPunto + 1; i < email.length(); i++) {
+            if (!esLetra(email.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String quitarEspaciosYGuiones(String telefono, int desde) {
+        StringBuilder limpio = new StringBuilder(telefono.length());
+        limpio.append(telefono, 0, desde);
+        for (int i = desde + 1; i < telefono.length(); i++) {
+            char c = telefono.charAt(i);
+            if (c != '-' && !esEspacio(c)) {
+                limpio.append(c);
+            }
+        }
+        return limpio.toString();
+    }
+
+    /**
+     * Mismos caracteres que {@code \s} en una expresión regular de Java
+     */
+    static boolean esEspacio(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean esLetra(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static boolean esAlfanumerico(char c) {
+        return esLetra(c) || (c >= '0' && c <= '9');
     }
 }
@@ -18,7 +18,7 @@ public class ValidacionDocumentoService {
             return false;
         }
 
-        if (!cedula.matches("\\d+")) {
+        if (!esNumerico(cedula, 8, 10)) {
             log.debug("CC inválida: contiene caracteres no numéricos");
             return false;
         }
@@ -35,7 +35,7 @@ public class ValidacionDocumentoService {
      * Valida Tarjeta de Identidad colombiana
      */
     public boolean validarTI(String ti) {
-        boolean valido = ti != null && ti.matches("\\d{6,12}");
+        boolean valido = esNumerico(ti, 6, 12);
         log.debug("TI {} válida: {}", ti, valido);
         return valido;
     }
@@ -44,8 +44,57 @@ public class ValidacionDocumentoService {
      * Valida Registro Civil
      */
     public boolean validarRC(String rc) {
-        boolean valido = rc != null && rc.matches("\\d{6,12}");
+        boolean valido = esNumerico(rc, 6, 12);
         log.debug("RC {} válido: {}", rc, valido);
         return valido;
     }
+
+    /**
+     * Quita puntos, espacios y guiones de un número de documento (ej: "1.234.567-8" -> "12345678")
+     */
+    public String limpiarNumeroDocumento(String numero) {
+        if (numero == null) {
+            return null;
+        }
+
+        for (int i = 0; i < numero.length(); i++) {
+            if (esSeparadorDocumento(numero.charAt(i))) {
+                return quitarSeparadores(numero, i);
+            }
+        }
+        // Caso común: ya viene limpio, se devuelve sin copiar
+        return numero;
+    }
+
+    private static String quitarSeparadores(String numero, int desde) {
+        StringBuilder limpio = new StringBuilder(numero.length());
+        limpio.append(numero, 0, desde);
+        for (int i = desde + 1; i < numero.length(); i++) {
+            char c = numero.charAt(i);
+            if (!esSeparadorDocumento(c)) {
+                limpio.append(c);
+            }
+        }
+        return limpio.toString();
+    }
+
+    private static boolean esSeparadorDocumento(char c) {
+        return c == '.' || c == '-' || ValidacionDatosService.esEspacio(c);
+    }
+
+    /**
+     * Equivalente a {@code valor.matches("\\d{min,max}")} sin compilar una expresión regular
+     */
+    static boolean esNumerico(String valor, int min, int max) {
+        if (valor == null || valor.length() < min || valor.length() > max) {
+            return false;
+        }
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
 }
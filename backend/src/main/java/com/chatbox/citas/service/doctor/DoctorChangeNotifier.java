@@ -0,0 +1,156 @@
+package com.chatbox.citas.service.doctor;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * Keeps the {@link DoctorDirectory} of every instance in sync through PostgreSQL LISTEN/NOTIFY
+ *
+ * After a doctor change commits, this node sends a NOTIFY carrying its own id on the channel.
+ * A daemon thread LISTENs on a dedicated connection and reloads the directory when another
+ * node announces a change. That connection is opened straight from the driver, outside the
+ * Hikari pool, so holding it for the life of the application does not take a pooled
+ * connection. After a lost connection it reconnects and reloads once, since notifications
+ * sent while disconnected are not replayed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "doctor.directory.notify.enabled", havingValue = "true", matchIfMissing = true)
+public class DoctorChangeNotifier {
+
+    private static final long ESPERA_NOTIFICACION_MS = 10_000;
+    private static final long ESPERA_RECONEXION_MS = 5_000;
+
+    private final DataSourceProperties dataSourceProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final DoctorDirectory doctorDirectory;
+    private final String canal;
+    private final String nodoId = UUID.randomUUID().toString();
+
+    private volatile boolean activo = true;
+    private Thread escucha;
+
+    public DoctorChangeNotifier(
+        DataSourceProperties dataSourceProperties,
+        JdbcTemplate jdbcTemplate,
+        DoctorDirectory doctorDirectory,
+        @Value("${doctor.directory.notify.channel:doctores_cambiados}") String canal
+    ) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.doctorDirectory = doctorDirectory;
+        if (!canal.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalStateException("doctor.directory.notify.channel inválido: " + canal);
+        }
+        this.canal = canal;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        escucha = new Thread(this::escuchar, "doctor-directory-listener");
+        escucha.setDaemon(true);
+        escucha.start();
+    }
+
+    @PreDestroy
+    public void detener() {
+        activo = false;
+        if (escucha != null) {
+            escucha.interrupt();
+        }
+    }
+
+    /**
+     * Announce a committed change to the other instances
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onDoctoresCambiados(DoctoresCambiadosEvent event) {
+        try {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, canal, nodoId);
+        } catch (Exception e) {
+            // Other instances catch up on their next reconnect or change
+            log.warn("No se pudo notificar el cambio de doctores: {}", e.getMessage());
+        }
+    }
+
+    private void escuchar() {
+        boolean reconexion = false;
+        while (activo) {
+            try (Connection connection = conectar()) {
+                if (!connection.isWrapperFor(PGConnection.class)) {
+                    log.warn("La base de datos no es PostgreSQL; el directorio de doctores no se sincroniza entre instancias");
+                    return;
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + canal);
+                }
+                log.info("📡 Escuchando cambios de doctores en el canal '{}'", canal);
+
+                if (reconexion) {
+                    recargar();
+                }
+                reconexion = true;
+
+                while (activo) {
+                    PGNotification[] notificaciones = pgConnection.getNotifications((int) ESPERA_NOTIFICACION_MS);
+                    if (notificaciones != null && esDeOtroNodo(notificaciones)) {
+                        recargar();
+                    }
+                }
+            } catch (SQLException e) {
+                if (!activo) {
+                    return;
+                }
+                log.warn("Conexión LISTEN de doctores perdida, reintentando en {} ms: {}", ESPERA_RECONEXION_MS, e.getMessage());
+                try {
+                    Thread.sleep(ESPERA_RECONEXION_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private Connection conectar() throws SQLException {
+        return DriverManager.getConnection(
+            dataSourceProperties.determineUrl(),
+            dataSourceProperties.determineUsername(),
+            dataSourceProperties.determinePassword()
+        );
+    }
+
+    private void recargar() {
+        try {
+            doctorDirectory.recargar();
+        } catch (RuntimeException e) {
+            log.error("Error recargando el directorio de doctores: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean esDeOtroNodo(PGNotification[] notificaciones) {
+        for (PGNotification notificacion : notificaciones) {
+            if (!nodoId.equals(notificacion.getParameter())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,180 @@
+package com.chatbox.citas.service.doctor;
+
+import com.chatbox.citas.model.Doctor;
+import com.chatbox.citas.repository.DoctorRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory directory of active doctors
+ *
+ * Holds an immutable snapshot indexed by id, normalized name and normalized specialty.
+ * Readers never lock; the snapshot is rebuilt and swapped atomically after a doctor change
+ * commits on this node, or when another node announces a change (see {@link DoctorChangeNotifier}).
+ * Doctors in the snapshot are detached copies shared by every caller and must not be modified.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DoctorDirectory {
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    private final DoctorRepository doctorRepository;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.VACIO);
+
+    // Serializes reloads; a lock rather than synchronized so a virtual thread querying inside it does not pin its carrier
+    private final ReentrantLock recargaLock = new ReentrantLock();
+
+    @PostConstruct
+    public void inicializar() {
+        recargar();
+    }
+
+    /**
+     * Rebuild the snapshot from the database and swap it in
+     */
+    public void recargar() {
+        recargaLock.lock();
+        try {
+            List<Doctor> activos = doctorRepository.findByEstado(Doctor.EstadoDoctor.ACTIVO);
+            snapshot.set(Snapshot.de(activos));
+            log.info("🩺 Directorio de doctores recargado: {} activos", activos.size());
+        } finally {
+            recargaLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onDoctoresCambiados(DoctoresCambiadosEvent event) {
+        recargar();
+    }
+
+    public List<Doctor> activos() {
+        return snapshot.get().activos();
+    }
+
+    public Optional<Doctor> activoPorId(Long id) {
+        return Optional.ofNullable(snapshot.get().porId().get(id));
+    }
+
+    public List<Doctor> activosPorNombre(String nombre) {
+        return snapshot.get().porNombre().getOrDefault(normalizar(nombre), List.of());
+    }
+
+    /**
+     * Active doctors whose specialty contains the given text, ignoring case and accents
+     * Served by the snapshot's trigram index, no database query involved
+     */
+    public List<Doctor> activosPorEspecialidad(String especialidad) {
+        Snapshot actual = snapshot.get();
+        int[] ordinales = actual.indiceEspecialidad().buscar(normalizar(especialidad));
+
+        if (ordinales.length == 0) {
+            return List.of();
+        }
+        if (ordinales.length == 1) {
+            return actual.doctoresPorEspecialidad().get(ordinales[0]);
+        }
+
+        List<Doctor> resultado = new ArrayList<>();
+        for (int ordinal : ordinales) {
+            resultado.addAll(actual.doctoresPorEspecialidad().get(ordinal));
+        }
+        resultado.sort(Comparator.comparing(Doctor::getId));
+        return List.copyOf(resultado);
+    }
+
+    /**
+     * Lower-case, accent-free, single-spaced form used as index key
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACIOS.matcher(sinAcentos.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Immutable view of the active doctors at one point in time
+     */
+    record Snapshot(
+        List<Doctor> activos,
+        Map<Long, Doctor> porId,
+        Map<String, List<Doctor>> porNombre,
+        Map<String, List<Doctor>> porEspecialidad,
+        List<List<Doctor>> doctoresPorEspecialidad,
+        EspecialidadIndex indiceEspecialidad
+    ) {
+
+        static final Snapshot VACIO = new Snapshot(List.of(), Map.of(), Map.of(), Map.of(), List.of(), EspecialidadIndex.VACIO);
+
+        static Snapshot de(List<Doctor> doctores) {
+            List<Doctor> activos = doctores.stream()
+                .map(Snapshot::copiar)
+                .sorted(Comparator.comparing(Doctor::getId))
+                .toList();
+
+            Map<Long, Doctor> porId = new LinkedHashMap<>();
+            Map<String, List<Doctor>> porNombre = new LinkedHashMap<>();
+            Map<String, List<Doctor>> porEspecialidad = new LinkedHashMap<>();
+            for (Doctor doctor : activos) {
+                porId.put(doctor.getId(), doctor);
+                porNombre.computeIfAbsent(normalizar(doctor.getNombre()), k -> new ArrayList<>()).add(doctor);
+                porEspecialidad.computeIfAbsent(normalizar(doctor.getEspecialidad()), k -> new ArrayList<>()).add(doctor);
+            }
+
+            // Specialty ordinals follow the map's insertion order
+            Map<String, List<Doctor>> especialidades = inmutable(porEspecialidad);
+            return new Snapshot(
+                activos,
+                Map.copyOf(porId),
+                inmutable(porNombre),
+                especialidades,
+                List.copyOf(especialidades.values()),
+                new EspecialidadIndex(List.copyOf(especialidades.keySet()))
+            );
+        }
+
+        // Detached copy without the lazy citas collection, safe to share across threads
+        private static Doctor copiar(Doctor doctor) {
+            return new Doctor(
+                doctor.getId(),
+                doctor.getNombre(),
+                doctor.getEspecialidad(),
+                doctor.getTelefono(),
+                doctor.getEmail(),
+                doctor.getEstado(),
+                doctor.getCreadoEn(),
+                doctor.getActualizadoEn(),
+                List.of()
+            );
+        }
+
+        private static Map<String, List<Doctor>> inmutable(Map<String, List<Doctor>> indice) {
+            Map<String, List<Doctor>> copia = new LinkedHashMap<>();
+            indice.forEach((clave, lista) -> copia.put(clave, List.copyOf(lista)));
+            return Collections.unmodifiableMap(copia);
+        }
+    }
+}
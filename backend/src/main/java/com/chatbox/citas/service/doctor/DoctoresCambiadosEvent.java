@@ -0,0 +1,6 @@
+package com.chatbox.citas.service.doctor;
+
+/**
+ * Published inside the transaction that creates, updates or deactivates a doctor
+ */
+public record DoctoresCambiadosEvent(Long doctorId) {}
@@ -0,0 +1,111 @@
+package com.chatbox.citas.service.doctor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trigram inverted index over the normalized specialties of a directory snapshot
+ *
+ * Each distinct specialty gets an ordinal; every trigram maps to the sorted ordinals of the
+ * specialties containing it. A query intersects the posting lists of its own trigrams and
+ * checks the few surviving candidates with {@code contains}, so it returns exactly the
+ * specialties a {@code LIKE '%texto%'} would, without scanning them all.
+ * Queries shorter than a trigram fall back to scanning the specialty names.
+ */
+final class EspecialidadIndex {
+
+    private static final int N = 3;
+    private static final int[] NINGUNA = new int[0];
+
+    static final EspecialidadIndex VACIO = new EspecialidadIndex(List.of());
+
+    private final String[] especialidades;
+    private final Map<String, int[]> postings;
+
+    /**
+     * @param especialidades distinct normalized specialties; the position in the list is the ordinal
+     */
+    EspecialidadIndex(List<String> especialidades) {
+        this.especialidades = especialidades.toArray(String[]::new);
+
+        Map<String, List<Integer>> acumulado = new HashMap<>();
+        for (int ordinal = 0; ordinal < this.especialidades.length; ordinal++) {
+            String especialidad = this.especialidades[ordinal];
+            for (int i = 0; i + N <= especialidad.length(); i++) {
+                List<Integer> lista = acumulado.computeIfAbsent(especialidad.substring(i, i + N), k -> new ArrayList<>());
+                // Ordinals arrive in increasing order, so only the last one can repeat
+                if (lista.isEmpty() || lista.get(lista.size() - 1) != ordinal) {
+                    lista.add(ordinal);
+                }
+            }
+        }
+
+        Map<String, int[]> compactado = new HashMap<>(acumulado.size() * 2);
+        acumulado.forEach((trigrama, lista) -> compactado.put(trigrama, lista.stream().mapToInt(Integer::intValue).toArray()));
+        this.postings = compactado;
+    }
+
+    /**
+     * Ordinals of the specialties containing the normalized query, in increasing order
+     */
+    int[] buscar(String consulta) {
+        if (consulta.length() < N) {
+            return escanear(consulta);
+        }
+
+        int[] candidatos = null;
+        for (int i = 0; i + N <= consulta.length(); i++) {
+            int[] posting = postings.get(consulta.substring(i, i + N));
+            if (posting == null) {
+                return NINGUNA;
+            }
+            candidatos = candidatos == null ? posting : intersectar(candidatos, posting);
+            if (candidatos.length == 0) {
+                return NINGUNA;
+            }
+        }
+
+        // Every trigram present does not guarantee they are contiguous; confirm each candidate
+        int[] resultado = new int[candidatos.length];
+        int total = 0;
+        for (int ordinal : candidatos) {
+            if (especialidades[ordinal].contains(consulta)) {
+                resultado[total++] = ordinal;
+            }
+        }
+        return total == resultado.length ? resultado : Arrays.copyOf(resultado, total);
+    }
+
+    private int[] escanear(String consulta) {
+        int[] resultado = new int[especialidades.length];
+        int total = 0;
+        for (int ordinal = 0; ordinal < especialidades.length; ordinal++) {
+            if (especialidades[ordinal].contains(consulta)) {
+                resultado[total++] = ordinal;
+            }
+        }
+        return Arrays.copyOf(resultado, total);
+    }
+
+    private static int[] intersectar(int[] a, int[] b) {
+        int[] resultado = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int total = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                resultado[total++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(resultado, total);
+    }
+}
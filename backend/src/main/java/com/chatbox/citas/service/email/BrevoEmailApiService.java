@@ -1,12 +1,16 @@
 package com.chatbox.citas.service.email;
 
+import com.chatbox.citas.constants.MetricsConstants;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.List;
@@ -22,12 +26,15 @@ import java.util.Map;
 public class BrevoEmailApiService {
 
     private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
     private final RestTemplate restTemplate = new RestTemplate();
 
     @Value("${brevo.api.key:}")
     private String brevoApiKey;
 
-    private static final String BREVO_API_URL = "https://api.brevo.com/v3/smtp/email";
+    // Overridable so load tests can point at a local stub
+    @Value("${brevo.api.url:https://api.brevo.com/v3/smtp/email}")
+    private String brevoApiUrl;
 
     /**
      * Check if Brevo API is configured
@@ -61,6 +68,9 @@ public class BrevoEmailApiService {
             return;
         }
 
+        Timer.Sample muestra = Timer.start(meterRegistry);
+        String serie = MetricsConstants.STATUS_SIN_RESPUESTA;
+        String outcome = MetricsConstants.OUTCOME_ERROR;
         try {
             log.info("📧 Enviando email via Brevo API a: {}", toEmail);
 
@@ -90,13 +100,15 @@ public class BrevoEmailApiService {
 
             // Send request
             ResponseEntity<String> response = restTemplate.exchange(
-                BREVO_API_URL,
+                brevoApiUrl,
                 HttpMethod.POST,
                 requestEntity,
                 String.class
             );
 
+            serie = response.getStatusCode().value() / 100 + "xx";
             if (response.getStatusCode().is2xxSuccessful()) {
+                outcome = MetricsConstants.OUTCOME_OK;
                 log.info("✅ Email enviado exitosamente a {} via Brevo API - Response: {}",
                     toEmail, response.getStatusCode());
             } else {
@@ -104,9 +116,15 @@ public class BrevoEmailApiService {
             }
 
         } catch (Exception e) {
+            if (e instanceof HttpStatusCodeException http) {
+                serie = http.getStatusCode().value() / 100 + "xx";
+            }
             log.error("❌ Error enviando email via Brevo API a {}: {}",
                 toEmail, e.getMessage(), e);
             throw new RuntimeException("Error enviando email via Brevo API", e);
+        } finally {
+            muestra.stop(meterRegistry.timer(MetricsConstants.EMAIL_BREVO_ENVIO,
+                MetricsConstants.TAG_STATUS, serie, MetricsConstants.TAG_OUTCOME, outcome));
         }
     }
 
@@ -0,0 +1,215 @@
+package com.chatbox.citas.service.estadistica;
+
+import com.chatbox.citas.dto.EstadisticasCitasResponse;
+import com.chatbox.citas.dto.EstadisticasCitasResponse.TotalDia;
+import com.chatbox.citas.dto.EstadisticasCitasResponse.TotalDoctor;
+import com.chatbox.citas.model.Cita;
+import com.chatbox.citas.model.Cita.EstadoCita;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Appointment counters per day, doctor and estado, kept in step with the citas table
+ *
+ * Every appointment created or moved to another estado adds to or subtracts from its counters
+ * with an upsert in the same transaction, so dashboard figures are read from a table that grows
+ * with days × doctors rather than with appointments. Rows are always locked in key order so
+ * concurrent writers cannot deadlock. The table is built from citas on startup while it is empty.
+ */
+@Slf4j
+@Service
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class EstadisticasCitasService {
+
+    private static final String CREATE_TABLE_SQL = """
+        CREATE TABLE IF NOT EXISTS contadores_citas (
+            fecha DATE NOT NULL,
+            doctor VARCHAR(255) NOT NULL,
+            estado VARCHAR(20) NOT NULL,
+            total BIGINT NOT NULL,
+            PRIMARY KEY (fecha, doctor, estado)
+        )
+        """;
+    private static final String RECONSTRUIR_SQL = """
+        INSERT INTO contadores_citas (fecha, doctor, estado, total)
+        SELECT CAST(fecha_hora AS DATE), doctor, estado, COUNT(*) FROM citas
+        GROUP BY CAST(fecha_hora AS DATE), doctor, estado
+        """;
+    private static final String UPSERT_SQL = """
+        INSERT INTO contadores_citas (fecha, doctor, estado, total) VALUES (?, ?, ?, ?)
+        ON CONFLICT (fecha, doctor, estado) DO UPDATE SET total = contadores_citas.total + EXCLUDED.total
+        """;
+    // One pass yields the per-day and the per-doctor breakdowns; the other column is null in each set
+    private static final String RANGO_SQL = """
+        SELECT fecha, doctor, estado, SUM(total) AS total FROM contadores_citas
+        WHERE fecha BETWEEN ? AND ?
+        GROUP BY GROUPING SETS ((fecha, estado), (doctor, estado))
+        """;
+    private static final String TOTAL_SQL =
+        "SELECT COALESCE(SUM(total), 0) FROM contadores_citas";
+    private static final String PACIENTES_UNICOS_SQL =
+        "SELECT COUNT(DISTINCT paciente_id) FROM citas WHERE fecha_hora >= ? AND fecha_hora < ?";
+
+    // Unlike the counters, the distinct patient count reads every appointment in the range
+    static final int MAX_DIAS_RANGO = 366;
+
+    private static final Comparator<Clave> ORDEN_CLAVES = Comparator.comparing(Clave::fecha)
+        .thenComparing(Clave::doctor)
+        .thenComparing(Clave::estado);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void inicializar() {
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+        transactionTemplate.executeWithoutResult(status -> {
+            // One instance builds the table; appointment writers wait so none is missed or counted twice
+            jdbcTemplate.execute("LOCK TABLE contadores_citas IN EXCLUSIVE MODE");
+            Boolean existen = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM contadores_citas)", Boolean.class);
+            if (Boolean.TRUE.equals(existen)) {
+                return;
+            }
+            jdbcTemplate.execute("LOCK TABLE citas IN SHARE MODE");
+            int filas = jdbcTemplate.update(RECONSTRUIR_SQL);
+            log.info("📊 Contadores de citas construidos: {} filas", filas);
+        });
+    }
+
+    /**
+     * Count a newly saved appointment; must run in the transaction that saved it
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarNueva(Cita cita) {
+        aplicar(List.of(new Delta(Clave.de(cita, cita.getEstado()), 1)));
+    }
+
+    /**
+     * Count newly saved appointments; must run in the transaction that saved them
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarNuevas(Collection<Cita> citas) {
+        Map<Clave, Long> porClave = new TreeMap<>(ORDEN_CLAVES);
+        for (Cita cita : citas) {
+            porClave.merge(Clave.de(cita, cita.getEstado()), 1L, Long::sum);
+        }
+        aplicar(porClave.entrySet().stream().map(e -> new Delta(e.getKey(), e.getValue())).toList());
+    }
+
+    /**
+     * Move an appointment from {@code anterior} to its current estado; must run in the
+     * transaction that updated it, which should hold a lock on the appointment row
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarCambioEstado(Cita cita, EstadoCita anterior) {
+        if (anterior == cita.getEstado()) {
+            return;
+        }
+        List<Delta> deltas = new ArrayList<>(List.of(
+            new Delta(Clave.de(cita, anterior), -1),
+            new Delta(Clave.de(cita, cita.getEstado()), 1)
+        ));
+        deltas.sort(Comparator.comparing(Delta::clave, ORDEN_CLAVES));
+        aplicar(deltas);
+    }
+
+    /**
+     * Totals for the days from {@code desde} to {@code hasta}, both included, at most
+     * {@value #MAX_DIAS_RANGO} days
+     * Days without appointments are left out of {@code porDia}. The per-day, per-doctor and
+     * per-estado totals come from the counters; {@code pacientesUnicos} cannot be summed from
+     * per-day figures, so it is counted from the appointments themselves and costs time in
+     * proportion to the appointments in the range.
+     */
+    public EstadisticasCitasResponse obtenerEstadisticas(LocalDate desde, LocalDate hasta) {
+        if (hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("La fecha final no puede ser anterior a la inicial");
+        }
+        if (ChronoUnit.DAYS.between(desde, hasta) >= MAX_DIAS_RANGO) {
+            throw new IllegalArgumentException("El rango no puede superar " + MAX_DIAS_RANGO + " días");
+        }
+
+        Map<LocalDate, Map<EstadoCita, Long>> porDia = new TreeMap<>();
+        Map<String, Map<EstadoCita, Long>> porDoctor = new TreeMap<>();
+        Map<EstadoCita, Long> porEstado = ceros();
+        jdbcTemplate.query(RANGO_SQL, rs -> {
+            EstadoCita estado = EstadoCita.valueOf(rs.getString("estado"));
+            long total = rs.getLong("total");
+            Date fecha = rs.getDate("fecha");
+            if (fecha != null) {
+                porDia.computeIfAbsent(fecha.toLocalDate(), dia -> ceros()).merge(estado, total, Long::sum);
+            } else {
+                porDoctor.computeIfAbsent(rs.getString("doctor"), doctor -> ceros()).merge(estado, total, Long::sum);
+                porEstado.merge(estado, total, Long::sum);
+            }
+        }, Date.valueOf(desde), Date.valueOf(hasta));
+
+        Long pacientesUnicos = jdbcTemplate.queryForObject(PACIENTES_UNICOS_SQL, Long.class,
+            desde.atStartOfDay(), hasta.plusDays(1).atStartOfDay());
+        Long totalHistorico = jdbcTemplate.queryForObject(TOTAL_SQL, Long.class);
+
+        return new EstadisticasCitasResponse(
+            desde,
+            hasta,
+            suma(porEstado),
+            porEstado,
+            porDia.entrySet().stream()
+                .map(e -> new TotalDia(e.getKey(), suma(e.getValue()), e.getValue()))
+                .toList(),
+            porDoctor.entrySet().stream()
+                .map(e -> new TotalDoctor(e.getKey(), suma(e.getValue()), e.getValue()))
+                .toList(),
+            pacientesUnicos != null ? pacientesUnicos : 0,
+            totalHistorico != null ? totalHistorico : 0
+        );
+    }
+
+    private void aplicar(List<Delta> deltas) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, deltas, deltas.size(), (ps, delta) -> {
+            ps.setDate(1, Date.valueOf(delta.clave().fecha()));
+            ps.setString(2, delta.clave().doctor());
+            ps.setString(3, delta.clave().estado().name());
+            ps.setLong(4, delta.valor());
+        });
+    }
+
+    private static Map<EstadoCita, Long> ceros() {
+        Map<EstadoCita, Long> mapa = new EnumMap<>(EstadoCita.class);
+        for (EstadoCita estado : EstadoCita.values()) {
+            mapa.put(estado, 0L);
+        }
+        return mapa;
+    }
+
+    private static long suma(Map<EstadoCita, Long> porEstado) {
+        return porEstado.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    private record Clave(LocalDate fecha, String doctor, EstadoCita estado) {
+
+        static Clave de(Cita cita, EstadoCita estado) {
+            return new Clave(cita.getFechaHora().toLocalDate(), cita.getDoctor(), estado);
+        }
+    }
+
+    private record Delta(Clave clave, long valor) {}
+}
@@ -0,0 +1,332 @@
+package com.chatbox.citas.service.importacion;
+
+import com.chatbox.citas.constants.AppointmentConstants;
+import com.chatbox.citas.dto.CitaRequestCompleto;
+import com.chatbox.citas.dto.ImportacionCitasResponse;
+import com.chatbox.citas.dto.ImportacionCitasResponse.ErrorFila;
+import com.chatbox.citas.model.Cita;
+import com.chatbox.citas.model.Cita.EstadoCita;
+import com.chatbox.citas.model.Paciente;
+import com.chatbox.citas.repository.CitaRepository;
+import com.chatbox.citas.repository.PacienteRepository;
+import com.chatbox.citas.service.estadistica.EstadisticasCitasService;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import of appointments (with their patients) from CSV or NDJSON
+ *
+ * The body is parsed as a stream and processed in chunks: each chunk looks up its patients
+ * with one IN query per key, then inserts new patients and appointments as JDBC batches in
+ * one transaction. If a chunk fails as a whole its rows are retried one by one, so a single
+ * bad row is reported instead of aborting the file.
+ * Patients are matched by document number, like {@code POST /api/citas/completa}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CitaImportService {
+
+    private final CitaRepository citaRepository;
+    private final PacienteRepository pacienteRepository;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final EstadisticasCitasService estadisticasCitasService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * CSV with a header row naming the {@link CitaRequestCompleto} fields (e.g. nombrePaciente, fechaHora)
+     */
+    public ImportacionCitasResponse importarCsv(InputStream entrada, Charset charset) throws IOException {
+        Resultado resultado = new Resultado();
+        CsvReader csv = new CsvReader(new BufferedReader(new InputStreamReader(entrada, charset)));
+
+        List<String> encabezado = csv.leerRegistro();
+        if (encabezado == null) {
+            return resultado.respuesta();
+        }
+        encabezado = encabezado.stream().map(String::trim).toList();
+
+        List<Fila> lote = new ArrayList<>();
+        int numero = 0;
+        while (true) {
+            Fila fila;
+            try {
+                List<String> campos = csv.leerRegistro();
+                if (campos == null) {
+                    break;
+                }
+                if (campos.size() == 1 && campos.get(0).isBlank()) {
+                    continue;
+                }
+                fila = filaCsv(++numero, encabezado, campos);
+            } catch (CsvReader.RegistroMalformado e) {
+                // The reader already skipped to the next line; report the row and keep going
+                fila = Fila.error(++numero, e.getMessage());
+            }
+            lote.add(fila);
+            if (lote.size() == AppointmentConstants.IMPORTACION_CITAS_LOTE) {
+                procesarLote(lote, resultado);
+                lote.clear();
+            }
+        }
+        procesarLote(lote, resultado);
+
+        return resultado.respuesta();
+    }
+
+    /**
+     * One JSON object per line, with the same fields as {@code POST /api/citas/completa}
+     */
+    public ImportacionCitasResponse importarNdjson(InputStream entrada, Charset charset) throws IOException {
+        Resultado resultado = new Resultado();
+        BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, charset));
+
+        List<Fila> lote = new ArrayList<>();
+        int numero = 0;
+        String linea;
+        while ((linea = lector.readLine()) != null) {
+            if (linea.isBlank()) {
+                continue;
+            }
+            numero++;
+            try {
+                lote.add(Fila.ok(numero, objectMapper.readValue(linea, CitaRequestCompleto.class)));
+            } catch (JsonMappingException e) {
+                lote.add(Fila.error(numero, describir(e)));
+            } catch (IOException e) {
+                lote.add(Fila.error(numero, "JSON inválido"));
+            }
+            if (lote.size() == AppointmentConstants.IMPORTACION_CITAS_LOTE) {
+                procesarLote(lote, resultado);
+                lote.clear();
+            }
+        }
+        procesarLote(lote, resultado);
+
+        return resultado.respuesta();
+    }
+
+    private Fila filaCsv(int numero, List<String> encabezado, List<String> campos) {
+        if (campos.size() != encabezado.size()) {
+            return Fila.error(numero, String.format(
+                "La fila tiene %d columnas y el encabezado %d", campos.size(), encabezado.size()));
+        }
+
+        Map<String, String> valores = new HashMap<>();
+        for (int i = 0; i < campos.size(); i++) {
+            String valor = campos.get(i).trim();
+            valores.put(encabezado.get(i), valor.isEmpty() ? null : valor);
+        }
+
+        try {
+            return Fila.ok(numero, objectMapper.convertValue(valores, CitaRequestCompleto.class));
+        } catch (IllegalArgumentException e) {
+            return Fila.error(numero, e.getCause() instanceof JsonMappingException jme ? describir(jme) : "Fila inválida");
+        }
+    }
+
+    private void procesarLote(List<Fila> filas, Resultado resultado) {
+        List<Fila> validas = new ArrayList<>(filas.size());
+        for (Fila fila : filas) {
+            resultado.filasLeidas++;
+            String error = fila.error() != null ? fila.error() : validar(fila.request());
+            if (error != null) {
+                resultado.agregarError(fila.numero(), error);
+            } else {
+                validas.add(fila);
+            }
+        }
+        if (validas.isEmpty()) {
+            return;
+        }
+
+        try {
+            resultado.sumar(transactionTemplate.execute(status -> guardarLote(validas)));
+        } catch (RuntimeException e) {
+            log.warn("Lote de importación falló ({}), reintentando {} filas una a una", e.getMessage(), validas.size());
+            for (Fila fila : validas) {
+                try {
+                    resultado.sumar(transactionTemplate.execute(status -> guardarLote(List.of(fila))));
+                } catch (RuntimeException ex) {
+                    resultado.agregarError(fila.numero(), "No se pudo guardar: " + causaRaiz(ex).getMessage());
+                }
+            }
+        }
+    }
+
+    private ResultadoLote guardarLote(List<Fila> filas) {
+        Set<String> documentos = filas.stream()
+            .map(fila -> fila.request().getNumeroIdentificacion())
+            .collect(Collectors.toSet());
+        Map<String, Paciente> porDocumento = pacienteRepository.findByNumeroIdentificacionIn(documentos).stream()
+            .collect(Collectors.toMap(Paciente::getNumeroIdentificacion, Function.identity()));
+
+        // Phones are unique too: a new patient cannot take one already in use
+        Set<String> telefonosNuevos = filas.stream()
+            .map(Fila::request)
+            .filter(request -> !porDocumento.containsKey(request.getNumeroIdentificacion()))
+            .map(CitaRequestCompleto::getTelefono)
+            .collect(Collectors.toSet());
+        Set<String> telefonosOcupados = new HashSet<>();
+        if (!telefonosNuevos.isEmpty()) {
+            pacienteRepository.findByTelefonoIn(telefonosNuevos)
+                .forEach(paciente -> telefonosOcupados.add(paciente.getTelefono()));
+        }
+
+        List<Paciente> nuevos = new ArrayList<>();
+        List<Cita> citas = new ArrayList<>(filas.size());
+        List<ErrorFila> errores = new ArrayList<>();
+
+        for (Fila fila : filas) {
+            CitaRequestCompleto request = fila.request();
+            Paciente paciente = porDocumento.get(request.getNumeroIdentificacion());
+            if (paciente == null) {
+                if (!telefonosOcupados.add(request.getTelefono())) {
+                    errores.add(new ErrorFila(fila.numero(),
+                        "El teléfono " + request.getTelefono() + " ya está registrado para otro paciente"));
+                    continue;
+                }
+                paciente = nuevoPaciente(request);
+                porDocumento.put(request.getNumeroIdentificacion(), paciente);
+                nuevos.add(paciente);
+            }
+            citas.add(nuevaCita(paciente, request));
+        }
+
+        pacienteRepository.saveAll(nuevos);
+        citaRepository.saveAll(citas);
+        estadisticasCitasService.registrarNuevas(citas);
+
+        // Keep the persistence context from growing across chunks
+        entityManager.flush();
+        entityManager.clear();
+
+        return new ResultadoLote(citas.size(), nuevos.size(), errores);
+    }
+
+    private String validar(CitaRequestCompleto request) {
+        Set<ConstraintViolation<CitaRequestCompleto>> violaciones = validator.validate(request);
+        if (violaciones.isEmpty()) {
+            return null;
+        }
+        return violaciones.stream()
+            .map(ConstraintViolation::getMessage)
+            .sorted()
+            .collect(Collectors.joining("; "));
+    }
+
+    private static Paciente nuevoPaciente(CitaRequestCompleto request) {
+        Paciente paciente = new Paciente();
+        paciente.setNombre(request.getNombrePaciente());
+        paciente.setTipoIdentificacion(request.getTipoIdentificacion());
+        paciente.setNumeroIdentificacion(request.getNumeroIdentificacion());
+        paciente.setTelefono(request.getTelefono());
+        paciente.setTelefono2(request.getTelefono2());
+        paciente.setEmail(request.getEmail());
+        paciente.setDireccion(request.getDireccion());
+        paciente.setFechaNacimiento(request.getFechaNacimiento());
+        paciente.setEps(request.getEps());
+        return paciente;
+    }
+
+    private static Cita nuevaCita(Paciente paciente, CitaRequestCompleto request) {
+        Cita cita = new Cita();
+        cita.setPaciente(paciente);
+        cita.setFechaHora(request.getFechaHora());
+        cita.setDoctor(request.getDoctor());
+        cita.setEstado(EstadoCita.PROGRAMADA);
+        cita.setRecordatorio24hEnviado(false);
+        cita.setRecordatorio1hEnviado(false);
+        return cita;
+    }
+
+    private static String describir(JsonMappingException e) {
+        String campo = e.getPath().stream()
+            .map(JsonMappingException.Reference::getFieldName)
+            .filter(nombre -> nombre != null)
+            .collect(Collectors.joining("."));
+        return campo.isEmpty() ? "Formato inválido" : "Valor inválido en '" + campo + "'";
+    }
+
+    private static Throwable causaRaiz(Throwable e) {
+        Throwable causa = e;
+        while (causa.getCause() != null && causa.getCause() != causa) {
+            causa = causa.getCause();
+        }
+        return causa;
+    }
+
+    /**
+     * A parsed input row, or the reason it could not be parsed
+     */
+    private record Fila(int numero, CitaRequestCompleto request, String error) {
+
+        static Fila ok(int numero, CitaRequestCompleto request) {
+            return new Fila(numero, request, null);
+        }
+
+        static Fila error(int numero, String error) {
+            return new Fila(numero, null, error);
+        }
+    }
+
+    private record ResultadoLote(int citas, int pacientes, List<ErrorFila> errores) {}
+
+    /**
+     * Running totals for one import
+     */
+    private static final class Resultado {
+        private int filasLeidas;
+        private int citasImportadas;
+        private int pacientesCreados;
+        private int erroresOmitidos;
+        private final List<ErrorFila> errores = new ArrayList<>();
+
+        void sumar(ResultadoLote lote) {
+            citasImportadas += lote.citas();
+            pacientesCreados += lote.pacientes();
+            lote.errores().forEach(error -> agregarError(error.fila(), error.mensaje()));
+        }
+
+        void agregarError(int fila, String mensaje) {
+            if (errores.size() < AppointmentConstants.IMPORTACION_MAX_ERRORES) {
+                errores.add(new ErrorFila(fila, mensaje));
+            } else {
+                erroresOmitidos++;
+            }
+        }
+
+        ImportacionCitasResponse respuesta() {
+            // Save-time errors are found after the validation errors of the same chunk
+            errores.sort(Comparator.comparingInt(ErrorFila::fila));
+            return new ImportacionCitasResponse(filasLeidas, citasImportadas, pacientesCreados, errores, erroresOmitidos);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.chatbox.citas.service.importacion;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming RFC 4180 reader: comma separated, double-quoted fields with "" escapes,
+ * quoted fields may span lines, LF or CRLF line endings
+ *
+ * A quote that is never closed (or a quoted field longer than {@link #MAX_CAMPO_ENTRE_COMILLAS})
+ * fails only its own record: the reader resynchronizes at the line after the opening quote.
+ */
+final class CsvReader {
+
+    static final int MAX_CAMPO_ENTRE_COMILLAS = 64 * 1024;
+
+    private final Reader reader;
+    private int siguiente = -2;
+    private String pendiente = "";
+    private int posicionPendiente;
+
+    CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return the fields of the next record, or null at end of input
+     * @throws RegistroMalformado if the record has an unterminated quoted field; the next call
+     *                            continues at the line after the one where the quote opened
+     */
+    List<String> leerRegistro() throws IOException {
+        int c = leer();
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        StringBuilder crudo = new StringBuilder();
+        boolean entreComillas = false;
+
+        while (true) {
+            if (entreComillas) {
+                if (c == -1 || crudo.length() > MAX_CAMPO_ENTRE_COMILLAS) {
+                    resincronizar(crudo);
+                    throw new RegistroMalformado(c == -1
+                        ? "Comillas sin cerrar"
+                        : "Campo entre comillas de más de " + MAX_CAMPO_ENTRE_COMILLAS + " caracteres");
+                }
+                crudo.append((char) c);
+                if (c == '"') {
+                    int despues = leer();
+                    if (despues == '"') {
+                        crudo.append('"');
+                        campo.append('"');
+                    } else {
+                        entreComillas = false;
+                        c = despues;
+                        continue;
+                    }
+                } else {
+                    campo.append((char) c);
+                }
+            } else if (c == '"' && campo.isEmpty()) {
+                entreComillas = true;
+                crudo.setLength(0);
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                break;
+            } else if (c == '\r') {
+                int despues = leer();
+                if (despues != '\n') {
+                    devolver(despues);
+                }
+                break;
+            } else {
+                campo.append((char) c);
+            }
+            c = leer();
+        }
+
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    /**
+     * Puts back what was read after the opening quote's line so the next record starts there;
+     * if that line has not ended yet, skips the rest of it
+     */
+    private void resincronizar(CharSequence crudo) throws IOException {
+        for (int i = 0; i < crudo.length(); i++) {
+            char c = crudo.charAt(i);
+            if (c == '\n' || c == '\r') {
+                int inicio = c == '\r' && i + 1 < crudo.length() && crudo.charAt(i + 1) == '\n' ? i + 2 : i + 1;
+                pendiente = crudo.subSequence(inicio, crudo.length()) + pendiente.substring(posicionPendiente);
+                posicionPendiente = 0;
+                return;
+            }
+        }
+        int c;
+        do {
+            c = leer();
+        } while (c != '\n' && c != '\r' && c != -1);
+        if (c == '\r') {
+            int despues = leer();
+            if (despues != '\n') {
+                devolver(despues);
+            }
+        }
+    }
+
+    private int leer() throws IOException {
+        if (siguiente != -2) {
+            int c = siguiente;
+            siguiente = -2;
+            return c;
+        }
+        if (posicionPendiente < pendiente.length()) {
+            return pendiente.charAt(posicionPendiente++);
+        }
+        return reader.read();
+    }
+
+    private void devolver(int c) {
+        siguiente = c;
+    }
+
+    /**
+     * A record that cannot be parsed; the reader is positioned past it
+     */
+    static final class RegistroMalformado extends IOException {
+        RegistroMalformado(String mensaje) {
+            super(mensaje);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.chatbox.citas.service.paciente;
+
+import com.chatbox.citas.model.Paciente;
+
+/**
+ * Published inside the transaction that creates or saves a patient
+ * @param clavesCambiadas the phone or document may differ from the cached entry, so old keys must go
+ */
+public record PacienteGuardadoEvent(Paciente paciente, boolean clavesCambiadas) {}
@@ -0,0 +1,145 @@
+package com.chatbox.citas.service.paciente;
+
+import com.chatbox.citas.model.Paciente;
+import com.chatbox.citas.repository.PacienteRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Read-through cache of patient summaries keyed by normalized phone and by document number
+ *
+ * Both maps are bounded Caffeine caches (W-TinyLFU eviction), so frequent returning patients
+ * stay cached while one-off lookups do not push them out. Only hits are cached: a patient
+ * created elsewhere (bulk import, another instance) is found on the next lookup. Changes made
+ * through {@code PacienteService} replace the cached entry once their transaction commits;
+ * changes made by other instances are picked up when the entry expires.
+ */
+@Component
+public class PacienteLookupCache {
+
+    private static final String PREFIJO_PAIS = "57";
+    private static final int DIGITOS_CELULAR = 10;
+
+    private final PacienteRepository pacienteRepository;
+    private final Cache<String, PacienteResumen> porTelefono;
+    private final Cache<String, PacienteResumen> porDocumento;
+
+    public PacienteLookupCache(
+        PacienteRepository pacienteRepository,
+        @Value("${paciente.cache.max-size:10000}") long maxSize,
+        @Value("${paciente.cache.ttl-minutes:30}") long ttlMinutes
+    ) {
+        if (maxSize <= 0 || ttlMinutes <= 0) {
+            throw new IllegalStateException("paciente.cache.max-size y ttl-minutes deben ser positivos");
+        }
+        this.pacienteRepository = pacienteRepository;
+        this.porTelefono = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+            .build();
+        this.porDocumento = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+            .build();
+    }
+
+    /**
+     * Accepts the phone as stored (3001234567) or as WhatsApp sends it (573001234567)
+     */
+    public Optional<PacienteResumen> buscarPorTelefono(String telefono) {
+        String clave = normalizarTelefono(telefono);
+        if (clave == null) {
+            return Optional.empty();
+        }
+        PacienteResumen resumen = porTelefono.getIfPresent(clave);
+        if (resumen != null) {
+            return Optional.of(resumen);
+        }
+        // Phones saved through the API may keep their original formatting
+        return pacienteRepository.findByTelefono(clave)
+            .or(() -> clave.equals(telefono) ? Optional.empty() : pacienteRepository.findByTelefono(telefono))
+            .map(this::registrar);
+    }
+
+    public Optional<PacienteResumen> buscarPorNumeroIdentificacion(String numeroIdentificacion) {
+        if (numeroIdentificacion == null || numeroIdentificacion.isBlank()) {
+            return Optional.empty();
+        }
+        PacienteResumen resumen = porDocumento.getIfPresent(numeroIdentificacion);
+        if (resumen != null) {
+            return Optional.of(resumen);
+        }
+        return pacienteRepository.findByNumeroIdentificacion(numeroIdentificacion).map(this::registrar);
+    }
+
+    /**
+     * Outside a transaction the save has already committed, so the entry is replaced right away
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPacienteGuardado(PacienteGuardadoEvent event) {
+        if (event.clavesCambiadas()) {
+            actualizar(event.paciente());
+        } else {
+            registrar(event.paciente());
+        }
+    }
+
+    /**
+     * Cache the current state of a patient just read or written
+     */
+    public PacienteResumen registrar(Paciente paciente) {
+        PacienteResumen resumen = PacienteResumen.de(paciente);
+        String telefono = normalizarTelefono(resumen.telefono());
+        if (telefono != null) {
+            porTelefono.put(telefono, resumen);
+        }
+        if (resumen.numeroIdentificacion() != null) {
+            porDocumento.put(resumen.numeroIdentificacion(), resumen);
+        }
+        return resumen;
+    }
+
+    /**
+     * Replace the entries of a patient whose phone or document may have changed
+     * Scans the cache for the old keys; patient updates are rare compared to lookups
+     */
+    public void actualizar(Paciente paciente) {
+        invalidar(paciente.getId());
+        registrar(paciente);
+    }
+
+    public void invalidar(Long pacienteId) {
+        if (pacienteId == null) {
+            return;
+        }
+        porTelefono.asMap().values().removeIf(resumen -> pacienteId.equals(resumen.id()));
+        porDocumento.asMap().values().removeIf(resumen -> pacienteId.equals(resumen.id()));
+    }
+
+    /**
+     * Digits only, without the Colombian country code, or null when nothing is left
+     */
+    static String normalizarTelefono(String telefono) {
+        if (telefono == null) {
+            return null;
+        }
+        StringBuilder digitos = new StringBuilder(telefono.length());
+        for (int i = 0; i < telefono.length(); i++) {
+            char c = telefono.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitos.append(c);
+            }
+        }
+        if (digitos.length() == PREFIJO_PAIS.length() + DIGITOS_CELULAR && digitos.indexOf(PREFIJO_PAIS) == 0) {
+            digitos.delete(0, PREFIJO_PAIS.length());
+        }
+        return digitos.isEmpty() ? null : digitos.toString();
+    }
+}
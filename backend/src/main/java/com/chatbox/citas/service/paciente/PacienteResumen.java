@@ -0,0 +1,46 @@
+package com.chatbox.citas.service.paciente;
+
+import com.chatbox.citas.model.Paciente;
+
+import java.time.LocalDate;
+
+/**
+ * Immutable snapshot of the patient fields the booking flows need
+ */
+public record PacienteResumen(
+    Long id,
+    String nombre,
+    String tipoIdentificacion,
+    String numeroIdentificacion,
+    String telefono,
+    String telefono2,
+    String email,
+    String direccion,
+    LocalDate fechaNacimiento,
+    String eps
+) {
+
+    public static PacienteResumen de(Paciente paciente) {
+        return new PacienteResumen(
+            paciente.getId(),
+            paciente.getNombre(),
+            paciente.getTipoIdentificacion(),
+            paciente.getNumeroIdentificacion(),
+            paciente.getTelefono(),
+            paciente.getTelefono2(),
+            paciente.getEmail(),
+            paciente.getDireccion(),
+            paciente.getFechaNacimiento(),
+            paciente.getEps()
+        );
+    }
+
+    /**
+     * Whether every field the WhatsApp flow asks for is on file, so those steps can be skipped
+     * Patients created through {@code POST /api/citas} only have a name and a phone
+     */
+    public boolean perfilCompleto() {
+        return nombre != null && tipoIdentificacion != null && numeroIdentificacion != null
+            && telefono != null && direccion != null && fechaNacimiento != null && eps != null;
+    }
+}
@@ -0,0 +1,93 @@
+package com.chatbox.citas.service.traza;
+
+import com.chatbox.citas.dto.TrazaResponse;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One traced webhook turn: its total duration, a few attributes and the spans recorded while it ran
+ *
+ * Spans are timed relative to the start of the trace. A span may still be added after the trace
+ * ends (e.g. from a callback wrapped with TrazaContext.propagar), so everything is guarded by the trace itself.
+ */
+public final class Traza {
+
+    // A runaway turn keeps its first spans and counts the rest
+    private static final int MAX_TRAMOS = 200;
+
+    private final String id;
+    private final String nombre;
+    private final Instant inicio;
+    private final long inicioNanos;
+    private long finNanos = -1;
+    private boolean error;
+    private final Map<String, String> atributos = new LinkedHashMap<>();
+    private final List<TrazaResponse.Tramo> tramos = new ArrayList<>();
+    private int tramosOmitidos;
+
+    Traza(String nombre) {
+        this.id = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        this.nombre = nombre;
+        this.inicio = Instant.now();
+        this.inicioNanos = System.nanoTime();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public synchronized void anotar(String clave, String valor) {
+        atributos.put(clave, valor);
+    }
+
+    synchronized void marcarError() {
+        error = true;
+    }
+
+    synchronized void terminar() {
+        if (finNanos < 0) {
+            finNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Record a finished span from its own {@link System#nanoTime()} bounds
+     */
+    synchronized void agregarTramo(String nombreTramo, long desdeNanos, long hastaNanos, boolean conError) {
+        if (tramos.size() >= MAX_TRAMOS) {
+            tramosOmitidos++;
+            return;
+        }
+        tramos.add(new TrazaResponse.Tramo(nombreTramo, milis(desdeNanos - inicioNanos),
+            milis(hastaNanos - desdeNanos), conError));
+    }
+
+    /**
+     * Milliseconds from the start of the trace to its end, or to its last span if that ends later
+     */
+    synchronized double duracionMs() {
+        double total = milis((finNanos < 0 ? System.nanoTime() : finNanos) - inicioNanos);
+        for (TrazaResponse.Tramo tramo : tramos) {
+            total = Math.max(total, tramo.inicioMs() + tramo.duracionMs());
+        }
+        return total;
+    }
+
+    synchronized TrazaResponse respuesta() {
+        List<TrazaResponse.Tramo> ordenados = new ArrayList<>(tramos);
+        ordenados.sort(Comparator.comparingDouble(TrazaResponse.Tramo::inicioMs));
+        return new TrazaResponse(id, nombre, inicio, duracionMs(), finNanos < 0, error,
+            new LinkedHashMap<>(atributos), ordenados, tramosOmitidos);
+    }
+
+    private static double milis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,89 @@
+package com.chatbox.citas.service.traza;
+
+import com.chatbox.citas.dto.TrazaResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-process exporter keeping the last {@code whatsapp.traces.capacity} WhatsApp turns
+ *
+ * A fixed ring: recording a trace is one slot write, and the oldest trace is overwritten
+ * once the ring is full. Read through {@code /actuator/traces}.
+ */
+@Component
+public class TrazaBuffer {
+
+    private final AtomicReferenceArray<Traza> anillo;
+    private final AtomicLong siguiente = new AtomicLong();
+
+    public TrazaBuffer(@Value("${whatsapp.traces.capacity:500}") int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalStateException("whatsapp.traces.capacity debe ser positivo");
+        }
+        this.anillo = new AtomicReferenceArray<>(capacidad);
+    }
+
+    /**
+     * Start a trace bound to the calling thread; it is visible while still running
+     */
+    public Traza iniciar(String nombre) {
+        Traza traza = abrir(nombre);
+        TrazaContext.asociar(traza);
+        return traza;
+    }
+
+    /**
+     * Start a trace without binding it to any thread, for handlers that hop between threads;
+     * code runs under it through {@link TrazaContext#con}
+     */
+    public Traza abrir(String nombre) {
+        Traza traza = new Traza(nombre);
+        anillo.set((int) (siguiente.getAndIncrement() % anillo.length()), traza);
+        return traza;
+    }
+
+    /**
+     * End a trace and unbind it from the calling thread
+     */
+    public void terminar(Traza traza, boolean error) {
+        if (error) {
+            traza.marcarError();
+        }
+        traza.terminar();
+        TrazaContext.liberar();
+    }
+
+    /**
+     * Most recent traces first
+     * @param minMs  only traces lasting at least this long
+     * @param limite maximum number of traces returned
+     */
+    public List<TrazaResponse> recientes(double minMs, int limite) {
+        long ultimo = siguiente.get();
+        long primero = Math.max(0, ultimo - anillo.length());
+        List<TrazaResponse> resultado = new ArrayList<>();
+        for (long i = ultimo - 1; i >= primero && resultado.size() < limite; i--) {
+            Traza traza = anillo.get((int) (i % anillo.length()));
+            if (traza != null && traza.duracionMs() >= minMs) {
+                resultado.add(traza.respuesta());
+            }
+        }
+        return resultado;
+    }
+
+    public Optional<TrazaResponse> buscar(String id) {
+        for (int i = 0; i < anillo.length(); i++) {
+            Traza traza = anillo.get(i);
+            if (traza != null && traza.getId().equals(id)) {
+                return Optional.of(traza.respuesta());
+            }
+        }
+        return Optional.empty();
+    }
+}
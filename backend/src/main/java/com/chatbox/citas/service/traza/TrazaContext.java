@@ -0,0 +1,135 @@
+package com.chatbox.citas.service.traza;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound trace of the WhatsApp turn being handled
+ *
+ * A trace is started by {@link TrazaBuffer#iniciar} on the webhook thread; any code running on that
+ * thread can then open spans without having the trace passed in. Every method is a no-op when the
+ * current thread has no trace, so instrumented code also runs unchanged from schedulers and tests.
+ */
+public final class TrazaContext {
+
+    private static final ThreadLocal<Traza> ACTUAL = new ThreadLocal<>();
+
+    private TrazaContext() {
+        // Utility class - prevent instantiation
+    }
+
+    static void asociar(Traza traza) {
+        ACTUAL.set(traza);
+    }
+
+    static void liberar() {
+        ACTUAL.remove();
+    }
+
+    /**
+     * Open a span, to be closed with try-with-resources
+     */
+    public static Tramo abrir(String nombre) {
+        Traza traza = ACTUAL.get();
+        return traza == null ? Tramo.NINGUNO : new Tramo(traza, nombre, System.nanoTime());
+    }
+
+    /**
+     * Record a span that has already finished, ending now and lasting {@code duracionNanos}
+     */
+    public static void registrar(String nombre, long duracionNanos, boolean error) {
+        Traza traza = ACTUAL.get();
+        if (traza != null) {
+            long fin = System.nanoTime();
+            traza.agregarTramo(nombre, fin - duracionNanos, fin, error);
+        }
+    }
+
+    /**
+     * Record a span that has already finished on a given trace, for work completing off the traced
+     * thread; does nothing when {@code traza} is null
+     */
+    public static void registrar(Traza traza, String nombre, long duracionNanos, boolean error) {
+        if (traza != null) {
+            long fin = System.nanoTime();
+            traza.agregarTramo(nombre, fin - duracionNanos, fin, error);
+        }
+    }
+
+    /**
+     * Attach an attribute to the current trace
+     */
+    public static void anotar(String clave, String valor) {
+        Traza traza = ACTUAL.get();
+        if (traza != null) {
+            traza.anotar(clave, valor);
+        }
+    }
+
+    /**
+     * Wrap a callback so its spans are added to the current trace, whichever thread runs it
+     */
+    public static <T> Consumer<T> propagar(Consumer<T> accion) {
+        Traza traza = ACTUAL.get();
+        if (traza == null) {
+            return accion;
+        }
+        return valor -> con(traza, () -> {
+            accion.accept(valor);
+            return null;
+        });
+    }
+
+    /**
+     * Run {@code accion} with {@code traza} bound to the calling thread, restoring the previous binding after
+     */
+    public static <T> T con(Traza traza, Supplier<T> accion) {
+        Traza previa = ACTUAL.get();
+        ACTUAL.set(traza);
+        try {
+            return accion.get();
+        } finally {
+            if (previa == null) {
+                ACTUAL.remove();
+            } else {
+                ACTUAL.set(previa);
+            }
+        }
+    }
+
+    /**
+     * An open span; closing it records it on its trace
+     */
+    public static final class Tramo implements AutoCloseable {
+
+        private static final Tramo NINGUNO = new Tramo(null, null, 0);
+
+        private final Traza traza;
+        private final String nombre;
+        private final long inicioNanos;
+        private boolean error;
+
+        private Tramo(Traza traza, String nombre, long inicioNanos) {
+            this.traza = traza;
+            this.nombre = nombre;
+            this.inicioNanos = inicioNanos;
+        }
+
+        /**
+         * Flag the span (and its trace) as failed
+         */
+        public void error() {
+            if (traza != null) {
+                error = true;
+                traza.marcarError();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (traza != null) {
+                traza.agregarTramo(nombre, inicioNanos, System.nanoTime(), error);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.chatbox.citas.service.traza;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records every Spring Data repository call made during a traced turn as a {@code db} span
+ * (e.g. {@code db CitaRepository.findProximasResponsesByPacienteId})
+ */
+@Component
+public class TrazaRepositoryPostProcessor implements BeanPostProcessor {
+
+    private static final RepositoryMethodInvocationListener LISTENER = invocacion -> TrazaContext.registrar(
+        "db " + invocacion.getRepositoryInterface().getSimpleName() + "." + invocacion.getMethod().getName(),
+        invocacion.getDuration(TimeUnit.NANOSECONDS),
+        invocacion.getResult() != null
+            && invocacion.getResult().getState() == RepositoryMethodInvocationListener.RepositoryMethodInvocationResult.State.ERROR);
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(LISTENER));
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,37 @@
+package com.chatbox.citas.service.traza;
+
+import com.chatbox.citas.dto.TrazaResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/traces?minMs=500&limit=20} lists the most recent WhatsApp turns lasting at least
+ * {@code minMs}; {@code GET /actuator/traces/{id}} returns a single one
+ */
+@Component
+@Endpoint(id = "traces")
+@RequiredArgsConstructor
+public class TrazasEndpoint {
+
+    private static final int LIMITE_POR_DEFECTO = 50;
+
+    private final TrazaBuffer trazaBuffer;
+
+    @ReadOperation
+    public List<TrazaResponse> trazas(@Nullable Double minMs, @Nullable Integer limit) {
+        return trazaBuffer.recientes(
+            minMs != null ? minMs : 0,
+            limit != null && limit > 0 ? limit : LIMITE_POR_DEFECTO);
+    }
+
+    @ReadOperation
+    public TrazaResponse traza(@Selector String id) {
+        return trazaBuffer.buscar(id).orElse(null);
+    }
+}
@@ -0,0 +1,235 @@
+package com.chatbox.citas.service.whatsapp;
+
+import com.chatbox.citas.service.whatsapp.ConversationStateService.EstadoConversacion;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live funnel of WhatsApp conversations since this instance started
+ *
+ * Every counter is a {@link LongAdder} indexed by state ordinal, so recording a message or a
+ * transition never blocks the message path; the summary is computed when it is read.
+ * Reply times are kept as a fixed histogram per state, from which the median is estimated.
+ * Counts are per instance: with the JDBC store, sessions resumed after a restart were never
+ * seen entering their state and are not included in the live figures.
+ */
+@Component
+public class ConversationFunnel {
+
+    private static final EstadoConversacion[] ESTADOS = EstadoConversacion.values();
+
+    // Upper bounds (seconds) of the reply time buckets; one extra bucket holds anything slower
+    private static final long[] LIMITES_RESPUESTA_S = {1, 2, 5, 10, 20, 30, 60, 120, 300, 600, 1800};
+
+    // Messages per second are averaged over this many whole seconds
+    private static final int VENTANA_S = 60;
+
+    private final LongAdder sesionesIniciadas = new LongAdder();
+    private final LongAdder mensajes = new LongAdder();
+    private final LongAdder[] entradas = adders(ESTADOS.length);
+    private final LongAdder[] salidas = adders(ESTADOS.length);
+    private final LongAdder[] cerradas = adders(ESTADOS.length);
+    private final LongAdder[] agendadas = adders(ESTADOS.length);
+    private final LongAdder[] expiradas = adders(ESTADOS.length);
+    private final LongAdder[][] respuestas = new LongAdder[ESTADOS.length][];
+
+    // Ring of per-second message counts; a slot is reset when its second comes round again
+    private final LongAdder[] porSegundo = adders(VENTANA_S + 1);
+    private final AtomicLongArray segundoDeSlot = new AtomicLongArray(VENTANA_S + 1);
+
+    public ConversationFunnel() {
+        for (int i = 0; i < ESTADOS.length; i++) {
+            respuestas[i] = adders(LIMITES_RESPUESTA_S.length + 1);
+        }
+    }
+
+    /**
+     * A new session started in {@link EstadoConversacion#MENU}
+     */
+    public void sesionIniciada() {
+        sesionesIniciadas.increment();
+        entradas[EstadoConversacion.MENU.ordinal()].increment();
+    }
+
+    /**
+     * A message arrived while the session was in {@code estado}
+     * @param esperaMs time since the previous message of the session, negative for a new session
+     */
+    public void mensaje(EstadoConversacion estado, long esperaMs) {
+        mensajes.increment();
+        contarSegundo(System.currentTimeMillis() / 1000);
+        if (esperaMs >= 0) {
+            respuestas[estado.ordinal()][bucket(esperaMs)].increment();
+        }
+    }
+
+    /**
+     * A message moved the session from one state to another (back and restart commands included)
+     */
+    public void transicion(EstadoConversacion desde, EstadoConversacion hacia) {
+        if (desde != hacia) {
+            salidas[desde.ordinal()].increment();
+            entradas[hacia.ordinal()].increment();
+        }
+    }
+
+    /**
+     * The session was closed while handling a message received in {@code estado}
+     */
+    public void cerrada(EstadoConversacion estado) {
+        cerradas[estado.ordinal()].increment();
+    }
+
+    /**
+     * The session booked an appointment; it is closed right after, see {@link #cerrada}
+     */
+    public void citaAgendada(EstadoConversacion estado) {
+        agendadas[estado.ordinal()].increment();
+    }
+
+    /**
+     * The session timed out while in {@code estado}
+     */
+    public void expirada(EstadoConversacion estado) {
+        expiradas[estado.ordinal()].increment();
+    }
+
+    public Resumen resumen() {
+        List<Paso> pasos = new ArrayList<>(ESTADOS.length);
+        long totalExpiradas = 0;
+        long totalAgendadas = 0;
+        for (EstadoConversacion estado : ESTADOS) {
+            int i = estado.ordinal();
+            long entraron = entradas[i].sum();
+            long avanzaron = salidas[i].sum();
+            long cerraron = cerradas[i].sum();
+            long agendaron = agendadas[i].sum();
+            long expiraron = expiradas[i].sum();
+            totalExpiradas += expiraron;
+            totalAgendadas += agendaron;
+
+            // Closures that did not end in a booking, plus timeouts
+            long abandonos = cerraron - agendaron + expiraron;
+            pasos.add(new Paso(
+                estado,
+                Math.max(0, entraron - avanzaron - cerraron - expiraron),
+                entraron,
+                avanzaron,
+                abandonos,
+                expiraron,
+                entraron > 0 ? (double) abandonos / entraron : 0,
+                medianaRespuestaMs(respuestas[i])
+            ));
+        }
+        return new Resumen(sesionesIniciadas.sum(), totalAgendadas, totalExpiradas,
+            mensajes.sum(), mensajesPorSegundo(), pasos);
+    }
+
+    private void contarSegundo(long segundo) {
+        int slot = (int) (segundo % porSegundo.length);
+        long anterior = segundoDeSlot.get(slot);
+        if (anterior != segundo && segundoDeSlot.compareAndSet(slot, anterior, segundo)) {
+            // Increments racing with the reset may be lost; the rate is an estimate
+            porSegundo[slot].reset();
+        }
+        porSegundo[slot].increment();
+    }
+
+    /**
+     * Average over the last {@link #VENTANA_S} whole seconds, the current second excluded
+     */
+    private double mensajesPorSegundo() {
+        long actual = System.currentTimeMillis() / 1000;
+        long total = 0;
+        for (int slot = 0; slot < porSegundo.length; slot++) {
+            long segundo = segundoDeSlot.get(slot);
+            if (segundo < actual && segundo >= actual - VENTANA_S) {
+                total += porSegundo[slot].sum();
+            }
+        }
+        return (double) total / VENTANA_S;
+    }
+
+    private static int bucket(long esperaMs) {
+        for (int i = 0; i < LIMITES_RESPUESTA_S.length; i++) {
+            if (esperaMs <= LIMITES_RESPUESTA_S[i] * 1000) {
+                return i;
+            }
+        }
+        return LIMITES_RESPUESTA_S.length;
+    }
+
+    /**
+     * Median interpolated inside its bucket; null without samples. Reported at the last
+     * bound when it falls in the overflow bucket.
+     */
+    private static Long medianaRespuestaMs(LongAdder[] buckets) {
+        long[] cuentas = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cuentas[i] = buckets[i].sum();
+            total += cuentas[i];
+        }
+        if (total == 0) {
+            return null;
+        }
+
+        double mitad = total / 2.0;
+        long acumulado = 0;
+        for (int i = 0; i < LIMITES_RESPUESTA_S.length; i++) {
+            if (acumulado + cuentas[i] >= mitad) {
+                long desde = i == 0 ? 0 : LIMITES_RESPUESTA_S[i - 1] * 1000;
+                long hasta = LIMITES_RESPUESTA_S[i] * 1000;
+                return desde + Math.round((hasta - desde) * (mitad - acumulado) / cuentas[i]);
+            }
+            acumulado += cuentas[i];
+        }
+        return LIMITES_RESPUESTA_S[LIMITES_RESPUESTA_S.length - 1] * 1000;
+    }
+
+    private static LongAdder[] adders(int cantidad) {
+        LongAdder[] resultado = new LongAdder[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            resultado[i] = new LongAdder();
+        }
+        return resultado;
+    }
+
+    /**
+     * Funnel totals since startup
+     * @param mensajesPorSegundo average over the last minute
+     */
+    public record Resumen(
+        long sesionesIniciadas,
+        long citasAgendadas,
+        long sesionesExpiradas,
+        long mensajes,
+        double mensajesPorSegundo,
+        List<Paso> pasos
+    ) {}
+
+    /**
+     * One conversation step
+     * @param activas            sessions currently waiting at this step
+     * @param entradas           times a session reached this step (re-entries via VOLVER included)
+     * @param avances            times a session left this step for another one
+     * @param abandonos          sessions that ended here without booking, by closure or timeout
+     * @param expiradas          the timeouts among {@code abandonos}
+     * @param tasaAbandono       {@code abandonos / entradas}
+     * @param medianaRespuestaMs median time a patient took to answer this step, null without data
+     */
+    public record Paso(
+        EstadoConversacion estado,
+        long activas,
+        long entradas,
+        long avances,
+        long abandonos,
+        long expiradas,
+        double tasaAbandono,
+        Long medianaRespuestaMs
+    ) {}
+}
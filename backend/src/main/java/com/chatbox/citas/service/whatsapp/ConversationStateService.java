@@ -1,13 +1,19 @@
 package com.chatbox.citas.service.whatsapp;
 
+import com.chatbox.citas.config.WhatsAppConfig;
+import com.chatbox.citas.constants.AppointmentConstants;
 import com.chatbox.citas.constants.WhatsAppConstants;
+import com.chatbox.citas.service.whatsapp.store.ConversationStore;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service responsible for managing conversation state and timeouts
@@ -17,36 +23,86 @@ import java.util.concurrent.ConcurrentHashMap;
 @Service
 public class ConversationStateService {
 
-    // Active conversations with timestamps
-    private final ConcurrentHashMap<String, ConversacionState> conversaciones = new ConcurrentHashMap<>();
+    // Active conversations (in memory by default, see whatsapp.conversation.store)
+    private final ConversationStore conversaciones;
 
     // Processed message IDs for deduplication (expire after 5 minutes)
-    private final ConcurrentHashMap<String, Long> mensajesProcesados = new ConcurrentHashMap<>();
+    private final MessageIdDeduplicator mensajesProcesados;
+
+    // Loads the sender's profile in the background when a session starts
+    private final PerfilPrefetcher perfilPrefetcher;
+
+    // Counts session starts and timeouts per state
+    private final ConversationFunnel conversationFunnel;
+
+    public ConversationStateService(
+        WhatsAppConfig config,
+        ConversationStore conversationStore,
+        PerfilPrefetcher perfilPrefetcher,
+        ConversationFunnel conversationFunnel
+    ) {
+        this.conversaciones = conversationStore;
+        this.perfilPrefetcher = perfilPrefetcher;
+        this.conversationFunnel = conversationFunnel;
+        this.mensajesProcesados = new MessageIdDeduplicator(
+            config.getDedupCapacity(),
+            config.getDedupMaxProbe(),
+            WhatsAppConstants.MESSAGE_EXPIRE_MS
+        );
+    }
 
     /**
      * Get or create a conversation state for a phone number
+     * An expired conversation that the sweeper has not removed yet is replaced by a new one;
+     * every new session starts warming up the sender's profile
      */
     public ConversacionState getOrCreateConversacion(String telefono) {
-        ConversacionState estado = conversaciones.computeIfAbsent(
-            telefono,
-            k -> new ConversacionState(EstadoConversacion.MENU)
-        );
-        estado.updateActivity();
-        return estado;
+        long ahora = System.currentTimeMillis();
+        ConversacionState actual = conversaciones.buscar(telefono).orElse(null);
+        if (actual != null && !actual.isExpired(ahora, WhatsAppConstants.CONVERSATION_TIMEOUT_MS)) {
+            actual.updateActivity();
+            return actual;
+        }
+        if (actual != null) {
+            conversationFunnel.expirada(actual.getEstado());
+        }
+        perfilPrefetcher.iniciar(telefono);
+        conversationFunnel.sesionIniciada();
+        return new ConversacionState(EstadoConversacion.MENU);
     }
 
     /**
      * Get existing conversation state without updating activity
      */
     public Optional<ConversacionState> getConversacion(String telefono) {
-        return Optional.ofNullable(conversaciones.get(telefono));
+        long ahora = System.currentTimeMillis();
+        return conversaciones.buscar(telefono)
+            .filter(estado -> !estado.isExpired(ahora, WhatsAppConstants.CONVERSATION_TIMEOUT_MS));
+    }
+
+    /**
+     * Persist a conversation after a message was processed
+     * Conversations closed while processing the message are not stored again
+     */
+    public void guardarConversacion(String telefono, ConversacionState estado) {
+        if (!estado.isFinalizada()) {
+            conversaciones.guardar(telefono, estado);
+        }
+    }
+
+    /**
+     * Close a conversation that is being processed so it is not stored again
+     */
+    public void finalizarConversacion(String telefono, ConversacionState estado) {
+        estado.finalizar();
+        conversaciones.eliminar(telefono);
     }
 
     /**
      * Remove a conversation state
      */
     public void removeConversacion(String telefono) {
-        conversaciones.remove(telefono);
+        conversaciones.eliminar(telefono);
     }
 
     /**
@@ -54,63 +110,48 @@ public class ConversationStateService {
      * @return true if the message should be processed (not duplicate), false otherwise
      */
     public boolean shouldProcessMessage(String messageId) {
-        Long tiempoProcesado = mensajesProcesados.get(messageId);
-        long ahora = System.currentTimeMillis();
-
-        if (tiempoProcesado != null && (ahora - tiempoProcesado) < WhatsAppConstants.MESSAGE_EXPIRE_MS) {
+        // Marks the message as processed when it is new
+        if (!mensajesProcesados.marcarSiNuevo(messageId, System.currentTimeMillis())) {
             log.info("⚠️ Mensaje duplicado ignorado: {}", messageId);
             return false;
         }
-
-        // Mark message as processed
-        mensajesProcesados.put(messageId, ahora);
         return true;
     }
 
     /**
      * Clean up expired conversations
+     * Runs in the background so the message path never scans all sessions
      * @return number of conversations removed
      */
+    @Scheduled(
+        fixedDelay = WhatsAppConstants.CLEANUP_INTERVAL_MINUTES,
+        initialDelay = WhatsAppConstants.CLEANUP_INTERVAL_MINUTES,
+        timeUnit = TimeUnit.MINUTES
+    )
     public int limpiarConversacionesExpiradas() {
-        int antes = conversaciones.size();
-        int timeoutMinutes = (int) (WhatsAppConstants.CONVERSATION_TIMEOUT_MS / 60000);
-
-        conversaciones.entrySet().removeIf(entry ->
-            entry.getValue().isExpired(timeoutMinutes)
-        );
-
-        int despues = conversaciones.size();
-        int eliminadas = antes - despues;
+        long limite = System.currentTimeMillis() - WhatsAppConstants.CONVERSATION_TIMEOUT_MS;
+        int eliminadas = conversaciones.eliminarExpiradas(limite,
+            expirada -> conversationFunnel.expirada(expirada.getEstado()));
 
         if (eliminadas > 0) {
-            log.info("Limpieza de conversaciones: {} eliminadas, {} activas", eliminadas, despues);
+            log.info("Limpieza de conversaciones: {} eliminadas, {} activas", eliminadas, conversaciones.contar());
         }
 
         return eliminadas;
     }
 
-    /**
-     * Clean up old processed messages
-     */
-    public void limpiarMensajesProcesados() {
-        long ahora = System.currentTimeMillis();
-        mensajesProcesados.entrySet().removeIf(entry ->
-            (ahora - entry.getValue()) > WhatsAppConstants.MESSAGE_EXPIRE_MS
-        );
-    }
-
     /**
      * Get count of active conversations
      */
     public int getActiveConversationsCount() {
-        return conversaciones.size();
+        return conversaciones.contar();
     }
 
     /**
      * Get count of processed messages in memory
      */
     public int getProcessedMessagesCount() {
-        return mensajesProcesados.size();
+        return mensajesProcesados.size(System.currentTimeMillis());
     }
 
     // ==================== CONVERSATION STATE CLASSES ====================
@@ -132,15 +173,32 @@ public class ConversationStateService {
         ESPERANDO_FECHA_CITA,               // Step 11
         ESPERANDO_SELECCION_DOCTOR,         // Step 12 - Doctor selection
         ESPERANDO_EMAIL,                    // Step 13 - Patient email
-        CONFIRMACION_FINAL                  // Step 14 - Final confirmation
+        CONFIRMACION_FINAL,                 // Step 14 - Final confirmation
+        CONFIRMAR_DATOS_PACIENTE,           // Returning patient recognized by phone: book with the data on file?
+        CONFIRMAR_CANCELACION_CITA          // Cancel the upcoming appointment offered in the menu?
     }
 
     /**
      * Class to store conversation state with timestamp and history
+     * Kept compact because one instance lives per open session: the history is a
+     * byte stack of state ordinals, activity is epoch millis and option lists are shared
      */
     public static class ConversacionState {
+        private static final EstadoConversacion[] ESTADOS = EstadoConversacion.values();
+        private static final byte[] SIN_HISTORIAL = new byte[0];
+        private static final int HISTORIAL_CAPACIDAD_INICIAL = 8;
+
+        // Values the flow validates against a closed set (CC/TI/RC, PRIMERA VEZ/CONTROL) share one
+        // instance across sessions; anything else is kept as given and never enters a shared pool
+        private static final Map<String, String> VALORES_COMPARTIDOS = compartidos(
+            WhatsAppConstants.TIPOS_DOCUMENTO,
+            List.of(AppointmentConstants.TIPO_CITA_PRIMERA_VEZ, AppointmentConstants.TIPO_CITA_CONTROL)
+        );
+
         private EstadoConversacion estado;
-        private LocalDateTime lastActivity;
+        private volatile long lastActivity; // epoch millis
+        private long actividadAnterior = -1; // epoch millis of the previous message, not persisted
+        private boolean finalizada; // closed while processing, not persisted
 
         // Patient fields
         private String tipoIdentificacion;
@@ -160,31 +218,81 @@ public class ConversationStateService {
         private String doctor;
         private List<OpcionDoctor> opcionesDoctor;
 
-        // Navigation stack for "back" functionality
-        private final Stack<EstadoConversacion> historialEstados = new Stack<>();
+        // Upcoming appointment of the sender, filled in from the profile warm-up
+        private Long proximaCitaId;
+        private LocalDateTime proximaCitaFechaHora;
+        private String proximaCitaDoctor;
+        // Appointment to cancel once the one being booked is created
+        private Long reagendarCitaId;
+
+        // Navigation stack for "back" functionality: state ordinals, grown on demand and never truncated
+        private byte[] historialEstados = SIN_HISTORIAL;
+        private int historialSize;
 
         public ConversacionState(EstadoConversacion estado) {
             this.estado = estado;
-            this.lastActivity = LocalDateTime.now();
+            this.lastActivity = System.currentTimeMillis();
         }
 
         public void updateActivity() {
-            this.lastActivity = LocalDateTime.now();
+            this.actividadAnterior = lastActivity;
+            this.lastActivity = System.currentTimeMillis();
+        }
+
+        /**
+         * Millis between the previous message of the session and the current one, -1 for a new session
+         */
+        public long getEsperaMs() {
+            return actividadAnterior < 0 ? -1 : lastActivity - actividadAnterior;
         }
 
-        public boolean isExpired(int timeoutMinutes) {
-            return lastActivity.plusMinutes(timeoutMinutes).isBefore(LocalDateTime.now());
+        public boolean isExpired(long ahora, long timeoutMs) {
+            return ahora - lastActivity > timeoutMs;
         }
 
+        public long getLastActivity() { return lastActivity; }
+        public void setLastActivity(long lastActivity) { this.lastActivity = lastActivity; }
+
+        public boolean isFinalizada() { return finalizada; }
+        public void finalizar() { this.finalizada = true; }
+
         public void guardarEstadoEnHistorial() {
             if (estado != EstadoConversacion.MENU) {
-                historialEstados.push(estado);
+                pushHistorial(estado);
             }
         }
 
         public EstadoConversacion volverEstadoAnterior() {
-            return historialEstados.isEmpty() ?
-                EstadoConversacion.MENU : historialEstados.pop();
+            if (historialSize == 0) {
+                return EstadoConversacion.MENU;
+            }
+            return ESTADOS[historialEstados[--historialSize]];
+        }
+
+        /**
+         * Navigation history from oldest to most recent
+         */
+        public List<EstadoConversacion> getHistorialEstados() {
+            List<EstadoConversacion> historial = new ArrayList<>(historialSize);
+            for (int i = 0; i < historialSize; i++) {
+                historial.add(ESTADOS[historialEstados[i]]);
+            }
+            return historial;
+        }
+
+        public void restaurarHistorial(List<EstadoConversacion> historial) {
+            historialSize = 0;
+            for (EstadoConversacion anterior : historial) {
+                pushHistorial(anterior);
+            }
+        }
+
+        private void pushHistorial(EstadoConversacion anterior) {
+            if (historialSize == historialEstados.length) {
+                historialEstados = Arrays.copyOf(historialEstados,
+                    Math.max(HISTORIAL_CAPACIDAD_INICIAL, historialEstados.length * 2));
+            }
+            historialEstados[historialSize++] = (byte) anterior.ordinal();
         }
 
         // Getters and setters
@@ -192,7 +300,7 @@ public class ConversationStateService {
         public void setEstado(EstadoConversacion estado) { this.estado = estado; }
 
         public String getTipoIdentificacion() { return tipoIdentificacion; }
-        public void setTipoIdentificacion(String tipoIdentificacion) { this.tipoIdentificacion = tipoIdentificacion; }
+        public void setTipoIdentificacion(String tipoIdentificacion) { this.tipoIdentificacion = compartido(tipoIdentificacion); }
 
         public String getNumeroIdentificacion() { return numeroIdentificacion; }
         public void setNumeroIdentificacion(String numeroIdentificacion) { this.numeroIdentificacion = numeroIdentificacion; }
@@ -219,7 +327,7 @@ public class ConversationStateService {
         public void setEmail(String email) { this.email = email; }
 
         public String getTipoCita() { return tipoCita; }
-        public void setTipoCita(String tipoCita) { this.tipoCita = tipoCita; }
+        public void setTipoCita(String tipoCita) { this.tipoCita = compartido(tipoCita); }
 
         public LocalDate getFechaCita() { return fechaCita; }
         public void setFechaCita(LocalDate fechaCita) { this.fechaCita = fechaCita; }
@@ -231,11 +339,63 @@ public class ConversationStateService {
         public void setDoctor(String doctor) { this.doctor = doctor; }
 
         public List<OpcionDoctor> getOpcionesDoctor() { return opcionesDoctor; }
-        public void setOpcionesDoctor(List<OpcionDoctor> opcionesDoctor) { this.opcionesDoctor = opcionesDoctor; }
+
+        public Long getProximaCitaId() { return proximaCitaId; }
+        public LocalDateTime getProximaCitaFechaHora() { return proximaCitaFechaHora; }
+        public String getProximaCitaDoctor() { return proximaCitaDoctor; }
+
+        public void setProximaCita(Long id, LocalDateTime fechaHora, String doctor) {
+            this.proximaCitaId = id;
+            this.proximaCitaFechaHora = fechaHora;
+            this.proximaCitaDoctor = doctor;
+        }
+
+        public Long getReagendarCitaId() { return reagendarCitaId; }
+        public void setReagendarCitaId(Long reagendarCitaId) { this.reagendarCitaId = reagendarCitaId; }
+
+        /**
+         * Stores an immutable list of canonical options so sessions offered the same slots share them
+         */
+        public void setOpcionesDoctor(List<OpcionDoctor> opcionesDoctor) {
+            if (opcionesDoctor == null) {
+                this.opcionesDoctor = null;
+                return;
+            }
+            OpcionDoctor[] canonicas = new OpcionDoctor[opcionesDoctor.size()];
+            for (int i = 0; i < canonicas.length; i++) {
+                canonicas[i] = OpcionDoctor.canonica(opcionesDoctor.get(i));
+            }
+            this.opcionesDoctor = List.of(canonicas);
+        }
+
+        private static String compartido(String valor) {
+            return valor != null ? VALORES_COMPARTIDOS.getOrDefault(valor, valor) : null;
+        }
+
+        private static Map<String, String> compartidos(Collection<String> tiposDocumento, Collection<String> tiposCita) {
+            Map<String, String> valores = new HashMap<>();
+            tiposDocumento.forEach(valor -> valores.put(valor, valor));
+            tiposCita.forEach(valor -> valores.put(valor, valor));
+            return Map.copyOf(valores);
+        }
     }
 
     /**
      * Record for doctor selection options
      */
-    public record OpcionDoctor(String doctor, String hora, String especialidad) {}
+    public record OpcionDoctor(String doctor, String hora, String especialidad) {
+
+        // Doctors x time slots in use; sized so renamed doctors or specialties are evicted, not kept forever
+        private static final int CANONICAS_MAXIMO = 4096;
+        private static final Cache<OpcionDoctor, OpcionDoctor> CANONICAS = Caffeine.newBuilder()
+            .maximumSize(CANONICAS_MAXIMO)
+            .build();
+
+        /**
+         * Shared instance equal to the given option
+         */
+        public static OpcionDoctor canonica(OpcionDoctor opcion) {
+            return CANONICAS.get(opcion, nueva -> nueva);
+        }
+    }
 }
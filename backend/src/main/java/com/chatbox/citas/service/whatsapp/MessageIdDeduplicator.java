@@ -0,0 +1,145 @@
+package com.chatbox.citas.service.whatsapp;
+
+/**
+ * Fixed-capacity set of recently processed WhatsApp message IDs
+ *
+ * Instead of keeping each {@code wamid.*} string plus a boxed timestamp in a map,
+ * it stores a 64-bit fingerprint of the ID and the time it was seen (in seconds)
+ * in two parallel primitive arrays, so memory stays constant at
+ * {@code capacity * 12} bytes no matter how many messages arrive.
+ *
+ * Lookups probe a bounded window of {@code maxProbe} slots, so every call is O(1).
+ * Expired slots are reused in place; no periodic cleanup is needed.
+ *
+ * False positives: two different IDs with the same fingerprint inside the same
+ * probe window make the second message look like a duplicate and it is dropped.
+ * The probability per lookup is about {@code maxProbe / 2^64} (~4e-19 with the
+ * default window of 8), so it is negligible in practice. A larger window lowers
+ * evictions under load but raises that bound linearly.
+ *
+ * False negatives: if every slot in the window is still live (table saturated),
+ * the oldest one is overwritten and a redelivery of that evicted message would be
+ * processed again. Size {@code capacity} to the message volume of one TTL window.
+ */
+public class MessageIdDeduplicator {
+
+    private static final long EMPTY = 0L;
+
+    private final long[] fingerprints;
+    private final int[] timestamps;
+    private final int mask;
+    private final int maxProbe;
+    private final int ttlSeconds;
+    private final long baseMillis;
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     * @param maxProbe slots inspected per lookup (1..capacity)
+     * @param ttlMillis time an ID is remembered
+     */
+    public MessageIdDeduplicator(int capacity, int maxProbe, long ttlMillis) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Dedup capacity must be positive: " + capacity);
+        }
+        int slots = Integer.highestOneBit(capacity);
+        if (slots < capacity) {
+            slots <<= 1;
+        }
+        if (maxProbe <= 0 || maxProbe > slots) {
+            throw new IllegalArgumentException("Dedup max probe must be between 1 and " + slots + ": " + maxProbe);
+        }
+
+        this.fingerprints = new long[slots];
+        this.timestamps = new int[slots];
+        this.mask = slots - 1;
+        this.maxProbe = maxProbe;
+        this.ttlSeconds = (int) Math.max(1, ttlMillis / 1000);
+        this.baseMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Record a message ID if it was not seen within the TTL
+     * @return true if the message is new and should be processed, false if it is a duplicate
+     */
+    public synchronized boolean marcarSiNuevo(String messageId, long ahoraMillis) {
+        long fingerprint = fingerprint(messageId);
+        int ahora = segundos(ahoraMillis);
+        int inicio = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+
+        int libre = -1;
+        int masAntiguo = inicio;
+
+        for (int i = 0; i < maxProbe; i++) {
+            int slot = (inicio + i) & mask;
+            long actual = fingerprints[slot];
+
+            if (actual == EMPTY || ahora - timestamps[slot] >= ttlSeconds) {
+                if (libre < 0) {
+                    libre = slot;
+                }
+                continue;
+            }
+
+            if (actual == fingerprint) {
+                return false;
+            }
+
+            if (timestamps[slot] < timestamps[masAntiguo]) {
+                masAntiguo = slot;
+            }
+        }
+
+        int destino = libre >= 0 ? libre : masAntiguo;
+        fingerprints[destino] = fingerprint;
+        timestamps[destino] = ahora;
+        return true;
+    }
+
+    /**
+     * Count IDs still inside the TTL window (full scan, meant for stats only)
+     */
+    public synchronized int size(long ahoraMillis) {
+        int ahora = segundos(ahoraMillis);
+        int vivos = 0;
+        for (int slot = 0; slot < fingerprints.length; slot++) {
+            if (fingerprints[slot] != EMPTY && ahora - timestamps[slot] < ttlSeconds) {
+                vivos++;
+            }
+        }
+        return vivos;
+    }
+
+    public int capacity() {
+        return fingerprints.length;
+    }
+
+    /**
+     * Heap used by the slot arrays
+     */
+    public long memoryBytes() {
+        return (long) fingerprints.length * Long.BYTES + (long) timestamps.length * Integer.BYTES;
+    }
+
+    private int segundos(long millis) {
+        return (int) ((millis - baseMillis) / 1000);
+    }
+
+    /**
+     * FNV-1a over the UTF-16 chars followed by the MurmurHash3 finalizer; never returns {@link #EMPTY}
+     */
+    static long fingerprint(String messageId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < messageId.length(); i++) {
+            hash ^= messageId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash == EMPTY ? 1L : hash;
+    }
+}
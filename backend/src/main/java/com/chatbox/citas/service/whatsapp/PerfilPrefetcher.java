@@ -0,0 +1,176 @@
+package com.chatbox.citas.service.whatsapp;
+
+import com.chatbox.citas.constants.WhatsAppConstants;
+import com.chatbox.citas.dto.CitaResponse;
+import com.chatbox.citas.service.CitaService;
+import com.chatbox.citas.service.PacienteService;
+import com.chatbox.citas.service.paciente.PacienteResumen;
+import com.chatbox.citas.service.whatsapp.store.ConversationStore;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the profile of a WhatsApp sender in the background when a session starts
+ *
+ * The patient summary (which also warms the patient lookup cache) and the patient's next
+ * upcoming appointment are fetched on a small dedicated pool; a turn never waits for them.
+ * Turns copy a finished result into the state they save, and a warm-up that finishes after
+ * the first turn saved writes the appointment into the conversation store itself, so the next
+ * message sees it on any instance. Until then the menu goes out without it.
+ * A warm-up that cannot be queued is simply skipped.
+ *
+ * With virtual threads enabled (spring.threads.virtual.enabled on Java 21) the pool keeps its
+ * size, so warm-ups still use at most that many connections, but its threads are virtual.
+ */
+@Slf4j
+@Service
+public class PerfilPrefetcher {
+
+    private final PacienteService pacienteService;
+    private final CitaService citaService;
+    private final ThreadPoolExecutor executor;
+    private final ConversationStore conversaciones;
+    private final Cache<String, CompletableFuture<PerfilConversacion>> perfiles;
+
+    public PerfilPrefetcher(
+        PacienteService pacienteService,
+        CitaService citaService,
+        @Value("${whatsapp.prefetch.threads:2}") int hilos,
+        @Value("${whatsapp.prefetch.queue-capacity:1000}") int capacidadCola,
+        ConversationStore conversationStore,
+        Environment environment
+    ) {
+        if (hilos <= 0 || capacidadCola <= 0) {
+            throw new IllegalStateException("whatsapp.prefetch: threads y queue-capacity deben ser positivos");
+        }
+        this.pacienteService = pacienteService;
+        this.citaService = citaService;
+        this.conversaciones = conversationStore;
+
+        ThreadFactory fabrica;
+        if (Threading.VIRTUAL.isActive(environment)) {
+            fabrica = new VirtualThreadTaskExecutor("perfil-prefetch-").getVirtualThreadFactory();
+        } else {
+            AtomicInteger contador = new AtomicInteger();
+            fabrica = tarea -> {
+                Thread hilo = new Thread(tarea, "perfil-prefetch-" + contador.incrementAndGet());
+                hilo.setDaemon(true);
+                return hilo;
+            };
+        }
+        this.executor = new ThreadPoolExecutor(
+            hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(capacidadCola),
+            fabrica,
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+        // Results not picked up by a later message are dropped with the session
+        this.perfiles = Caffeine.newBuilder()
+            .maximumSize(10L * capacidadCola)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
+    }
+
+    @PreDestroy
+    public void detener() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Start loading the profile of the sender of a new session
+     */
+    public void iniciar(String telefono) {
+        try {
+            CompletableFuture<PerfilConversacion> futuro = CompletableFuture.supplyAsync(() -> cargar(telefono), executor);
+            perfiles.put(telefono, futuro);
+            futuro.thenAccept(perfil -> publicar(telefono, futuro, perfil));
+        } catch (RejectedExecutionException e) {
+            log.debug("Precarga de perfil omitida para {}: cola llena", telefono);
+        }
+    }
+
+    /**
+     * Copy a finished warm-up into the session; does nothing while it is still running
+     */
+    public void aplicar(String telefono, ConversationStateService.ConversacionState estado) {
+        CompletableFuture<PerfilConversacion> futuro = perfiles.getIfPresent(telefono);
+        if (futuro == null || !futuro.isDone()) {
+            return;
+        }
+        copiar(telefono, resultado(futuro), estado);
+    }
+
+    private void copiar(String telefono, PerfilConversacion perfil, ConversationStateService.ConversacionState estado) {
+        perfiles.invalidate(telefono);
+        CitaResponse cita = perfil.proximaCita();
+        if (cita != null) {
+            estado.setProximaCita(cita.getId(), cita.getFechaHora(), cita.getDoctor());
+        }
+    }
+
+    /**
+     * Write a loaded appointment into a live session the first turn already saved
+     * A session still being created, or one a turn already filled in, is left to {@link #aplicar}
+     */
+    private void publicar(String telefono, CompletableFuture<PerfilConversacion> futuro, PerfilConversacion perfil) {
+        CitaResponse cita = perfil.proximaCita();
+        if (cita == null) {
+            return;
+        }
+        long ahora = System.currentTimeMillis();
+        try {
+            conversaciones.buscar(telefono)
+                .filter(estado -> !estado.isExpired(ahora, WhatsAppConstants.CONVERSATION_TIMEOUT_MS))
+                .filter(estado -> estado.getProximaCitaId() == null)
+                .ifPresent(estado -> {
+                    estado.setProximaCita(cita.getId(), cita.getFechaHora(), cita.getDoctor());
+                    conversaciones.guardar(telefono, estado);
+                    // Keeps a warm-up started by a newer session
+                    perfiles.asMap().remove(telefono, futuro);
+                });
+        } catch (RuntimeException e) {
+            log.warn("Precarga de perfil no guardada para {}: {}", telefono, e.getMessage());
+        }
+    }
+
+    private PerfilConversacion cargar(String telefono) {
+        PacienteResumen paciente = pacienteService.buscarResumenPorTelefono(telefono).orElse(null);
+        if (paciente == null) {
+            return PerfilConversacion.VACIO;
+        }
+        CitaResponse proximaCita = citaService.obtenerProximaCita(paciente.id()).orElse(null);
+        return new PerfilConversacion(paciente, proximaCita);
+    }
+
+    private static PerfilConversacion resultado(CompletableFuture<PerfilConversacion> futuro) {
+        try {
+            return futuro.join();
+        } catch (RuntimeException e) {
+            log.warn("Precarga de perfil fallida: {}", e.getMessage());
+            return PerfilConversacion.VACIO;
+        }
+    }
+
+    /**
+     * What the warm-up found for a sender; both parts are null for unknown phones
+     */
+    public record PerfilConversacion(PacienteResumen paciente, CitaResponse proximaCita) {
+        static final PerfilConversacion VACIO = new PerfilConversacion(null, null);
+    }
+}
@@ -1,5 +1,7 @@
 package com.chatbox.citas.service.whatsapp;
 
+import com.chatbox.citas.constants.AppointmentConstants;
+import com.chatbox.citas.constants.MetricsConstants;
 import com.chatbox.citas.constants.WhatsAppConstants;
 import com.chatbox.citas.dto.CitaRequestCompleto;
 import com.chatbox.citas.service.CitaService;
@@ -7,19 +9,33 @@ import com.chatbox.citas.service.EmailService;
 import com.chatbox.citas.service.PacienteService;
 import com.chatbox.citas.service.ValidacionDatosService;
 import com.chatbox.citas.service.ValidacionDocumentoService;
+import com.chatbox.citas.service.paciente.PacienteResumen;
+import com.chatbox.citas.service.traza.TrazaContext;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Service responsible for chatbot flow logic
@@ -38,10 +54,39 @@ public class WhatsAppFlowService {
     private final ValidacionDocumentoService validacionDocumentoService;
     private final ValidacionDatosService validacionDatosService;
     private final EmailService emailService;
+    private final PerfilPrefetcher perfilPrefetcher;
+    private final ConversationFunnel conversationFunnel;
+    private final MeterRegistry meterRegistry;
     private final ObjectMapper objectMapper;
 
     private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern(WhatsAppConstants.FORMATO_HORA_PATTERN);
     private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern(WhatsAppConstants.FORMATO_FECHA_PATTERN);
+    private static final DateTimeFormatter FORMATO_FECHA_INPUT = DateTimeFormatter.ofPattern(WhatsAppConstants.FORMATO_FECHA_INPUT);
+
+    /**
+     * Global commands that work in any state, resolved with a single lookup of the normalized message
+     */
+    private static final Map<String, ComandoGlobal> COMANDOS_GLOBALES = Map.of(
+        "ATRÁS", ComandoGlobal.VOLVER,
+        "VOLVER", ComandoGlobal.VOLVER,
+        "CANCELAR", ComandoGlobal.CANCELAR,
+        "INICIO", ComandoGlobal.INICIO,
+        "MENU", ComandoGlobal.INICIO
+    );
+
+    private static final Set<String> OMITIR = Set.of("OMITIR", "SALTAR");
+    private static final Map<String, String> TIPOS_CITA = Map.of(
+        "1", AppointmentConstants.TIPO_CITA_PRIMERA_VEZ,
+        "2", AppointmentConstants.TIPO_CITA_CONTROL
+    );
+
+    // State -> handler table, built once at startup
+    private Map<ConversationStateService.EstadoConversacion, ManejadorEstado> transiciones;
+
+    @PostConstruct
+    void inicializarTransiciones() {
+        this.transiciones = construirTransiciones();
+    }
 
     /**
      * Process an incoming message based on current conversation state
@@ -52,112 +97,302 @@ public class WhatsAppFlowService {
         String mensajeNormalizado = mensaje.trim().toUpperCase();
 
         // Get or create conversation state
-        ConversationStateService.ConversacionState estado =
-            conversationStateService.getOrCreateConversacion(telefono);
-
-        // Clean up expired conversations periodically
-        conversationStateService.limpiarConversacionesExpiradas();
-
-        // Handle global commands (work in any state)
-        if (procesarComandosGlobales(telefono, mensajeNormalizado, estado)) {
-            return;
+        ConversationStateService.ConversacionState estado;
+        try (TrazaContext.Tramo tramo = TrazaContext.abrir("estado cargar")) {
+            estado = conversationStateService.getOrCreateConversacion(telefono);
+        }
+        // Profile warm-up started with the session, if it has finished
+        perfilPrefetcher.aplicar(telefono, estado);
+
+        // Timed per state the message arrived in
+        ConversationStateService.EstadoConversacion estadoInicial = estado.getEstado();
+        TrazaContext.anotar("estado", estadoInicial.name());
+        conversationFunnel.mensaje(estadoInicial, estado.getEsperaMs());
+        Timer.Sample muestra = Timer.start(meterRegistry);
+        String outcome = MetricsConstants.OUTCOME_ERROR;
+        try {
+            // Handle global commands (work in any state)
+            ComandoGlobal comando = COMANDOS_GLOBALES.get(mensajeNormalizado);
+            if (comando != null) {
+                procesarComandoGlobal(telefono, comando, estado);
+            } else {
+                // Process based on current state
+                transiciones.get(estadoInicial).procesar(telefono, mensajeNormalizado, mensaje, estado);
+            }
+            outcome = MetricsConstants.OUTCOME_OK;
+        } finally {
+            muestra.stop(meterRegistry.timer(MetricsConstants.WHATSAPP_FLOW,
+                MetricsConstants.TAG_ESTADO, estadoInicial.name(), MetricsConstants.TAG_OUTCOME, outcome));
+            if (estado.isFinalizada()) {
+                conversationFunnel.cerrada(estadoInicial);
+            } else {
+                conversationFunnel.transicion(estadoInicial, estado.getEstado());
+            }
+            // A warm-up finishing during the turn would otherwise find no saved session to update
+            perfilPrefetcher.aplicar(telefono, estado);
+            try (TrazaContext.Tramo tramo = TrazaContext.abrir("estado guardar")) {
+                conversationStateService.guardarConversacion(telefono, estado);
+            }
         }
-
-        // Process based on current state
-        procesarPorEstado(telefono, mensajeNormalizado, mensaje, estado);
     }
 
     /**
-     * Process global commands that work in any state
-     * @return true if a global command was processed, false otherwise
+     * Process a global command that works in any state
      */
-    private boolean procesarComandosGlobales(
+    private void procesarComandoGlobal(
         String telefono,
-        String mensajeNormalizado,
+        ComandoGlobal comando,
         ConversationStateService.ConversacionState estado
     ) {
-        if (mensajeNormalizado.equals("ATRÁS") || mensajeNormalizado.equals("VOLVER")) {
-            if (estado.getEstado() != ConversationStateService.EstadoConversacion.MENU) {
-                ConversationStateService.EstadoConversacion anterior = estado.volverEstadoAnterior();
-                estado.setEstado(anterior);
-                messageService.enviarMensaje(telefono, "↩️ Volviendo al paso anterior...");
-                reenviarPromptActual(telefono, estado);
-            } else {
-                mostrarMenu(telefono);
+        switch (comando) {
+            case VOLVER -> {
+                if (estado.getEstado() != ConversationStateService.EstadoConversacion.MENU) {
+                    ConversationStateService.EstadoConversacion anterior = estado.volverEstadoAnterior();
+                    estado.setEstado(anterior);
+                    messageService.enviarMensaje(telefono, "↩️ Volviendo al paso anterior...");
+                    reenviarPromptActual(telefono, estado);
+                } else {
+                    mostrarMenu(telefono, estado);
+                }
+            }
+            case CANCELAR -> {
+                conversationStateService.finalizarConversacion(telefono, estado);
+                messageService.enviarMensaje(telefono, "❌ Proceso cancelado. Envía cualquier mensaje para iniciar.");
+            }
+            case INICIO -> {
+                estado.setEstado(ConversationStateService.EstadoConversacion.MENU);
+                mostrarMenu(telefono, estado);
             }
-            return true;
         }
+    }
 
-        if (mensajeNormalizado.equals("CANCELAR")) {
-            conversationStateService.removeConversacion(telefono);
-            messageService.enviarMensaje(telefono, "❌ Proceso cancelado. Envía cualquier mensaje para iniciar.");
-            return true;
-        }
+    // ==================== TRANSITION TABLE ====================
 
-        if (mensajeNormalizado.equals("INICIO") || mensajeNormalizado.equals("MENU")) {
-            estado.setEstado(ConversationStateService.EstadoConversacion.MENU);
-            mostrarMenu(telefono);
-            return true;
+    /**
+     * Build the declarative transition table
+     * Plain data-entry steps are described as parser -> validator -> next state -> prompt;
+     * steps that query services or branch keep a dedicated handler
+     */
+    private Map<ConversationStateService.EstadoConversacion, ManejadorEstado> construirTransiciones() {
+        EnumMap<ConversationStateService.EstadoConversacion, ManejadorEstado> tabla =
+            new EnumMap<>(ConversationStateService.EstadoConversacion.class);
+
+        tabla.put(ConversationStateService.EstadoConversacion.MENU,
+            (telefono, mensaje, original, estado) -> procesarMenu(telefono, mensaje, estado));
+
+        tabla.put(ConversationStateService.EstadoConversacion.ESPERANDO_TIPO_DOC, capturar(new PasoCaptura<String>(
+            false,
+            mensaje -> mensaje,
+            WhatsAppConstants.TIPOS_DOCUMENTO::contains,
+            "⚠️ Opción inválida. Responde CC, TI o RC",
+            ConversationStateService.ConversacionState::setTipoIdentificacion,
+            ConversationStateService.EstadoConversacion.ESPERANDO_NUMERO_DOC,
+            tipoDoc -> templateService.generarPromptNumeroDocumento(tipoDoc)
+        )));
+
+        tabla.put(ConversationStateService.EstadoConversacion.ESPERANDO_NUMERO_DOC,
+            (telefono, mensaje, original, estado) -> procesarNumeroDocumento(telefono, mensaje, estado));
+
+        tabla.put(ConversationStateService.EstadoConversacion.ESPERANDO_NOMBRE, capturar(new PasoCaptura<String>(
+            true,
+            String::trim,
+            nombre -> nombre.length() >= 3,
+            "⚠️ Por favor escribe tu nombre completo (mínimo 3 caracteres)",
+            ConversationStateService.ConversacionState::setNombre,
+            ConversationStateService.EstadoConversacion.ESPERANDO_TELEFONO_PRINCIPAL,
+            nombre -> templateService.generarPromptTelefonoPrincipal()
+        )));
+
+        tabla.put(ConversationStateService.EstadoConversacion.ESPERANDO_TELEFONO_PRINCIPAL, capturar(new PasoCaptura<String>(
+            false,
+            validacionDatosService::formatearTelefono,
+            validacionDatosService::validarTelefonoColombiano,
+            "⚠️ Teléfono inválido. Debe ser un número colombiano de 10 dígitos que empiece con 3",
+            ConversationStateService.ConversacionState::setTelefonoPrincipal,
+            ConversationStateService.EstadoConversacion.ESPERANDO_TELEFONO_SECUNDARIO,
+            tel -> templateService.generarPromptTelefonoSecundario()
+        )));
+
+        // Only OMITIR/SALTAR skip the step (empty Optional); any other text must be a valid phone
+        tabla.put(ConversationStateService.EstadoConversacion.ESPERANDO_TELEFONO_SECUNDARIO, capturar(new PasoCaptura<Optional<String>>(
+            false,
+            mensaje -> OMITIR.contains(mensaje) ? Optional.empty() : Optional.of(validacionDatosService.formatearTelefono(mensaje)),
+            tel -> tel.isEmpty() || validacionDatosService.validarTelefonoColombiano(tel.get()),
+            "⚠️ Teléfono inválido o escribe OMITIR para continuar",
+            (estado, tel) -> estado.setTelefonoSecundario(tel.orElse(null)),
+            ConversationStateService.EstadoConversacion.ESPERANDO_DIRECCION,
+            tel -> templateService.generarPromptDireccion()
+        )));
+
+        tabla.put(ConversationStateService.EstadoConversacion.ESPERANDO_DIRECCION, capturar(new PasoCaptura<String>(
+            true,
+            String::trim,
+            direccion -> direccion.length() >= 10,
+            "⚠️ Por favor escribe una dirección más completa (mínimo 10 caracteres)",
+            ConversationStateService.ConversacionState::setDireccion,
+            ConversationStateService.EstadoConversacion.ESPERANDO_FECHA_NACIMIENTO,
+            direccion -> templateService.generarPromptFechaNacimiento()
+        )));
+
+        tabla.put(ConversationStateService.EstadoConversacion.ESPERANDO_FECHA_NACIMIENTO, capturar(new PasoCaptura<LocalDate>(
+            false,
+            validacionDatosService::validarFechaNacimiento,
+            Objects::nonNull,
+            "⚠️ Fecha inválida. Debes ser mayor de 18 años. Usa el formato: dd-mm-yyyy",
+            ConversationStateService.ConversacionState::setFechaNacimiento,
+            ConversationStateService.EstadoConversacion.ESPERANDO_EPS,
+            fecha -> templateService.generarPromptEPS()
+        )));
+
+        tabla.put(ConversationStateService.EstadoConversacion.ESPERANDO_EPS, capturar(new PasoCaptura<String>(
+            true,
+            String::trim,
+            eps -> eps.length() >= 3,
+            "⚠️ Por favor escribe el nombre de tu EPS (mínimo 3 caracteres)",
+            ConversationStateService.ConversacionState::setEps,
+            ConversationStateService.EstadoConversacion.ESPERANDO_TIPO_CITA,
+            eps -> templateService.generarPromptTipoCita()
+        )));
+
+        tabla.put(ConversationStateService.EstadoConversacion.ESPERANDO_TIPO_CITA, capturar(new PasoCaptura<String>(
+            false,
+            TIPOS_CITA::get,
+            Objects::nonNull,
+            "⚠️ Responde 1 para PRIMERA VEZ o 2 para CONTROL",
+            ConversationStateService.ConversacionState::setTipoCita,
+            ConversationStateService.EstadoConversacion.ESPERANDO_FECHA_CITA,
+            tipo -> templateService.generarPromptFechaCita()
+        )));
+
+        tabla.put(ConversationStateService.EstadoConversacion.ESPERANDO_FECHA_CITA,
+            (telefono, mensaje, original, estado) -> procesarFechaCita(telefono, mensaje, estado));
+        tabla.put(ConversationStateService.EstadoConversacion.ESPERANDO_SELECCION_DOCTOR,
+            (telefono, mensaje, original, estado) -> procesarSeleccionDoctor(telefono, mensaje, estado));
+        tabla.put(ConversationStateService.EstadoConversacion.ESPERANDO_EMAIL,
+            (telefono, mensaje, original, estado) -> procesarEmail(telefono, mensaje, estado));
+        tabla.put(ConversationStateService.EstadoConversacion.CONFIRMACION_FINAL,
+            (telefono, mensaje, original, estado) -> procesarConfirmacionFinal(telefono, mensaje, estado));
+        tabla.put(ConversationStateService.EstadoConversacion.CONFIRMAR_DATOS_PACIENTE,
+            (telefono, mensaje, original, estado) -> procesarConfirmarDatosPaciente(telefono, mensaje, estado));
+        tabla.put(ConversationStateService.EstadoConversacion.CONFIRMAR_CANCELACION_CITA,
+            (telefono, mensaje, original, estado) -> procesarCancelacionCita(telefono, mensaje, estado));
+
+        for (ConversationStateService.EstadoConversacion estado : ConversationStateService.EstadoConversacion.values()) {
+            if (!tabla.containsKey(estado)) {
+                throw new IllegalStateException("Estado sin transición definida: " + estado);
+            }
         }
+        return tabla;
+    }
+
+    /**
+     * Turn a data-entry step into a state handler
+     */
+    private <T> ManejadorEstado capturar(PasoCaptura<T> paso) {
+        return (telefono, mensajeNormalizado, mensajeOriginal, estado) -> {
+            T valor = paso.parser().apply(paso.textoOriginal() ? mensajeOriginal : mensajeNormalizado);
+            if (valor == null || !paso.validador().test(valor)) {
+                messageService.enviarMensaje(telefono, paso.mensajeError());
+                return;
+            }
 
-        return false;
+            paso.asignar().accept(estado, valor);
+            estado.guardarEstadoEnHistorial();
+            estado.setEstado(paso.siguiente());
+            messageService.enviarMensaje(telefono, paso.prompt().apply(valor));
+        };
     }
 
     /**
-     * Process message based on current conversation state
+     * Handler for one conversation state
      */
-    private void procesarPorEstado(
-        String telefono,
-        String mensajeNormalizado,
-        String mensajeOriginal,
-        ConversationStateService.ConversacionState estado
-    ) {
-        switch (estado.getEstado()) {
-            case MENU -> procesarMenu(telefono, mensajeNormalizado, estado);
-            case ESPERANDO_TIPO_DOC -> procesarTipoDocumento(telefono, mensajeNormalizado, estado);
-            case ESPERANDO_NUMERO_DOC -> procesarNumeroDocumento(telefono, mensajeNormalizado, estado);
-            case ESPERANDO_NOMBRE -> procesarNombre(telefono, mensajeOriginal, estado);
-            case ESPERANDO_TELEFONO_PRINCIPAL -> procesarTelefonoPrincipal(telefono, mensajeNormalizado, estado);
-            case ESPERANDO_TELEFONO_SECUNDARIO -> procesarTelefonoSecundario(telefono, mensajeNormalizado, estado);
-            case ESPERANDO_DIRECCION -> procesarDireccion(telefono, mensajeOriginal, estado);
-            case ESPERANDO_FECHA_NACIMIENTO -> procesarFechaNacimiento(telefono, mensajeNormalizado, estado);
-            case ESPERANDO_EPS -> procesarEPS(telefono, mensajeOriginal, estado);
-            case ESPERANDO_TIPO_CITA -> procesarTipoCita(telefono, mensajeNormalizado, estado);
-            case ESPERANDO_FECHA_CITA -> procesarFechaCita(telefono, mensajeNormalizado, estado);
-            case ESPERANDO_SELECCION_DOCTOR -> procesarSeleccionDoctor(telefono, mensajeNormalizado, estado);
-            case ESPERANDO_EMAIL -> procesarEmail(telefono, mensajeNormalizado, estado);
-            case CONFIRMACION_FINAL -> procesarConfirmacionFinal(telefono, mensajeNormalizado, estado);
-        }
+    @FunctionalInterface
+    private interface ManejadorEstado {
+        void procesar(
+            String telefono,
+            String mensajeNormalizado,
+            String mensajeOriginal,
+            ConversationStateService.ConversacionState estado
+        );
+    }
+
+    /**
+     * Declarative data-entry step: parse the input, validate it, store it, move to the next state and send its prompt
+     * @param textoOriginal parse the message as typed instead of the trimmed upper-case version
+     */
+    private record PasoCaptura<T>(
+        boolean textoOriginal,
+        Function<String, T> parser,
+        Predicate<T> validador,
+        String mensajeError,
+        BiConsumer<ConversationStateService.ConversacionState, T> asignar,
+        ConversationStateService.EstadoConversacion siguiente,
+        Function<T, String> prompt
+    ) {}
+
+    private enum ComandoGlobal {
+        VOLVER,
+        CANCELAR,
+        INICIO
     }
 
     // ==================== FLOW PROCESSORS ====================
 
     private void procesarMenu(String telefono, String mensaje, ConversationStateService.ConversacionState estado) {
-        if (mensaje.contains("1") || mensaje.contains("CITA") || mensaje.contains("AGENDAR")) {
+        // Options 3 and 4 are only offered when the sender has an upcoming appointment;
+        // checked first because REAGENDAR contains AGENDAR and "CANCELAR CITA" contains CITA
+        if (estado.getProximaCitaId() != null && (mensaje.equals("3") || mensaje.contains("REAGENDAR"))) {
+            iniciarReagendamiento(telefono, estado);
+        } else if (estado.getProximaCitaId() != null && (mensaje.equals("4") || mensaje.contains("CANCELAR"))) {
+            LocalDateTime fechaHora = estado.getProximaCitaFechaHora();
+            estado.guardarEstadoEnHistorial();
+            estado.setEstado(ConversationStateService.EstadoConversacion.CONFIRMAR_CANCELACION_CITA);
+            messageService.enviarMensaje(telefono, templateService.generarPromptCancelarCita(
+                fechaHora.format(FORMATO_FECHA), fechaHora.format(FORMATO_HORA), estado.getProximaCitaDoctor()));
+        } else if (mensaje.contains("1") || mensaje.contains("CITA") || mensaje.contains("AGENDAR")) {
+            estado.setReagendarCitaId(null);
+            // Returning patient writing from the phone on file: offer to skip the data-entry steps
+            var registrado = pacienteService.buscarResumenPorTelefono(telefono).filter(PacienteResumen::perfilCompleto);
+            if (registrado.isPresent()) {
+                PacienteResumen p = registrado.get();
+                aplicarDatosPaciente(estado, p);
+                estado.setEstado(ConversationStateService.EstadoConversacion.CONFIRMAR_DATOS_PACIENTE);
+                messageService.enviarMensaje(telefono,
+                    templateService.generarPromptDatosRegistrados(p.nombre(), p.tipoIdentificacion(), p.numeroIdentificacion()));
+                return;
+            }
             estado.guardarEstadoEnHistorial();
             estado.setEstado(ConversationStateService.EstadoConversacion.ESPERANDO_TIPO_DOC);
             messageService.enviarMensaje(telefono, templateService.generarPromptTipoDocumento());
         } else if (mensaje.contains("2") || mensaje.contains("CIRUGÍA") || mensaje.contains("PROCEDIMIENTOS")) {
             messageService.enviarMensaje(telefono, templateService.generarInfoCirugia());
-            conversationStateService.removeConversacion(telefono);
+            conversationStateService.finalizarConversacion(telefono, estado);
         } else {
-            mostrarMenu(telefono);
+            mostrarMenu(telefono, estado);
         }
     }
 
-    private void procesarTipoDocumento(String telefono, String mensaje, ConversationStateService.ConversacionState estado) {
-        if (mensaje.equals("CC") || mensaje.equals("TI") || mensaje.equals("RC")) {
-            estado.setTipoIdentificacion(mensaje);
-            estado.guardarEstadoEnHistorial();
-            estado.setEstado(ConversationStateService.EstadoConversacion.ESPERANDO_NUMERO_DOC);
-            messageService.enviarMensaje(telefono, templateService.generarPromptNumeroDocumento(mensaje));
+    /**
+     * Book a new appointment for the sender; the upcoming one is cancelled once the new one is created
+     */
+    private void iniciarReagendamiento(String telefono, ConversationStateService.ConversacionState estado) {
+        estado.setReagendarCitaId(estado.getProximaCitaId());
+        String saludo = "🔄 Vamos a reagendar tu cita del " + estado.getProximaCitaFechaHora().format(FORMATO_FECHA)
+            + ". Al confirmar la nueva cita, la anterior se cancelará.";
+
+        var registrado = pacienteService.buscarResumenPorTelefono(telefono).filter(PacienteResumen::perfilCompleto);
+        if (registrado.isPresent()) {
+            aplicarDatosPaciente(estado, registrado.get());
+            irATipoCita(telefono, estado, saludo);
         } else {
-            messageService.enviarMensaje(telefono, "⚠️ Opción inválida. Responde CC, TI o RC");
+            estado.guardarEstadoEnHistorial();
+            estado.setEstado(ConversationStateService.EstadoConversacion.ESPERANDO_TIPO_DOC);
+            messageService.enviarMensaje(telefono, saludo + "\n\n" + templateService.generarPromptTipoDocumento());
         }
     }
 
     private void procesarNumeroDocumento(String telefono, String mensaje, ConversationStateService.ConversacionState estado) {
-        String numeroDoc = mensaje.replaceAll("[\\.\\s\\-]", "").trim();
+        String numeroDoc = validacionDocumentoService.limpiarNumeroDocumento(mensaje);
 
         boolean valido = switch (estado.getTipoIdentificacion()) {
             case "CC" -> validacionDocumentoService.validarCC(numeroDoc);
@@ -172,14 +407,19 @@ public class WhatsAppFlowService {
         }
 
         // Check if patient exists
-        var pacienteOpt = pacienteService.buscarPorNumeroIdentificacion(numeroDoc);
-
-        if (pacienteOpt.isPresent()) {
+        var pacienteOpt = pacienteService.buscarResumenPorNumeroIdentificacion(numeroDoc);
+
+        if (pacienteOpt.isPresent() && pacienteOpt.get().perfilCompleto()) {
+            // Everything the data-entry steps ask for is on file
+            aplicarDatosPaciente(estado, pacienteOpt.get());
+            irATipoCita(telefono, estado, String.format(
+                "✅ Hola %s, hemos encontrado tus datos registrados.", pacienteOpt.get().nombre()));
+        } else if (pacienteOpt.isPresent()) {
             var p = pacienteOpt.get();
-            estado.setNombre(p.getNombre());
-            estado.setDireccion(p.getDireccion());
-            estado.setFechaNacimiento(p.getFechaNacimiento());
-            estado.setEps(p.getEps());
+            estado.setNombre(p.nombre());
+            estado.setDireccion(p.direccion());
+            estado.setFechaNacimiento(p.fechaNacimiento());
+            estado.setEps(p.eps());
             estado.setNumeroIdentificacion(numeroDoc);
 
             messageService.enviarMensaje(telefono, "✅ Hemos encontrado tu información previa. Vamos a verificar algunos datos...");
@@ -187,7 +427,7 @@ public class WhatsAppFlowService {
             estado.setEstado(ConversationStateService.EstadoConversacion.ESPERANDO_TELEFONO_PRINCIPAL);
             messageService.enviarMensaje(telefono,
                 String.format("📱 Confirma tu teléfono principal o escribe uno nuevo (10 dígitos):\nActual: %s",
-                    p.getTelefono() != null ? p.getTelefono() : "No registrado"));
+                    p.telefono() != null ? p.telefono() : "No registrado"));
         } else {
             estado.setNumeroIdentificacion(numeroDoc);
             estado.guardarEstadoEnHistorial();
@@ -196,112 +436,9 @@ public class WhatsAppFlowService {
         }
     }
 
-    private void procesarNombre(String telefono, String mensaje, ConversationStateService.ConversacionState estado) {
-        String nombre = mensaje.trim();
-        if (nombre.length() < 3) {
-            messageService.enviarMensaje(telefono, "⚠️ Por favor escribe tu nombre completo (mínimo 3 caracteres)");
-            return;
-        }
-
-        estado.setNombre(nombre);
-        estado.guardarEstadoEnHistorial();
-        estado.setEstado(ConversationStateService.EstadoConversacion.ESPERANDO_TELEFONO_PRINCIPAL);
-        messageService.enviarMensaje(telefono, templateService.generarPromptTelefonoPrincipal());
-    }
-
-    private void procesarTelefonoPrincipal(String telefono, String mensaje, ConversationStateService.ConversacionState estado) {
-        String telefonoLimpio = validacionDatosService.formatearTelefono(mensaje);
-
-        if (!validacionDatosService.validarTelefonoColombiano(telefonoLimpio)) {
-            messageService.enviarMensaje(telefono,
-                "⚠️ Teléfono inválido. Debe ser un número colombiano de 10 dígitos que empiece con 3");
-            return;
-        }
-
-        estado.setTelefonoPrincipal(telefonoLimpio);
-        estado.guardarEstadoEnHistorial();
-        estado.setEstado(ConversationStateService.EstadoConversacion.ESPERANDO_TELEFONO_SECUNDARIO);
-        messageService.enviarMensaje(telefono, templateService.generarPromptTelefonoSecundario());
-    }
-
-    private void procesarTelefonoSecundario(String telefono, String mensaje, ConversationStateService.ConversacionState estado) {
-        String telefonoLimpio = validacionDatosService.formatearTelefono(mensaje);
-
-        if (mensaje.equals("OMITIR") || mensaje.equals("SALTAR")) {
-            estado.setTelefonoSecundario(null);
-        } else if (validacionDatosService.validarTelefonoColombiano(telefonoLimpio)) {
-            estado.setTelefonoSecundario(telefonoLimpio);
-        } else {
-            messageService.enviarMensaje(telefono, "⚠️ Teléfono inválido o escribe OMITIR para continuar");
-            return;
-        }
-
-        estado.guardarEstadoEnHistorial();
-        estado.setEstado(ConversationStateService.EstadoConversacion.ESPERANDO_DIRECCION);
-        messageService.enviarMensaje(telefono, templateService.generarPromptDireccion());
-    }
-
-    private void procesarDireccion(String telefono, String mensaje, ConversationStateService.ConversacionState estado) {
-        String direccion = mensaje.trim();
-        if (direccion.length() < 10) {
-            messageService.enviarMensaje(telefono,
-                "⚠️ Por favor escribe una dirección más completa (mínimo 10 caracteres)");
-            return;
-        }
-
-        estado.setDireccion(direccion);
-        estado.guardarEstadoEnHistorial();
-        estado.setEstado(ConversationStateService.EstadoConversacion.ESPERANDO_FECHA_NACIMIENTO);
-        messageService.enviarMensaje(telefono, templateService.generarPromptFechaNacimiento());
-    }
-
-    private void procesarFechaNacimiento(String telefono, String mensaje, ConversationStateService.ConversacionState estado) {
-        LocalDate fechaNac = validacionDatosService.validarFechaNacimiento(mensaje);
-
-        if (fechaNac == null) {
-            messageService.enviarMensaje(telefono,
-                "⚠️ Fecha inválida. Debes ser mayor de 18 años. Usa el formato: dd-mm-yyyy");
-            return;
-        }
-
-        estado.setFechaNacimiento(fechaNac);
-        estado.guardarEstadoEnHistorial();
-        estado.setEstado(ConversationStateService.EstadoConversacion.ESPERANDO_EPS);
-        messageService.enviarMensaje(telefono, templateService.generarPromptEPS());
-    }
-
-    private void procesarEPS(String telefono, String mensaje, ConversationStateService.ConversacionState estado) {
-        String eps = mensaje.trim();
-        if (eps.length() < 3) {
-            messageService.enviarMensaje(telefono, "⚠️ Por favor escribe el nombre de tu EPS (mínimo 3 caracteres)");
-            return;
-        }
-
-        estado.setEps(eps);
-        estado.guardarEstadoEnHistorial();
-        estado.setEstado(ConversationStateService.EstadoConversacion.ESPERANDO_TIPO_CITA);
-        messageService.enviarMensaje(telefono, templateService.generarPromptTipoCita());
-    }
-
-    private void procesarTipoCita(String telefono, String mensaje, ConversationStateService.ConversacionState estado) {
-        if (mensaje.equals("1")) {
-            estado.setTipoCita("PRIMERA VEZ");
-        } else if (mensaje.equals("2")) {
-            estado.setTipoCita("CONTROL");
-        } else {
-            messageService.enviarMensaje(telefono, "⚠️ Responde 1 para PRIMERA VEZ o 2 para CONTROL");
-            return;
-        }
-
-        estado.guardarEstadoEnHistorial();
-        estado.setEstado(ConversationStateService.EstadoConversacion.ESPERANDO_FECHA_CITA);
-        messageService.enviarMensaje(telefono, templateService.generarPromptFechaCita());
-    }
-
     private void procesarFechaCita(String telefono, String mensaje, ConversationStateService.ConversacionState estado) {
         try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
-            LocalDate fechaCita = LocalDate.parse(mensaje, formatter);
+            LocalDate fechaCita = LocalDate.parse(mensaje, FORMATO_FECHA_INPUT);
 
             if (fechaCita.isBefore(LocalDate.now())) {
                 messageService.enviarMensaje(telefono,
@@ -309,7 +446,7 @@ public class WhatsAppFlowService {
                 return;
             }
 
-            if (fechaCita.getDayOfWeek().name().equals("SUNDAY")) {
+            if (fechaCita.getDayOfWeek() == DayOfWeek.SUNDAY) {
                 messageService.enviarMensaje(telefono, "⚠️ No atendemos domingos. Por favor selecciona otra fecha");
                 return;
             }
@@ -382,7 +519,7 @@ public class WhatsAppFlowService {
             if (estado.getOpcionesDoctor() == null || estado.getOpcionesDoctor().isEmpty()) {
                 messageService.enviarMensaje(telefono,
                     "⚠️ Error: no hay opciones disponibles. Por favor inicia nuevamente.");
-                conversationStateService.removeConversacion(telefono);
+                conversationStateService.finalizarConversacion(telefono, estado);
                 return;
             }
 
@@ -397,6 +534,12 @@ public class WhatsAppFlowService {
             estado.setDoctor(seleccion.doctor());
             estado.setHoraCita(seleccion.hora());
 
+            // Email already on file for returning patients; it is shown in the summary
+            if (estado.getEmail() != null && !estado.getEmail().isBlank()) {
+                mostrarResumenYConfirmar(telefono, estado);
+                return;
+            }
+
             // Ask for patient email
             estado.guardarEstadoEnHistorial();
             estado.setEstado(ConversationStateService.EstadoConversacion.ESPERANDO_EMAIL);
@@ -417,7 +560,7 @@ public class WhatsAppFlowService {
         }
 
         // Basic email validation
-        if (!email.matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$")) {
+        if (!validacionDatosService.validarEmail(email)) {
             messageService.enviarMensaje(telefono, "⚠️ Email inválido. Por favor ingresa un email válido o escribe OMITIR");
             return;
         }
@@ -436,19 +579,85 @@ public class WhatsAppFlowService {
     private void procesarConfirmacionFinal(String telefono, String mensaje, ConversationStateService.ConversacionState estado) {
         if (mensaje.equals("SI") || mensaje.equals("SÍ") || mensaje.equals("1") || mensaje.equals("CONFIRMAR")) {
             crearCitaCompleto(telefono, estado);
-            conversationStateService.removeConversacion(telefono);
+            conversationStateService.finalizarConversacion(telefono, estado);
         } else if (mensaje.equals("NO") || mensaje.equals("2") || mensaje.equals("CANCELAR")) {
-            conversationStateService.removeConversacion(telefono);
+            conversationStateService.finalizarConversacion(telefono, estado);
             messageService.enviarMensaje(telefono, "❌ Proceso cancelado. Envía cualquier mensaje para iniciar");
         } else {
             messageService.enviarMensaje(telefono, "⚠️ Responde SI para confirmar o NO para cancelar");
         }
     }
 
+    private void procesarConfirmarDatosPaciente(String telefono, String mensaje, ConversationStateService.ConversacionState estado) {
+        if (mensaje.equals("1") || mensaje.equals("SI") || mensaje.equals("SÍ")) {
+            irATipoCita(telefono, estado, "✅ Perfecto, usaremos tus datos registrados.");
+        } else if (mensaje.equals("2") || mensaje.equals("NO")) {
+            aplicarDatosPaciente(estado, null);
+            estado.guardarEstadoEnHistorial();
+            estado.setEstado(ConversationStateService.EstadoConversacion.ESPERANDO_TIPO_DOC);
+            messageService.enviarMensaje(telefono, templateService.generarPromptTipoDocumento());
+        } else {
+            messageService.enviarMensaje(telefono, "⚠️ Responde 1 para usar tus datos o 2 para ingresar otros");
+        }
+    }
+
+    private void procesarCancelacionCita(String telefono, String mensaje, ConversationStateService.ConversacionState estado) {
+        if (mensaje.equals("1") || mensaje.equals("SI") || mensaje.equals("SÍ")) {
+            LocalDateTime fechaHora = estado.getProximaCitaFechaHora();
+            try {
+                citaService.cancelarCita(estado.getProximaCitaId());
+                log.info("❌ Cita {} cancelada via WhatsApp por {}", estado.getProximaCitaId(), telefono);
+                messageService.enviarMensaje(telefono, templateService.generarConfirmacionCancelacion(
+                    fechaHora.format(FORMATO_FECHA), fechaHora.format(FORMATO_HORA)));
+            } catch (Exception e) {
+                log.error("Error cancelando cita {}: {}", estado.getProximaCitaId(), e.getMessage(), e);
+                messageService.enviarMensaje(telefono, WhatsAppConstants.MENSAJE_ERROR_GENERAL);
+            }
+            conversationStateService.finalizarConversacion(telefono, estado);
+        } else if (mensaje.equals("2") || mensaje.equals("NO")) {
+            estado.setEstado(ConversationStateService.EstadoConversacion.MENU);
+            messageService.enviarMensaje(telefono, "👍 Tu cita se mantiene.");
+            mostrarMenu(telefono, estado);
+        } else {
+            messageService.enviarMensaje(telefono, "⚠️ Responde 1 para cancelar la cita o 2 para conservarla");
+        }
+    }
+
     // ==================== HELPER METHODS ====================
 
-    private void mostrarMenu(String telefono) {
-        messageService.enviarMensaje(telefono, templateService.generarMenu());
+    /**
+     * Fill the patient fields from the data on file, or clear them when {@code paciente} is null
+     */
+    private void aplicarDatosPaciente(ConversationStateService.ConversacionState estado, PacienteResumen paciente) {
+        estado.setNombre(paciente != null ? paciente.nombre() : null);
+        estado.setTipoIdentificacion(paciente != null ? paciente.tipoIdentificacion() : null);
+        estado.setNumeroIdentificacion(paciente != null ? paciente.numeroIdentificacion() : null);
+        estado.setTelefonoPrincipal(paciente != null ? paciente.telefono() : null);
+        estado.setTelefonoSecundario(paciente != null ? paciente.telefono2() : null);
+        estado.setDireccion(paciente != null ? paciente.direccion() : null);
+        estado.setFechaNacimiento(paciente != null ? paciente.fechaNacimiento() : null);
+        estado.setEps(paciente != null ? paciente.eps() : null);
+        estado.setEmail(paciente != null ? paciente.email() : null);
+    }
+
+    private void irATipoCita(String telefono, ConversationStateService.ConversacionState estado, String saludo) {
+        estado.guardarEstadoEnHistorial();
+        estado.setEstado(ConversationStateService.EstadoConversacion.ESPERANDO_TIPO_CITA);
+        messageService.enviarMensaje(telefono, saludo + "\n\n" + templateService.generarPromptTipoCita());
+    }
+
+    private void mostrarMenu(String telefono, ConversationStateService.ConversacionState estado) {
+        if (estado.getProximaCitaId() == null) {
+            // Never waits: an appointment still loading is offered from the next menu on
+            perfilPrefetcher.aplicar(telefono, estado);
+        }
+        messageService.enviarMensaje(telefono, estado.getProximaCitaId() != null
+            ? generarMenuConCita(estado.getProximaCitaFechaHora(), estado.getProximaCitaDoctor())
+            : templateService.generarMenu());
+    }
+
+    private String generarMenuConCita(LocalDateTime fechaHora, String doctor) {
+        return templateService.generarMenuConCita(fechaHora.format(FORMATO_FECHA), fechaHora.format(FORMATO_HORA), doctor);
     }
 
     private void reenviarPromptActual(String telefono, ConversationStateService.ConversacionState estado) {
@@ -456,6 +665,29 @@ public class WhatsAppFlowService {
         messageService.enviarMensaje(telefono, prompt);
     }
 
+    /**
+     * After a reschedule is booked, cancel the appointment it replaces
+     * A failure here leaves both appointments active, which staff can fix; the new one is never lost
+     */
+    private void cancelarCitaReagendada(String telefono, ConversationStateService.ConversacionState estado) {
+        Long citaId = estado.getReagendarCitaId();
+        if (citaId == null) {
+            return;
+        }
+        try {
+            citaService.cancelarCita(citaId);
+            estado.setReagendarCitaId(null);
+            if (citaId.equals(estado.getProximaCitaId())) {
+                LocalDateTime anterior = estado.getProximaCitaFechaHora();
+                messageService.enviarMensaje(telefono, String.format("🔄 Tu cita anterior del %s a las %s fue cancelada.",
+                    anterior.format(FORMATO_FECHA), anterior.format(FORMATO_HORA)));
+            }
+            log.info("🔄 Cita {} reagendada via WhatsApp por {}", citaId, telefono);
+        } catch (Exception e) {
+            log.error("Error cancelando la cita reagendada {}: {}", citaId, e.getMessage(), e);
+        }
+    }
+
     private void crearCitaCompleto(String telefono, ConversationStateService.ConversacionState estado) {
         try {
             // Convert fechaCita (LocalDate) and horaCita (String) to LocalDateTime
@@ -482,6 +714,7 @@ public class WhatsAppFlowService {
             request.setEmail(estado.getEmail());
 
             citaService.crearCitaCompleta(request);
+            conversationFunnel.citaAgendada(estado.getEstado());
 
             log.info("✅ Cita creada para {} con doctor {} el {} a las {}",
                 estado.getNombre(), estado.getDoctor(),
@@ -499,6 +732,8 @@ public class WhatsAppFlowService {
                 )
             );
 
+            cancelarCitaReagendada(telefono, estado);
+
             // Send email confirmation if patient provided email
             if (estado.getEmail() != null && !estado.getEmail().isBlank()) {
                 try {
@@ -1,24 +1,41 @@
 package com.chatbox.citas.service.whatsapp;
 
 import com.chatbox.citas.config.WhatsAppConfig;
+import com.chatbox.citas.constants.MetricsConstants;
+import com.chatbox.citas.service.traza.Traza;
+import com.chatbox.citas.service.traza.TrazaContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Service responsible for WhatsApp API communication
  * Handles all message sending operations
+ *
+ * Replies are sent inline, blocking until the Graph API answers. The reactive webhook instead
+ * collects the replies of a turn with {@link #diferirEnvios} and sends them with {@link #enviarEnOrden}.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class WhatsAppMessageService {
 
+    // Replies collected for the turn running on this thread; null when replies are sent inline
+    private static final ThreadLocal<List<Envio>> DIFERIDOS = new ThreadLocal<>();
+
     private final WhatsAppConfig config;
     private final WebClient.Builder webClientBuilder;
+    private final MeterRegistry meterRegistry;
 
     /**
      * Send a text message to a WhatsApp number
@@ -26,41 +43,124 @@ public class WhatsAppMessageService {
      * @param mensaje Message content
      */
     public void enviarMensaje(String telefono, String mensaje) {
+        List<Envio> diferidos = DIFERIDOS.get();
+        if (diferidos != null) {
+            diferidos.add(new Envio(telefono, mensaje));
+            return;
+        }
+
+        Timer.Sample muestra = Timer.start(meterRegistry);
+        String serie = MetricsConstants.STATUS_SIN_RESPUESTA;
+        String outcome = MetricsConstants.OUTCOME_ERROR;
+        TrazaContext.Tramo tramo = TrazaContext.abrir("graph-api enviarMensaje");
         try {
-            String telefonoFormateado = formatearTelefono(telefono);
-
-            String requestBody = String.format(
-                "{\"messaging_product\": \"whatsapp\", \"to\": \"%s\", \"type\": \"text\", \"text\": {\"body\": \"%s\"}}",
-                telefonoFormateado,
-                escaparJson(mensaje)
-            );
-
-            WebClient webClient = webClientBuilder
-                .baseUrl(config.getBaseUrl())
-                .defaultHeader("Authorization", "Bearer " + config.getApiToken())
-                .build();
-
-            String response = webClient.post()
-                .uri(config.getApiUrl())
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(requestBody)
-                .retrieve()
-                .onStatus(
-                    status -> status.is4xxClientError() || status.is5xxServerError(),
-                    clientResponse -> {
-                        log.error("Error enviando mensaje a WhatsApp: {}", clientResponse.statusCode());
-                        return Mono.empty();
-                    }
-                )
-                .bodyToMono(String.class)
-                .block();
-
-            log.info("Mensaje enviado a {}: {}", telefono, response);
+            ResponseEntity<String> response = peticion(telefono, mensaje).block();
+
+            if (response != null) {
+                serie = response.getStatusCode().value() / 100 + "xx";
+                if (response.getStatusCode().is2xxSuccessful()) {
+                    outcome = MetricsConstants.OUTCOME_OK;
+                }
+            }
+            log.info("Mensaje enviado a {}: {}", telefono, response != null ? response.getBody() : null);
 
         } catch (Exception e) {
             log.error("Error enviando mensaje de WhatsApp: {}", e.getMessage(), e);
             throw new RuntimeException("Error enviando mensaje a WhatsApp", e);
+        } finally {
+            if (!MetricsConstants.OUTCOME_OK.equals(outcome)) {
+                tramo.error();
+            }
+            tramo.close();
+            muestra.stop(meterRegistry.timer(MetricsConstants.WHATSAPP_ENVIO,
+                MetricsConstants.TAG_STATUS, serie, MetricsConstants.TAG_OUTCOME, outcome));
+        }
+    }
+
+    /**
+     * Run a turn collecting its replies instead of sending them
+     * @return the replies, in the order the turn produced them
+     */
+    public List<Envio> diferirEnvios(Runnable turno) {
+        List<Envio> envios = new ArrayList<>();
+        DIFERIDOS.set(envios);
+        try {
+            turno.run();
+        } finally {
+            DIFERIDOS.remove();
         }
+        return envios;
+    }
+
+    /**
+     * Send replies one after another without blocking a thread while the Graph API answers
+     * A failed reply stops the rest, as it does when sending inline
+     * @param traza trace receiving one span per reply, may be null
+     */
+    public Mono<Void> enviarEnOrden(List<Envio> envios, Traza traza) {
+        return Flux.fromIterable(envios)
+            .concatMap(envio -> enviarReactivo(envio, traza))
+            .then();
+    }
+
+    private Mono<Void> enviarReactivo(Envio envio, Traza traza) {
+        return Mono.defer(() -> {
+            Timer.Sample muestra = Timer.start(meterRegistry);
+            long inicio = System.nanoTime();
+            return peticion(envio.telefono(), envio.mensaje())
+                .doOnSuccess(response -> {
+                    String serie = response != null
+                        ? response.getStatusCode().value() / 100 + "xx"
+                        : MetricsConstants.STATUS_SIN_RESPUESTA;
+                    boolean ok = response != null && response.getStatusCode().is2xxSuccessful();
+                    log.info("Mensaje enviado a {}: {}", envio.telefono(), response != null ? response.getBody() : null);
+                    registrarEnvio(muestra, inicio, traza, serie, ok);
+                })
+                .doOnError(e -> {
+                    log.error("Error enviando mensaje de WhatsApp: {}", e.getMessage(), e);
+                    registrarEnvio(muestra, inicio, traza, MetricsConstants.STATUS_SIN_RESPUESTA, false);
+                })
+                .onErrorMap(e -> new RuntimeException("Error enviando mensaje a WhatsApp", e))
+                .then();
+        });
+    }
+
+    private void registrarEnvio(Timer.Sample muestra, long inicioNanos, Traza traza, String serie, boolean ok) {
+        TrazaContext.registrar(traza, "graph-api enviarMensaje", System.nanoTime() - inicioNanos, !ok);
+        muestra.stop(meterRegistry.timer(MetricsConstants.WHATSAPP_ENVIO, MetricsConstants.TAG_STATUS, serie,
+            MetricsConstants.TAG_OUTCOME, ok ? MetricsConstants.OUTCOME_OK : MetricsConstants.OUTCOME_ERROR));
+    }
+
+    /**
+     * Graph API call for one text message; error statuses are logged and returned, not raised
+     */
+    private Mono<ResponseEntity<String>> peticion(String telefono, String mensaje) {
+        String telefonoFormateado = formatearTelefono(telefono);
+
+        String requestBody = String.format(
+            "{\"messaging_product\": \"whatsapp\", \"to\": \"%s\", \"type\": \"text\", \"text\": {\"body\": \"%s\"}}",
+            telefonoFormateado,
+            escaparJson(mensaje)
+        );
+
+        WebClient webClient = webClientBuilder
+            .baseUrl(config.getBaseUrl())
+            .defaultHeader("Authorization", "Bearer " + config.getApiToken())
+            .build();
+
+        return webClient.post()
+            .uri(config.getApiUrl())
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(requestBody)
+            .retrieve()
+            .onStatus(
+                status -> status.is4xxClientError() || status.is5xxServerError(),
+                clientResponse -> {
+                    log.error("Error enviando mensaje a WhatsApp: {}", clientResponse.statusCode());
+                    return Mono.empty();
+                }
+            )
+            .toEntity(String.class);
     }
 
     /**
@@ -99,4 +199,9 @@ public class WhatsAppMessageService {
             .replace("\n", "\\n")
             .replace("\r", "\\r");
     }
+
+    /**
+     * A reply collected during a turn
+     */
+    public record Envio(String telefono, String mensaje) {}
 }
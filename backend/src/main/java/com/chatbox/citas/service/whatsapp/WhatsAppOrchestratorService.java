@@ -1,13 +1,19 @@
 package com.chatbox.citas.service.whatsapp;
 
 import com.chatbox.citas.config.WhatsAppConfig;
+import com.chatbox.citas.constants.MetricsConstants;
 import com.chatbox.citas.constants.WhatsAppConstants;
+import com.chatbox.citas.service.traza.TrazaContext;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+
 /**
  * Orchestrator service for WhatsApp integration
  * Coordinates all WhatsApp-related services and handles webhook processing
@@ -17,12 +23,19 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class WhatsAppOrchestratorService {
 
+    // How long /stats reuses the conversation and message counts it last read
+    private static final long CONTEOS_TTL_MS = 5_000;
+
     private final WhatsAppConfig config;
     private final ConversationStateService conversationStateService;
     private final WhatsAppMessageService messageService;
     private final WhatsAppTemplateService templateService;
     private final WhatsAppFlowService flowService;
+    private final ConversationFunnel conversationFunnel;
     private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private volatile Conteos conteos;
 
     /**
      * Verify webhook token
@@ -39,6 +52,48 @@ public class WhatsAppOrchestratorService {
      */
     public void procesarWebhook(String payload) {
         try {
+            MensajeEntrante mensaje = extraerMensaje(payload);
+            if (mensaje == null) {
+                return;
+            }
+
+            // Check if message was already processed (deduplication)
+            boolean nuevo = conversationStateService.shouldProcessMessage(mensaje.id());
+            meterRegistry.counter(MetricsConstants.WHATSAPP_DEDUP, MetricsConstants.TAG_OUTCOME,
+                nuevo ? MetricsConstants.DEDUP_NUEVO : MetricsConstants.DEDUP_DUPLICADO).increment();
+            if (!nuevo) {
+                return;
+            }
+
+            log.info("Mensaje recibido de {}: {}", mensaje.from(), mensaje.text());
+            // /actuator/traces is not authenticated: enough of the number to tell senders apart, not to reach them
+            TrazaContext.anotar("telefono", enmascararTelefono(mensaje.from()));
+
+            // Process the message through the flow service
+            flowService.procesarMensaje(mensaje.from(), mensaje.text());
+        } catch (Exception e) {
+            log.error("Error procesando webhook: {}", e.getMessage(), e);
+            throw new RuntimeException("Error procesando webhook de WhatsApp", e);
+        }
+    }
+
+    /**
+     * Hide all but the last four digits of a phone number, e.g. 573001234567 -> ********4567
+     */
+    static String enmascararTelefono(String telefono) {
+        int visibles = Math.min(4, telefono.length());
+        return "*".repeat(telefono.length() - visibles) + telefono.substring(telefono.length() - visibles);
+    }
+
+    /**
+     * Extract the first message of a webhook payload
+     * @return null for payloads without a message (delivery statuses, read receipts)
+     */
+    private MensajeEntrante extraerMensaje(String payload) throws IOException {
+        Timer.Sample muestra = Timer.start(meterRegistry);
+        String tipo = MetricsConstants.TIPO_OTRO;
+        String outcome = MetricsConstants.OUTCOME_ERROR;
+        try (TrazaContext.Tramo tramo = TrazaContext.abrir("parse")) {
             JsonNode root = objectMapper.readTree(payload);
 
             JsonNode entry = root.path("entry");
@@ -50,31 +105,26 @@ public class WhatsAppOrchestratorService {
 
                     if (messages.isArray() && messages.size() > 0) {
                         JsonNode message = messages.get(0);
-                        String messageId = message.path("id").asText();
-                        String from = message.path("from").asText();
-                        String text = message.path("text").path("body").asText();
-
-                        // Check if message was already processed (deduplication)
-                        if (!conversationStateService.shouldProcessMessage(messageId)) {
-                            return;
-                        }
-
-                        // Clean up old processed messages
-                        conversationStateService.limpiarMensajesProcesados();
-
-                        log.info("Mensaje recibido de {}: {}", from, text);
-
-                        // Process the message through the flow service
-                        flowService.procesarMensaje(from, text);
+                        tipo = MetricsConstants.TIPO_MENSAJE;
+                        outcome = MetricsConstants.OUTCOME_OK;
+                        return new MensajeEntrante(
+                            message.path("id").asText(),
+                            message.path("from").asText(),
+                            message.path("text").path("body").asText()
+                        );
                     }
                 }
             }
-        } catch (Exception e) {
-            log.error("Error procesando webhook: {}", e.getMessage(), e);
-            throw new RuntimeException("Error procesando webhook de WhatsApp", e);
+            outcome = MetricsConstants.OUTCOME_OK;
+            return null;
+        } finally {
+            muestra.stop(meterRegistry.timer(MetricsConstants.WHATSAPP_WEBHOOK_PARSE,
+                MetricsConstants.TAG_TIPO, tipo, MetricsConstants.TAG_OUTCOME, outcome));
         }
     }
 
+    private record MensajeEntrante(String id, String from, String text) {}
+
     /**
      * Send appointment confirmation message
      */
@@ -114,17 +164,40 @@ public class WhatsAppOrchestratorService {
     }
 
     /**
-     * Get statistics about current state
+     * Get statistics about current state, including the conversation funnel
+     * The two counts are up to 5 seconds old: reading them scans the deduplication table under
+     * the lock every webhook takes, and counts the store (a COUNT(*) with the JDBC store), so
+     * dashboards polling /stats share one reading. The funnel is always live.
      */
     public WhatsAppStats getStats() {
-        return new WhatsAppStats(
-            conversationStateService.getActiveConversationsCount(),
-            conversationStateService.getProcessedMessagesCount()
-        );
+        Conteos actuales = conteosRecientes();
+        return new WhatsAppStats(actuales.conversaciones(), actuales.mensajes(), conversationFunnel.resumen());
+    }
+
+    private Conteos conteosRecientes() {
+        Conteos actuales = conteos;
+        if (actuales != null && System.currentTimeMillis() - actuales.leidoEn() < CONTEOS_TTL_MS) {
+            return actuales;
+        }
+        synchronized (this) {
+            // Callers that queued behind the refresh take its result
+            actuales = conteos;
+            long ahora = System.currentTimeMillis();
+            if (actuales == null || ahora - actuales.leidoEn() >= CONTEOS_TTL_MS) {
+                actuales = new Conteos(
+                    conversationStateService.getActiveConversationsCount(),
+                    conversationStateService.getProcessedMessagesCount(),
+                    ahora);
+                conteos = actuales;
+            }
+            return actuales;
+        }
     }
 
+    private record Conteos(int conversaciones, int mensajes, long leidoEn) {}
+
     /**
      * Record for WhatsApp statistics
      */
-    public record WhatsAppStats(int activeConversations, int processedMessages) {}
+    public record WhatsAppStats(int activeConversations, int processedMessages, ConversationFunnel.Resumen funnel) {}
 }
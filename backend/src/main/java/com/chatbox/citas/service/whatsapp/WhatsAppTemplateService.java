@@ -26,6 +26,27 @@ public class WhatsAppTemplateService {
         return WhatsAppConstants.MENU_TEMPLATE;
     }
 
+    /**
+     * Generate main menu offering to reschedule or cancel the sender's upcoming appointment
+     */
+    public String generarMenuConCita(String fecha, String hora, String doctor) {
+        return String.format(WhatsAppConstants.MENU_CON_CITA_TEMPLATE, fecha, hora, doctor, fecha, fecha);
+    }
+
+    /**
+     * Generate prompt confirming the cancellation of the upcoming appointment
+     */
+    public String generarPromptCancelarCita(String fecha, String hora, String doctor) {
+        return String.format("""
+            ❓ ¿Confirmas que deseas cancelar tu cita del %s a las %s con %s?
+
+            1️⃣ SÍ - Cancelar la cita
+            2️⃣ NO - Conservarla
+
+            Responde con el número de opción
+            """, fecha, hora, doctor);
+    }
+
     /**
      * Generate appointment confirmation message
      */
@@ -76,7 +97,7 @@ public class WhatsAppTemplateService {
             📋 %s: %s
             👤 Nombre: %s
             📱 Teléfono: %s
-            %s
+            %s%s
             📍 Dirección: %s
             📅 Fecha Nacimiento: %s
             🏥 EPS: %s
@@ -100,6 +121,7 @@ public class WhatsAppTemplateService {
             estado.getNombre(),
             estado.getTelefonoPrincipal(),
             estado.getTelefonoSecundario() != null ? "📱 Teléfono 2: " + estado.getTelefonoSecundario() : "",
+            estado.getEmail() != null && !estado.getEmail().isBlank() ? "\n📧 Email: " + estado.getEmail() : "",
             estado.getDireccion(),
             estado.getFechaNacimiento().format(FORMATO_FECHA),
             estado.getEps(),
@@ -126,10 +148,28 @@ public class WhatsAppTemplateService {
             case ESPERANDO_TIPO_CITA -> "👨‍⚕️ 1. PRIMERA VEZ o 2. CONTROL:";
             case ESPERANDO_FECHA_CITA -> "📅 Escribe la fecha de la cita (dd-mm-yyyy):";
             case ESPERANDO_SELECCION_DOCTOR -> "⏰ Responde con el número de doctor seleccionado";
+            case CONFIRMAR_DATOS_PACIENTE -> "👤 1. Usar mis datos registrados o 2. Ingresar otros datos:";
+            case CONFIRMAR_CANCELACION_CITA -> "❓ 1. SÍ cancelar la cita o 2. NO conservarla:";
             default -> "Enviando menú principal...";
         };
     }
 
+    /**
+     * Generate prompt offering a returning patient to book with the data on file
+     */
+    public String generarPromptDatosRegistrados(String nombre, String tipoIdentificacion, String numeroIdentificacion) {
+        return String.format("""
+            👋 ¡Hola de nuevo, %s!
+
+            Ya tenemos tus datos registrados (%s %s).
+
+            1️⃣ Agendar con mis datos
+            2️⃣ La cita es para otra persona
+
+            Responde con el número de opción
+            """, nombre, tipoIdentificacion, numeroIdentificacion);
+    }
+
     /**
      * Generate document type prompt
      */
@@ -0,0 +1,293 @@
+package com.chatbox.citas.service.whatsapp.store;
+
+import com.chatbox.citas.service.whatsapp.ConversationStateService.ConversacionState;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.EstadoConversacion;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.OpcionDoctor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Versioned binary codec for conversation state (default codec of persistent stores)
+ *
+ * Layout of version 2, in order:
+ * <pre>
+ * byte     version
+ * byte     estado ordinal
+ * long     lastActivity (epoch millis, big endian)
+ * string   tipoIdentificacion, numeroIdentificacion, nombre, telefonoPrincipal, telefonoSecundario,
+ *          direccion, eps, email, tipoCita, horaCita, doctor
+ * date     fechaNacimiento, fechaCita
+ * varint   opcionesDoctor size + 1 (0 = null), then doctor, hora, especialidad strings per option
+ * varint   history size, then one ordinal byte per state, oldest first
+ * long     proximaCitaId (0 = null)
+ * datetime proximaCitaFechaHora
+ * string   proximaCitaDoctor
+ * long     reagendarCitaId (0 = null)
+ * </pre>
+ * Version 1 is the same layout without the last four fields and is still read.
+ * Strings are a varint of the UTF-8 length + 1 (0 = null) followed by the bytes;
+ * dates are an int epoch day with {@link Integer#MIN_VALUE} for null; date-times are a long
+ * epoch second (taken as UTC) with {@link Long#MIN_VALUE} for null.
+ * Enum ordinals are stored, so new states must only ever be appended to {@link EstadoConversacion}.
+ */
+@Component
+@ConditionalOnProperty(name = "whatsapp.conversation.store.codec", havingValue = "binary", matchIfMissing = true)
+public class BinaryConversationStateCodec implements ConversationStateCodec {
+
+    static final byte VERSION = 2;
+    private static final byte VERSION_SIN_CITA = 1;
+
+    private static final int NULL_DATE = Integer.MIN_VALUE;
+    private static final long NULL_DATE_TIME = Long.MIN_VALUE;
+    private static final EstadoConversacion[] ESTADOS = EstadoConversacion.values();
+
+    @Override
+    public byte[] encode(ConversacionState estado) {
+        Writer out = new Writer(128);
+        out.writeByte(VERSION);
+        out.writeByte(estado.getEstado().ordinal());
+        out.writeLong(estado.getLastActivity());
+
+        out.writeString(estado.getTipoIdentificacion());
+        out.writeString(estado.getNumeroIdentificacion());
+        out.writeString(estado.getNombre());
+        out.writeString(estado.getTelefonoPrincipal());
+        out.writeString(estado.getTelefonoSecundario());
+        out.writeString(estado.getDireccion());
+        out.writeString(estado.getEps());
+        out.writeString(estado.getEmail());
+        out.writeString(estado.getTipoCita());
+        out.writeString(estado.getHoraCita());
+        out.writeString(estado.getDoctor());
+
+        out.writeDate(estado.getFechaNacimiento());
+        out.writeDate(estado.getFechaCita());
+
+        List<OpcionDoctor> opciones = estado.getOpcionesDoctor();
+        if (opciones == null) {
+            out.writeVarInt(0);
+        } else {
+            out.writeVarInt(opciones.size() + 1);
+            for (OpcionDoctor opcion : opciones) {
+                out.writeString(opcion.doctor());
+                out.writeString(opcion.hora());
+                out.writeString(opcion.especialidad());
+            }
+        }
+
+        List<EstadoConversacion> historial = estado.getHistorialEstados();
+        out.writeVarInt(historial.size());
+        for (EstadoConversacion anterior : historial) {
+            out.writeByte(anterior.ordinal());
+        }
+
+        out.writeLong(idOCero(estado.getProximaCitaId()));
+        out.writeDateTime(estado.getProximaCitaFechaHora());
+        out.writeString(estado.getProximaCitaDoctor());
+        out.writeLong(idOCero(estado.getReagendarCitaId()));
+
+        return out.toByteArray();
+    }
+
+    @Override
+    public ConversacionState decode(byte[] datos) {
+        Reader in = new Reader(datos);
+        int version = in.readByte();
+        if (version != VERSION && version != VERSION_SIN_CITA) {
+            throw new IllegalArgumentException("Versión de conversación no soportada: " + version);
+        }
+
+        ConversacionState estado = new ConversacionState(ESTADOS[in.readByte()]);
+        estado.setLastActivity(in.readLong());
+
+        estado.setTipoIdentificacion(in.readString());
+        estado.setNumeroIdentificacion(in.readString());
+        estado.setNombre(in.readString());
+        estado.setTelefonoPrincipal(in.readString());
+        estado.setTelefonoSecundario(in.readString());
+        estado.setDireccion(in.readString());
+        estado.setEps(in.readString());
+        estado.setEmail(in.readString());
+        estado.setTipoCita(in.readString());
+        estado.setHoraCita(in.readString());
+        estado.setDoctor(in.readString());
+
+        estado.setFechaNacimiento(in.readDate());
+        estado.setFechaCita(in.readDate());
+
+        int opcionesMasUno = in.readVarInt();
+        if (opcionesMasUno > 0) {
+            List<OpcionDoctor> opciones = new ArrayList<>(opcionesMasUno - 1);
+            for (int i = 1; i < opcionesMasUno; i++) {
+                opciones.add(new OpcionDoctor(in.readString(), in.readString(), in.readString()));
+            }
+            estado.setOpcionesDoctor(opciones);
+        }
+
+        int historialSize = in.readVarInt();
+        List<EstadoConversacion> historial = new ArrayList<>(historialSize);
+        for (int i = 0; i < historialSize; i++) {
+            historial.add(ESTADOS[in.readByte()]);
+        }
+        estado.restaurarHistorial(historial);
+
+        if (version >= VERSION) {
+            Long proximaCitaId = ceroANull(in.readLong());
+            estado.setProximaCita(proximaCitaId, in.readDateTime(), in.readString());
+            estado.setReagendarCitaId(ceroANull(in.readLong()));
+        }
+
+        return estado;
+    }
+
+    private static long idOCero(Long id) {
+        return id == null ? 0L : id;
+    }
+
+    private static Long ceroANull(long id) {
+        return id == 0L ? null : id;
+    }
+
+    /**
+     * Growable big-endian byte writer
+     */
+    private static final class Writer {
+        private byte[] buf;
+        private int pos;
+
+        Writer(int capacidadInicial) {
+            this.buf = new byte[capacidadInicial];
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void writeLong(long v) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[pos++] = (byte) (v >>> shift);
+            }
+        }
+
+        void writeInt(int v) {
+            ensure(4);
+            buf[pos++] = (byte) (v >>> 24);
+            buf[pos++] = (byte) (v >>> 16);
+            buf[pos++] = (byte) (v >>> 8);
+            buf[pos++] = (byte) v;
+        }
+
+        void writeVarInt(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void writeString(String s) {
+            if (s == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(utf8.length + 1);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, buf, pos, utf8.length);
+            pos += utf8.length;
+        }
+
+        void writeDate(LocalDate fecha) {
+            writeInt(fecha == null ? NULL_DATE : (int) fecha.toEpochDay());
+        }
+
+        void writeDateTime(LocalDateTime fechaHora) {
+            writeLong(fechaHora == null ? NULL_DATE_TIME : fechaHora.toEpochSecond(ZoneOffset.UTC));
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+    }
+
+    /**
+     * Big-endian reader matching {@link Writer}
+     */
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        int readByte() {
+            return buf[pos++] & 0xFF;
+        }
+
+        long readLong() {
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | (buf[pos++] & 0xFF);
+            }
+            return v;
+        }
+
+        int readInt() {
+            return ((buf[pos++] & 0xFF) << 24)
+                | ((buf[pos++] & 0xFF) << 16)
+                | ((buf[pos++] & 0xFF) << 8)
+                | (buf[pos++] & 0xFF);
+        }
+
+        int readVarInt() {
+            int v = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = buf[pos++];
+                v |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return v;
+                }
+            }
+            throw new IllegalArgumentException("VarInt inválido en la conversación serializada");
+        }
+
+        String readString() {
+            int longitudMasUno = readVarInt();
+            if (longitudMasUno == 0) {
+                return null;
+            }
+            int longitud = longitudMasUno - 1;
+            String s = new String(buf, pos, longitud, StandardCharsets.UTF_8);
+            pos += longitud;
+            return s;
+        }
+
+        LocalDate readDate() {
+            int epochDay = readInt();
+            return epochDay == NULL_DATE ? null : LocalDate.ofEpochDay(epochDay);
+        }
+
+        LocalDateTime readDateTime() {
+            long epochSecond = readLong();
+            return epochSecond == NULL_DATE_TIME ? null : LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.chatbox.citas.service.whatsapp.store;
+
+import com.chatbox.citas.service.whatsapp.ConversationStateService.ConversacionState;
+
+/**
+ * Converts a conversation state to and from the bytes kept by persistent stores
+ */
+public interface ConversationStateCodec {
+
+    byte[] encode(ConversacionState estado);
+
+    ConversacionState decode(byte[] datos);
+}
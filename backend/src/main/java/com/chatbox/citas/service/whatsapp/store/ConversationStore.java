@@ -0,0 +1,41 @@
+package com.chatbox.citas.service.whatsapp.store;
+
+import com.chatbox.citas.service.whatsapp.ConversationStateService.ConversacionState;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Storage backend for WhatsApp conversation state
+ * Selected with whatsapp.conversation.store (memory by default, jdbc for restarts and multiple instances)
+ */
+public interface ConversationStore {
+
+    /**
+     * Find the conversation for a phone number, expired or not
+     */
+    Optional<ConversacionState> buscar(String telefono);
+
+    /**
+     * Store the current state of a conversation after it was modified
+     */
+    void guardar(String telefono, ConversacionState estado);
+
+    /**
+     * Remove a conversation
+     */
+    void eliminar(String telefono);
+
+    /**
+     * Remove every conversation whose last activity is older than the given instant
+     * @param limiteMillis epoch millis; conversations idle since before it are removed
+     * @param expirada     called with each removed conversation that could be read
+     * @return number of conversations removed
+     */
+    int eliminarExpiradas(long limiteMillis, Consumer<ConversacionState> expirada);
+
+    /**
+     * Number of stored conversations
+     */
+    int contar();
+}
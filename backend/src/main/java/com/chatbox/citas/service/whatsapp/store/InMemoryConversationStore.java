@@ -0,0 +1,54 @@
+package com.chatbox.citas.service.whatsapp.store;
+
+import com.chatbox.citas.service.whatsapp.ConversationStateService.ConversacionState;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Default conversation store kept in the JVM heap
+ * State is lost on restart and not shared between instances
+ */
+@Component
+@ConditionalOnProperty(name = "whatsapp.conversation.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryConversationStore implements ConversationStore {
+
+    private final ConcurrentHashMap<String, ConversacionState> conversaciones = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<ConversacionState> buscar(String telefono) {
+        return Optional.ofNullable(conversaciones.get(telefono));
+    }
+
+    @Override
+    public void guardar(String telefono, ConversacionState estado) {
+        conversaciones.put(telefono, estado);
+    }
+
+    @Override
+    public void eliminar(String telefono) {
+        conversaciones.remove(telefono);
+    }
+
+    @Override
+    public int eliminarExpiradas(long limiteMillis, Consumer<ConversacionState> expirada) {
+        int[] eliminadas = {0};
+        conversaciones.values().removeIf(estado -> {
+            if (estado.getLastActivity() >= limiteMillis) {
+                return false;
+            }
+            expirada.accept(estado);
+            eliminadas[0]++;
+            return true;
+        });
+        return eliminadas[0];
+    }
+
+    @Override
+    public int contar() {
+        return conversaciones.size();
+    }
+}
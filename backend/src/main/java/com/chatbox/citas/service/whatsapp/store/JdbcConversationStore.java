@@ -0,0 +1,242 @@
+package com.chatbox.citas.service.whatsapp.store;
+
+import com.chatbox.citas.service.whatsapp.ConversationStateService.ConversacionState;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Conversation store backed by PostgreSQL so sessions survive redeploys and are visible to every instance
+ *
+ * Writes are buffered and flushed in JDBC batches every flush interval (write-behind).
+ * Reads check the pending buffer first, so an instance always sees its own unflushed writes.
+ * An optional local cache keeps decoded states in memory; enable it only when messages from
+ * one phone are routed to the same instance, otherwise another instance's writes are not seen.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "whatsapp.conversation.store", havingValue = "jdbc")
+public class JdbcConversationStore implements ConversationStore {
+
+    private static final String CREATE_TABLE_SQL = """
+        CREATE TABLE IF NOT EXISTS conversaciones_whatsapp (
+            telefono VARCHAR(32) PRIMARY KEY,
+            datos BYTEA NOT NULL,
+            ultima_actividad BIGINT NOT NULL
+        )
+        """;
+    private static final String CREATE_INDEX_SQL =
+        "CREATE INDEX IF NOT EXISTS idx_conversaciones_whatsapp_actividad ON conversaciones_whatsapp (ultima_actividad)";
+    private static final String SELECT_SQL =
+        "SELECT datos FROM conversaciones_whatsapp WHERE telefono = ?";
+    private static final String UPSERT_SQL = """
+        INSERT INTO conversaciones_whatsapp (telefono, datos, ultima_actividad) VALUES (?, ?, ?)
+        ON CONFLICT (telefono) DO UPDATE SET datos = EXCLUDED.datos, ultima_actividad = EXCLUDED.ultima_actividad
+        """;
+    private static final String DELETE_SQL =
+        "DELETE FROM conversaciones_whatsapp WHERE telefono = ?";
+    private static final String DELETE_EXPIRED_SQL =
+        "DELETE FROM conversaciones_whatsapp WHERE ultima_actividad < ? RETURNING datos";
+    private static final String COUNT_SQL =
+        "SELECT COUNT(*) FROM conversaciones_whatsapp";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConversationStateCodec codec;
+    private final boolean cacheEnabled;
+    private final int batchSize;
+
+    // Writes not yet flushed; a null payload marks a pending delete
+    private final ConcurrentHashMap<String, Pendiente> pendientes = new ConcurrentHashMap<>();
+
+    // Batch currently being written, still visible to readers until the flush finishes
+    private volatile Map<String, Pendiente> enVuelo = Map.of();
+
+    // One flush at a time; a lock rather than synchronized so a virtual thread blocked on JDBC does not pin its carrier
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // Optional read-through cache of decoded states
+    private final ConcurrentHashMap<String, ConversacionState> cache = new ConcurrentHashMap<>();
+
+    public JdbcConversationStore(
+        JdbcTemplate jdbcTemplate,
+        ConversationStateCodec codec,
+        @Value("${whatsapp.conversation.store.cache-enabled:false}") boolean cacheEnabled,
+        @Value("${whatsapp.conversation.store.batch-size:100}") int batchSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.codec = codec;
+        this.cacheEnabled = cacheEnabled;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void crearTabla() {
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+        jdbcTemplate.execute(CREATE_INDEX_SQL);
+        log.info("✅ Conversation store JDBC inicializado (cache local: {})", cacheEnabled);
+    }
+
+    @Override
+    public Optional<ConversacionState> buscar(String telefono) {
+        Pendiente pendiente = pendientes.get(telefono);
+        if (pendiente == null) {
+            pendiente = enVuelo.get(telefono);
+        }
+        if (pendiente != null && pendiente.esEliminacion()) {
+            return Optional.empty();
+        }
+
+        if (cacheEnabled) {
+            ConversacionState enCache = cache.get(telefono);
+            if (enCache != null) {
+                return Optional.of(enCache);
+            }
+        }
+
+        byte[] datos = pendiente != null
+            ? pendiente.datos()
+            : jdbcTemplate.query(SELECT_SQL, rs -> rs.next() ? rs.getBytes(1) : null, telefono);
+
+        if (datos == null) {
+            return Optional.empty();
+        }
+
+        ConversacionState estado;
+        try {
+            estado = codec.decode(datos);
+        } catch (RuntimeException e) {
+            // Written by another codec or an older format; the session simply starts over
+            log.warn("Conversación de {} no legible, se descarta: {}", telefono, e.getMessage());
+            return Optional.empty();
+        }
+        if (cacheEnabled) {
+            cache.put(telefono, estado);
+        }
+        return Optional.of(estado);
+    }
+
+    @Override
+    public void guardar(String telefono, ConversacionState estado) {
+        // Encode now so later in-place changes do not leak into the pending write
+        pendientes.put(telefono, new Pendiente(codec.encode(estado), estado.getLastActivity()));
+        if (cacheEnabled) {
+            cache.put(telefono, estado);
+        }
+    }
+
+    @Override
+    public void eliminar(String telefono) {
+        pendientes.put(telefono, Pendiente.ELIMINACION);
+        cache.remove(telefono);
+    }
+
+    @Override
+    public int eliminarExpiradas(long limiteMillis, Consumer<ConversacionState> expirada) {
+        cache.values().removeIf(estado -> estado.getLastActivity() < limiteMillis);
+        // Rows come back so callers can see the state each session expired in
+        List<byte[]> eliminadas = jdbcTemplate.query(DELETE_EXPIRED_SQL, (rs, fila) -> rs.getBytes(1), limiteMillis);
+        for (byte[] datos : eliminadas) {
+            try {
+                expirada.accept(codec.decode(datos));
+            } catch (RuntimeException e) {
+                log.debug("Conversación expirada no legible: {}", e.getMessage());
+            }
+        }
+        return eliminadas.size();
+    }
+
+    @Override
+    public int contar() {
+        Integer total = jdbcTemplate.queryForObject(COUNT_SQL, Integer.class);
+        return total != null ? total : 0;
+    }
+
+    /**
+     * Flush pending writes as JDBC batches
+     */
+    @Scheduled(fixedDelayString = "${whatsapp.conversation.store.flush-interval-ms:200}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPendientes();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPendientes() {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+
+        Map<String, Pendiente> lote = new HashMap<>();
+        for (Map.Entry<String, Pendiente> entry : pendientes.entrySet()) {
+            lote.put(entry.getKey(), entry.getValue());
+        }
+        enVuelo = lote;
+        // Only drop entries nobody replaced meanwhile
+        lote.forEach(pendientes::remove);
+
+        List<Map.Entry<String, Pendiente>> upserts = new ArrayList<>();
+        List<String> eliminaciones = new ArrayList<>();
+        for (Map.Entry<String, Pendiente> entry : lote.entrySet()) {
+            if (entry.getValue().esEliminacion()) {
+                eliminaciones.add(entry.getKey());
+            } else {
+                upserts.add(entry);
+            }
+        }
+
+        try {
+            if (!upserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, upserts, batchSize, (ps, entry) -> {
+                    ps.setString(1, entry.getKey());
+                    ps.setBytes(2, entry.getValue().datos());
+                    ps.setLong(3, entry.getValue().ultimaActividad());
+                });
+            }
+            if (!eliminaciones.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE_SQL, eliminaciones, batchSize,
+                    (ps, telefono) -> ps.setString(1, telefono));
+            }
+            log.debug("Conversaciones persistidas: {} guardadas, {} eliminadas", upserts.size(), eliminaciones.size());
+        } catch (Exception e) {
+            log.error("Error persistiendo conversaciones, se reintentará: {}", e.getMessage(), e);
+            // Re-queue without overwriting newer writes made while flushing
+            lote.forEach(pendientes::putIfAbsent);
+        } finally {
+            enVuelo = Map.of();
+        }
+    }
+
+    @PreDestroy
+    public void flushAlCerrar() {
+        flush();
+    }
+
+    /**
+     * Buffered write; {@link #ELIMINACION} stands for a delete
+     */
+    private record Pendiente(byte[] datos, long ultimaActividad) {
+
+        static final Pendiente ELIMINACION = new Pendiente(null, 0L);
+
+        boolean esEliminacion() {
+            return datos == null;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.chatbox.citas.service.whatsapp.store;
+
+import com.chatbox.citas.service.whatsapp.ConversationStateService.ConversacionState;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.EstadoConversacion;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.OpcionDoctor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Jackson codec storing conversation state as UTF-8 JSON
+ * Larger and slower than the binary codec; kept for debugging (whatsapp.conversation.store.codec=json)
+ */
+@Component
+@ConditionalOnProperty(name = "whatsapp.conversation.store.codec", havingValue = "json")
+@RequiredArgsConstructor
+public class JsonConversationStateCodec implements ConversationStateCodec {
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public byte[] encode(ConversacionState estado) {
+        try {
+            return objectMapper.writeValueAsBytes(Snapshot.from(estado));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error serializando conversación", e);
+        }
+    }
+
+    @Override
+    public ConversacionState decode(byte[] datos) {
+        try {
+            return objectMapper.readValue(datos, Snapshot.class).toState();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error deserializando conversación", e);
+        }
+    }
+
+    /**
+     * Flat copy of every field of a conversation, including its navigation history
+     */
+    record Snapshot(
+        EstadoConversacion estado,
+        long lastActivity,
+        String tipoIdentificacion,
+        String numeroIdentificacion,
+        String nombre,
+        String telefonoPrincipal,
+        String telefonoSecundario,
+        String direccion,
+        LocalDate fechaNacimiento,
+        String eps,
+        String email,
+        String tipoCita,
+        LocalDate fechaCita,
+        String horaCita,
+        String doctor,
+        List<OpcionDoctor> opcionesDoctor,
+        List<EstadoConversacion> historialEstados,
+        Long proximaCitaId,
+        LocalDateTime proximaCitaFechaHora,
+        String proximaCitaDoctor,
+        Long reagendarCitaId
+    ) {
+
+        static Snapshot from(ConversacionState s) {
+            return new Snapshot(
+                s.getEstado(), s.getLastActivity(),
+                s.getTipoIdentificacion(), s.getNumeroIdentificacion(), s.getNombre(),
+                s.getTelefonoPrincipal(), s.getTelefonoSecundario(), s.getDireccion(),
+                s.getFechaNacimiento(), s.getEps(), s.getEmail(),
+                s.getTipoCita(), s.getFechaCita(), s.getHoraCita(), s.getDoctor(),
+                s.getOpcionesDoctor(), s.getHistorialEstados(),
+                s.getProximaCitaId(), s.getProximaCitaFechaHora(), s.getProximaCitaDoctor(), s.getReagendarCitaId()
+            );
+        }
+
+        ConversacionState toState() {
+            ConversacionState s = new ConversacionState(estado);
+            s.setLastActivity(lastActivity);
+            s.setTipoIdentificacion(tipoIdentificacion);
+            s.setNumeroIdentificacion(numeroIdentificacion);
+            s.setNombre(nombre);
+            s.setTelefonoPrincipal(telefonoPrincipal);
+            s.setTelefonoSecundario(telefonoSecundario);
+            s.setDireccion(direccion);
+            s.setFechaNacimiento(fechaNacimiento);
+            s.setEps(eps);
+            s.setEmail(email);
+            s.setTipoCita(tipoCita);
+            s.setFechaCita(fechaCita);
+            s.setHoraCita(horaCita);
+            s.setDoctor(doctor);
+            s.setOpcionesDoctor(opcionesDoctor);
+            if (historialEstados != null) {
+                s.restaurarHistorial(historialEstados);
+            }
+            s.setProximaCita(proximaCitaId, proximaCitaFechaHora, proximaCitaDoctor);
+            s.setReagendarCitaId(reagendarCitaId);
+            return s;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.chatbox.citas.controller;
+
+import com.chatbox.citas.config.WhatsAppConfig;
+import com.chatbox.citas.dto.CitaResponse;
+import com.chatbox.citas.service.CitaService;
+import com.chatbox.citas.service.EmailService;
+import com.chatbox.citas.service.PacienteService;
+import com.chatbox.citas.service.ValidacionDatosService;
+import com.chatbox.citas.service.ValidacionDocumentoService;
+import com.chatbox.citas.service.paciente.PacienteResumen;
+import com.chatbox.citas.service.traza.TrazaBuffer;
+import com.chatbox.citas.service.whatsapp.ConversationFunnel;
+import com.chatbox.citas.service.whatsapp.ConversationStateService;
+import com.chatbox.citas.service.whatsapp.PerfilPrefetcher;
+import com.chatbox.citas.service.whatsapp.WhatsAppFlowService;
+import com.chatbox.citas.service.whatsapp.WhatsAppMessageService;
+import com.chatbox.citas.service.whatsapp.WhatsAppMessageService.Envio;
+import com.chatbox.citas.service.whatsapp.WhatsAppOrchestratorService;
+import com.chatbox.citas.service.whatsapp.WhatsAppTemplateService;
+import com.chatbox.citas.service.whatsapp.store.InMemoryConversationStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Webhook turns of the reactive build on two instances sharing one conversation store
+ */
+class WhatsAppWebhookHandlerTest {
+
+    private static final String TELEFONO = "573001234567";
+
+    private final InMemoryConversationStore store = new InMemoryConversationStore();
+    private final PacienteService pacienteService = mock(PacienteService.class);
+    private final CitaService citaService = mock(CitaService.class);
+    private final List<Instancia> instancias = new ArrayList<>();
+    private final AtomicInteger mensajeId = new AtomicInteger();
+
+    @AfterEach
+    void detener() {
+        instancias.forEach(Instancia::detener);
+    }
+
+    @Test
+    void elPrimerMenuNoEsperaLaPrecargaYSaleEnOrden() {
+        conProximaCita();
+        // Still loading when the menu is due
+        PacienteResumen paciente = pacienteService.buscarResumenPorTelefono(TELEFONO).orElseThrow();
+        when(pacienteService.buscarResumenPorTelefono(TELEFONO)).thenAnswer(invocacion -> {
+            Thread.sleep(200);
+            return Optional.of(paciente);
+        });
+        Instancia instancia = instancia();
+
+        List<Envio> envios = instancia.recibir("hola");
+
+        assertThat(envios).extracting(Envio::mensaje).containsExactly(new WhatsAppTemplateService().generarMenu());
+        // Nothing went out through the blocking send path
+        assertThat(instancia.peticionesGraph.get()).isEqualTo(envios.size());
+    }
+
+    @Test
+    void otraInstanciaVeLaCitaQueGuardoLaPrecarga() throws InterruptedException {
+        conProximaCita();
+        Instancia primera = instancia();
+        Instancia segunda = instancia();
+
+        primera.recibir("hola");
+        esperarCitaGuardada();
+        List<Envio> envios = segunda.recibir("4");
+
+        assertThat(envios).extracting(Envio::mensaje).singleElement().asString()
+            .contains("¿Confirmas que deseas cancelar tu cita del 28/10/2026 a las 15:30 con Dra. Ana Pérez?");
+    }
+
+    @Test
+    void laTrazaDelTurnoNoExponeElTelefono() {
+        Instancia instancia = instancia();
+
+        instancia.recibir("hola");
+
+        assertThat(instancia.trazaBuffer.recientes(0, 1)).singleElement()
+            .extracting(traza -> traza.atributos().get("telefono")).isEqualTo("********4567");
+    }
+
+    private Instancia instancia() {
+        Instancia instancia = new Instancia();
+        instancias.add(instancia);
+        return instancia;
+    }
+
+    private void conProximaCita() {
+        PacienteResumen paciente = new PacienteResumen(7L, "Andrés Peña", "CC", "1020304050", TELEFONO,
+            null, null, null, null, null);
+        CitaResponse cita = new CitaResponse();
+        cita.setId(181_234L);
+        cita.setFechaHora(LocalDateTime.of(2026, 10, 28, 15, 30));
+        cita.setDoctor("Dra. Ana Pérez");
+        when(pacienteService.buscarResumenPorTelefono(TELEFONO)).thenReturn(Optional.of(paciente));
+        when(citaService.obtenerProximaCita(7L)).thenReturn(Optional.of(cita));
+    }
+
+    private void esperarCitaGuardada() throws InterruptedException {
+        long limite = System.nanoTime() + 5_000_000_000L;
+        while (store.buscar(TELEFONO).map(ConversationStateService.ConversacionState::getProximaCitaId).isEmpty()) {
+            assertThat(System.nanoTime()).as("precarga guardada en el estado").isLessThan(limite);
+            Thread.sleep(10);
+        }
+    }
+
+    private String payload(String texto) {
+        return """
+            {"entry":[{"changes":[{"value":{"messages":[
+              {"id":"wamid.%d","from":"%s","type":"text","text":{"body":"%s"}}
+            ]}}]}]}
+            """.formatted(mensajeId.incrementAndGet(), TELEFONO, texto);
+    }
+
+    /**
+     * One application instance: its own services, dedup table and warm-ups, the shared store
+     */
+    private final class Instancia {
+
+        private final AtomicInteger peticionesGraph = new AtomicInteger();
+        private final Scheduler bloqueante = Schedulers.newBoundedElastic(2, 100, "bloqueante-test");
+        private final TrazaBuffer trazaBuffer = new TrazaBuffer(10);
+        private final PerfilPrefetcher perfilPrefetcher;
+        private final WhatsAppMessageService messageService;
+        private final WhatsAppWebhookHandler handler;
+
+        Instancia() {
+            WhatsAppConfig config = mock(WhatsAppConfig.class);
+            when(config.getDedupCapacity()).thenReturn(1024);
+            when(config.getDedupMaxProbe()).thenReturn(8);
+            when(config.getBaseUrl()).thenReturn("http://graph.test");
+            when(config.getApiUrl()).thenReturn("/v18.0/123/messages");
+            MeterRegistry meterRegistry = new SimpleMeterRegistry();
+            ObjectMapper objectMapper = new ObjectMapper();
+            ConversationFunnel conversationFunnel = new ConversationFunnel();
+            WhatsAppTemplateService templateService = new WhatsAppTemplateService();
+
+            WebClient.Builder graph = WebClient.builder().exchangeFunction(peticion -> {
+                peticionesGraph.incrementAndGet();
+                return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body("{\"messages\":[{\"id\":\"wamid.respuesta\"}]}")
+                    .build());
+            });
+            messageService = spy(new WhatsAppMessageService(config, graph, meterRegistry));
+            perfilPrefetcher = new PerfilPrefetcher(pacienteService, citaService, 1, 10, store, new MockEnvironment());
+            ConversationStateService conversationStateService =
+                new ConversationStateService(config, store, perfilPrefetcher, conversationFunnel);
+            WhatsAppFlowService flowService = new WhatsAppFlowService(
+                conversationStateService, messageService, templateService, citaService, pacienteService,
+                new ValidacionDocumentoService(), new ValidacionDatosService(), mock(EmailService.class),
+                perfilPrefetcher, conversationFunnel, meterRegistry, objectMapper);
+            // @PostConstruct, package-private
+            ReflectionTestUtils.invokeMethod(flowService, "inicializarTransiciones");
+            WhatsAppOrchestratorService orchestrator = new WhatsAppOrchestratorService(
+                config, conversationStateService, messageService, templateService, flowService,
+                conversationFunnel, objectMapper, meterRegistry);
+            handler = new WhatsAppWebhookHandler(orchestrator, messageService, trazaBuffer, meterRegistry, bloqueante);
+        }
+
+        /**
+         * Runs one webhook turn to completion
+         * @return the replies the turn handed to the ordered, non-blocking send
+         */
+        @SuppressWarnings("unchecked")
+        List<Envio> recibir(String texto) {
+            handler.recibirWebhook(MockServerRequest.builder().body(Mono.just(payload(texto)))).block();
+
+            ArgumentCaptor<List<Envio>> envios = ArgumentCaptor.forClass(List.class);
+            verify(messageService).enviarEnOrden(envios.capture(), any());
+            return envios.getValue();
+        }
+
+        void detener() {
+            perfilPrefetcher.detener();
+            bloqueante.dispose();
+        }
+    }
+}
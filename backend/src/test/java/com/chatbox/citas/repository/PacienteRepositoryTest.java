@@ -0,0 +1,155 @@
+package com.chatbox.citas.repository;
+
+import com.chatbox.citas.model.Paciente;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Find-or-create of patients against a real PostgreSQL, each call in its own transaction
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PacienteRepositoryTest {
+
+    private static final int RESERVAS_SIMULTANEAS = 32;
+
+    private static final EmbeddedPostgres POSTGRES = iniciarPostgres();
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> RESERVAS_SIMULTANEAS);
+    }
+
+    @AfterAll
+    static void detenerPostgres() throws IOException {
+        POSTGRES.close();
+    }
+
+    @Test
+    void reservasSimultaneasDeUnPacienteNuevoCreanUnaSolaFila() throws Exception {
+        List<Paciente> resultados = enParalelo(i -> pacienteRepository.obtenerOCrearPorNumeroIdentificacion(
+            paciente("1061000001", "3001000001")));
+
+        assertThat(resultados).extracting(Paciente::getId).containsOnly(resultados.get(0).getId());
+        assertThat(contarPacientes("numero_identificacion", "1061000001")).isEqualTo(1);
+    }
+
+    @Test
+    void reservasSimultaneasPorTelefonoCreanUnaSolaFila() throws Exception {
+        List<Paciente> resultados = enParalelo(i -> pacienteRepository.obtenerOCrearPorTelefono(
+            paciente(null, "3001000002")));
+
+        assertThat(resultados).extracting(Paciente::getId).containsOnly(resultados.get(0).getId());
+        assertThat(contarPacientes("telefono", "3001000002")).isEqualTo(1);
+    }
+
+    @Test
+    void losIdsNoChocanConLosQueAsignaHibernate() {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 120; i++) {
+            String sufijo = String.format("%04d", i);
+            Paciente guardado = pacienteRepository.save(paciente("1062" + sufijo, "3002" + sufijo));
+            Paciente creado = pacienteRepository.obtenerOCrearPorNumeroIdentificacion(paciente("1063" + sufijo, "3003" + sufijo));
+
+            assertThat(ids.add(guardado.getId())).isTrue();
+            assertThat(ids.add(creado.getId())).isTrue();
+        }
+    }
+
+    @Test
+    void unPacienteExistenteNoConsumeIds() {
+        Paciente existente = pacienteRepository.obtenerOCrearPorNumeroIdentificacion(paciente("1064000001", "3004000001"));
+        long antes = ultimoValorSecuencia();
+
+        for (int i = 0; i < 100; i++) {
+            Paciente otraVez = pacienteRepository.obtenerOCrearPorNumeroIdentificacion(paciente("1064000001", "3004000001"));
+            assertThat(otraVez.getId()).isEqualTo(existente.getId());
+        }
+
+        assertThat(ultimoValorSecuencia()).isEqualTo(antes);
+    }
+
+    private static List<Paciente> enParalelo(Function<Integer, Paciente> reserva) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(RESERVAS_SIMULTANEAS);
+        try {
+            CountDownLatch salida = new CountDownLatch(1);
+            List<Future<Paciente>> futuros = new ArrayList<>();
+            for (int i = 0; i < RESERVAS_SIMULTANEAS; i++) {
+                int indice = i;
+                Callable<Paciente> tarea = () -> {
+                    salida.await();
+                    return reserva.apply(indice);
+                };
+                futuros.add(executor.submit(tarea));
+            }
+            salida.countDown();
+
+            List<Paciente> resultados = new ArrayList<>();
+            for (Future<Paciente> futuro : futuros) {
+                resultados.add(futuro.get());
+            }
+            return resultados;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int contarPacientes(String columna, String valor) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pacientes WHERE " + columna + " = ?", Integer.class, valor);
+    }
+
+    private long ultimoValorSecuencia() {
+        return jdbcTemplate.queryForObject("SELECT last_value FROM pacientes_seq", Long.class);
+    }
+
+    private static Paciente paciente(String numeroIdentificacion, String telefono) {
+        Paciente paciente = new Paciente();
+        paciente.setNombre("Paciente " + telefono);
+        paciente.setTipoIdentificacion(numeroIdentificacion != null ? "CC" : null);
+        paciente.setNumeroIdentificacion(numeroIdentificacion);
+        paciente.setTelefono(telefono);
+        return paciente;
+    }
+
+    private static EmbeddedPostgres iniciarPostgres() {
+        try {
+            return EmbeddedPostgres.builder().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.chatbox.citas.service;
+
+import com.chatbox.citas.model.Paciente;
+import com.chatbox.citas.service.paciente.PacienteLookupCache;
+import com.chatbox.citas.service.paciente.PacienteResumen;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The patient cache only learns about patients whose transaction committed
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({PacienteService.class, PacienteLookupCache.class})
+class PacienteServiceTest {
+
+    private static final EmbeddedPostgres POSTGRES = iniciarPostgres();
+
+    @Autowired
+    private PacienteService pacienteService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    @AfterAll
+    static void detenerPostgres() throws IOException {
+        POSTGRES.close();
+    }
+
+    @Test
+    void unaReservaRevertidaNoDejaAlPacienteEnCache() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            pacienteService.obtenerOCrearPaciente("Andrés Peña", "3005000001", null);
+            estado.setRollbackOnly();
+        });
+
+        assertThat(pacienteService.buscarResumenPorTelefono("573005000001")).isEmpty();
+    }
+
+    @Test
+    void unaReservaConfirmadaDejaAlPacienteEnCache() {
+        Paciente creado = new TransactionTemplate(transactionManager).execute(estado ->
+            pacienteService.obtenerOCrearPacienteCompleto("Marta Ruiz", "CC", "1065000002", "3005000002",
+                null, null, null, null, null));
+        // Gone from the table: only the cache can still answer
+        jdbcTemplate.update("DELETE FROM pacientes WHERE id = ?", creado.getId());
+
+        assertThat(pacienteService.buscarResumenPorNumeroIdentificacion("1065000002"))
+            .map(PacienteResumen::id).contains(creado.getId());
+    }
+
+    @Test
+    void guardarFueraDeUnaTransaccionReemplazaLaEntradaAnterior() {
+        Paciente paciente = new TransactionTemplate(transactionManager).execute(estado ->
+            pacienteService.obtenerOCrearPaciente("Luis Gómez", "3005000003", null));
+
+        paciente.setTelefono("3005000004");
+        pacienteService.guardar(paciente);
+
+        jdbcTemplate.update("DELETE FROM pacientes WHERE id = ?", paciente.getId());
+        assertThat(pacienteService.buscarResumenPorTelefono("3005000003")).isEmpty();
+        assertThat(pacienteService.buscarResumenPorTelefono("3005000004"))
+            .map(PacienteResumen::id).contains(paciente.getId());
+    }
+
+    private static EmbeddedPostgres iniciarPostgres() {
+        try {
+            return EmbeddedPostgres.builder().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.chatbox.citas.service.estadistica;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class EstadisticasCitasServiceTest {
+
+    private final EstadisticasCitasService service =
+        new EstadisticasCitasService(mock(JdbcTemplate.class), mock(TransactionTemplate.class));
+
+    @Test
+    void aceptaUnAnioBisiestoCompleto() {
+        assertThatCode(() -> service.obtenerEstadisticas(LocalDate.of(2028, 1, 1), LocalDate.of(2028, 12, 31)))
+            .doesNotThrowAnyException();
+    }
+
+    @Test
+    void rechazaUnRangoMayorAlLimite() {
+        LocalDate desde = LocalDate.of(2026, 1, 1);
+
+        assertThatThrownBy(() -> service.obtenerEstadisticas(desde, desde.plusDays(EstadisticasCitasService.MAX_DIAS_RANGO)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("366 días");
+    }
+}
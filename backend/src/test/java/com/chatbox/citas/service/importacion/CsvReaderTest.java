@@ -0,0 +1,76 @@
+package com.chatbox.citas.service.importacion;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvReaderTest {
+
+    @Test
+    void leeCamposEntreComillasConSaltosYEscapes() throws IOException {
+        List<Object> registros = leerTodo("a,\"b, \"\"c\"\"\r\nd\",e\r\nf,g,h\n");
+
+        assertThat(registros).containsExactly(
+            List.of("a", "b, \"c\"\r\nd", "e"),
+            List.of("f", "g", "h")
+        );
+    }
+
+    @Test
+    void comillaSinCerrarFallaSoloSuFilaYSigueEnLaLineaSiguiente() throws IOException {
+        List<Object> registros = leerTodo("""
+            uno,1
+            dos,"2
+            tres,3
+            cuatro,4
+            """);
+
+        assertThat(registros).containsExactly(
+            List.of("uno", "1"),
+            "Comillas sin cerrar",
+            List.of("tres", "3"),
+            List.of("cuatro", "4")
+        );
+    }
+
+    @Test
+    void comillaSinCerrarEnLaUltimaLinea() throws IOException {
+        assertThat(leerTodo("uno,1\r\ndos,\"2")).containsExactly(List.of("uno", "1"), "Comillas sin cerrar");
+    }
+
+    @Test
+    void campoEntreComillasDemasiadoLargoFallaSinLeerElRestoDelArchivo() throws IOException {
+        String largo = "x".repeat(CsvReader.MAX_CAMPO_ENTRE_COMILLAS + 10);
+
+        List<Object> registros = leerTodo("dos,\"" + largo + "\nignorado\"\ntres,3\n");
+
+        assertThat(registros).hasSize(3);
+        assertThat(registros.get(0)).asString().startsWith("Campo entre comillas de más de");
+        assertThat(registros.get(1)).isEqualTo(List.of("ignorado\""));
+        assertThat(registros.get(2)).isEqualTo(List.of("tres", "3"));
+    }
+
+    /**
+     * Every record in order: its fields, or the error message for a malformed one
+     */
+    private static List<Object> leerTodo(String csv) throws IOException {
+        CsvReader lector = new CsvReader(new StringReader(csv));
+        List<Object> registros = new ArrayList<>();
+        while (true) {
+            try {
+                List<String> campos = lector.leerRegistro();
+                if (campos == null) {
+                    return registros;
+                }
+                registros.add(campos);
+            } catch (CsvReader.RegistroMalformado e) {
+                registros.add(e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.chatbox.citas.service.whatsapp;
+
+import com.chatbox.citas.service.whatsapp.ConversationStateService.ConversacionState;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.EstadoConversacion;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.OpcionDoctor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class ConversacionStateTest {
+
+    private static final int SESIONES = 10_000;
+    private static final EstadoConversacion[] PASOS = {
+        EstadoConversacion.ESPERANDO_TIPO_DOC,
+        EstadoConversacion.ESPERANDO_NUMERO_DOC,
+        EstadoConversacion.ESPERANDO_NOMBRE,
+        EstadoConversacion.ESPERANDO_TELEFONO_PRINCIPAL,
+        EstadoConversacion.ESPERANDO_TELEFONO_SECUNDARIO,
+        EstadoConversacion.ESPERANDO_DIRECCION,
+        EstadoConversacion.ESPERANDO_FECHA_NACIMIENTO,
+        EstadoConversacion.ESPERANDO_EPS,
+        EstadoConversacion.ESPERANDO_TIPO_CITA,
+        EstadoConversacion.ESPERANDO_FECHA_CITA
+    };
+    private static final String[][] HORARIOS = {
+        {"Dra. Ana Pérez", "Medicina General"},
+        {"Dr. Julián Restrepo", "Cardiología"},
+        {"Dr. Carlos Ruiz", "Pediatría"}
+    };
+
+    /**
+     * Heap retained per open session at doctor selection, against the layout it replaced
+     * (Stack history, per-session option lists and strings as typed)
+     */
+    @Test
+    void retieneMenosBytesPorSesionQueElEstadoAnterior() {
+        Object[] actuales = new Object[SESIONES];
+        Object[] anteriores = new Object[SESIONES];
+        for (int i = 0; i < SESIONES; i++) {
+            actuales[i] = sesionActual(i);
+            anteriores[i] = sesionAnterior(i);
+        }
+
+        long arreglo = GraphLayout.parseInstance((Object) new Object[SESIONES]).totalSize();
+        double porSesionActual = (double) (GraphLayout.parseInstance((Object) actuales).totalSize() - arreglo) / SESIONES;
+        double porSesionAnterior = (double) (GraphLayout.parseInstance((Object) anteriores).totalSize() - arreglo) / SESIONES;
+        log.info("Bytes retenidos por sesión en selección de doctor: antes {}, ahora {}",
+            String.format("%.0f", porSesionAnterior), String.format("%.0f", porSesionActual));
+
+        assertThat(porSesionActual).isLessThan(porSesionAnterior * 0.75);
+    }
+
+    @Test
+    void historialLargoNoDescartaPasos() {
+        ConversacionState estado = new ConversacionState(EstadoConversacion.MENU);
+        List<EstadoConversacion> recorrido = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            EstadoConversacion paso = PASOS[i % PASOS.length];
+            estado.setEstado(paso);
+            estado.guardarEstadoEnHistorial();
+            recorrido.add(paso);
+        }
+
+        assertThat(estado.getHistorialEstados()).containsExactlyElementsOf(recorrido);
+        for (int i = recorrido.size() - 1; i >= 0; i--) {
+            assertThat(estado.volverEstadoAnterior()).isEqualTo(recorrido.get(i));
+        }
+        assertThat(estado.volverEstadoAnterior()).isEqualTo(EstadoConversacion.MENU);
+    }
+
+    @Test
+    void comparteSoloValoresConocidos() {
+        ConversacionState estado = new ConversacionState(EstadoConversacion.MENU);
+
+        estado.setTipoIdentificacion(new String("CC"));
+        estado.setTipoCita(new String("PRIMERA VEZ"));
+        assertThat(estado.getTipoIdentificacion()).isSameAs("CC");
+        assertThat(estado.getTipoCita()).isSameAs("PRIMERA VEZ");
+
+        String escrito = new String("pasaporte 123");
+        estado.setTipoIdentificacion(escrito);
+        assertThat(estado.getTipoIdentificacion()).isSameAs(escrito);
+        assertThat(escrito.intern()).isNotSameAs(escrito);
+    }
+
+    @Test
+    void sesionesConLasMismasOpcionesLasComparten() {
+        ConversacionState primera = new ConversacionState(EstadoConversacion.ESPERANDO_SELECCION_DOCTOR);
+        ConversacionState segunda = new ConversacionState(EstadoConversacion.ESPERANDO_SELECCION_DOCTOR);
+        primera.setOpcionesDoctor(List.of(new OpcionDoctor("Dra. Ana Pérez", "09:00", "Medicina General")));
+        segunda.setOpcionesDoctor(List.of(new OpcionDoctor("Dra. Ana Pérez", "09:00", "Medicina General")));
+
+        assertThat(segunda.getOpcionesDoctor().get(0)).isSameAs(primera.getOpcionesDoctor().get(0));
+    }
+
+    private static ConversacionState sesionActual(int i) {
+        ConversacionState estado = new ConversacionState(EstadoConversacion.ESPERANDO_SELECCION_DOCTOR);
+        estado.setTipoIdentificacion(new String("CC"));
+        estado.setNumeroIdentificacion(String.valueOf(1_000_000_000L + i));
+        estado.setNombre("Paciente " + i);
+        estado.setTipoCita(new String("PRIMERA VEZ"));
+        estado.setFechaCita(LocalDate.of(2026, 11, 3).plusDays(i % 30));
+        for (EstadoConversacion paso : PASOS) {
+            estado.setEstado(paso);
+            estado.guardarEstadoEnHistorial();
+        }
+        estado.setEstado(EstadoConversacion.ESPERANDO_SELECCION_DOCTOR);
+        estado.setOpcionesDoctor(opciones(i));
+        return estado;
+    }
+
+    private static EstadoAnterior sesionAnterior(int i) {
+        EstadoAnterior estado = new EstadoAnterior();
+        estado.estado = EstadoConversacion.ESPERANDO_SELECCION_DOCTOR;
+        estado.lastActivity = System.currentTimeMillis();
+        estado.tipoIdentificacion = new String("CC");
+        estado.numeroIdentificacion = String.valueOf(1_000_000_000L + i);
+        estado.nombre = "Paciente " + i;
+        estado.tipoCita = new String("PRIMERA VEZ");
+        estado.fechaCita = LocalDate.of(2026, 11, 3).plusDays(i % 30);
+        for (EstadoConversacion paso : PASOS) {
+            estado.historialEstados.push(paso);
+        }
+        estado.opcionesDoctor = new ArrayList<>(opciones(i));
+        return estado;
+    }
+
+    /**
+     * The slots offered for one day; sessions booking the same day are offered the same ones
+     */
+    private static List<OpcionDoctor> opciones(int i) {
+        String hora = String.format("%02d:00", 8 + i % 8);
+        List<OpcionDoctor> opciones = new ArrayList<>();
+        for (String[] horario : HORARIOS) {
+            opciones.add(new OpcionDoctor(horario[0], hora, horario[1]));
+        }
+        return opciones;
+    }
+
+    /**
+     * Fields of ConversacionState before it was made compact
+     */
+    @SuppressWarnings("unused")
+    private static final class EstadoAnterior {
+        EstadoConversacion estado;
+        volatile long lastActivity;
+        boolean finalizada;
+        String tipoIdentificacion;
+        String numeroIdentificacion;
+        String nombre;
+        String telefonoPrincipal;
+        String telefonoSecundario;
+        String direccion;
+        LocalDate fechaNacimiento;
+        String eps;
+        String email;
+        String tipoCita;
+        LocalDate fechaCita;
+        String horaCita;
+        String doctor;
+        List<OpcionDoctor> opcionesDoctor;
+        final Stack<EstadoConversacion> historialEstados = new Stack<>();
+    }
+}
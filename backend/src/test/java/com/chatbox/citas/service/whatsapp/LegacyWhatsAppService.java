@@ -1,16 +1,21 @@
-package com.chatbox.citas.service;
+package com.chatbox.citas.service.whatsapp;
 
 import com.chatbox.citas.config.WhatsAppConfig;
 import com.chatbox.citas.dto.CitaRequest;
 import com.chatbox.citas.dto.CitaRequestCompleto;
 import com.chatbox.citas.model.Doctor;
+import com.chatbox.citas.service.CitaService;
+import com.chatbox.citas.service.DoctorService;
+import com.chatbox.citas.service.EmailService;
+import com.chatbox.citas.service.PacienteService;
+import com.chatbox.citas.service.ValidacionDatosService;
+import com.chatbox.citas.service.ValidacionDocumentoService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
@@ -22,10 +27,13 @@ import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * The retired monolithic WhatsApp service, frozen as it was in production
+ * Test-only reference for {@link WhatsAppFlowContractTest}; not a Spring bean
+ */
 @Slf4j
-@Service
 @RequiredArgsConstructor
-public class WhatsAppService {
+public class LegacyWhatsAppService {
 
     private final WhatsAppConfig config;
     private final WebClient.Builder webClientBuilder;
@@ -0,0 +1,55 @@
+package com.chatbox.citas.service.whatsapp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Retained heap per remembered message ID: the fingerprint table against the
+ * {@code ConcurrentHashMap<String, Long>} it replaced, both holding as many IDs as
+ * the configured capacity (whatsapp.dedup.capacity)
+ */
+@Slf4j
+class MessageIdDeduplicatorFootprintTest {
+
+    private static final int CAPACIDAD = 65536;
+    private static final long TTL_MILLIS = 24 * 60 * 60 * 1000L;
+
+    @Test
+    void tablaDeHuellasRetieneDoceBytesPorEntrada() {
+        MessageIdDeduplicator deduplicador = new MessageIdDeduplicator(CAPACIDAD, 8, TTL_MILLIS);
+        ConcurrentHashMap<String, Long> mapa = new ConcurrentHashMap<>();
+
+        Random random = new Random(42);
+        long ahora = System.currentTimeMillis();
+        for (int i = 0; i < CAPACIDAD; i++) {
+            String messageId = wamid(random);
+            deduplicador.marcarSiNuevo(messageId, ahora);
+            mapa.put(messageId, ahora + i);
+        }
+
+        double porEntradaTabla = (double) GraphLayout.parseInstance(deduplicador).totalSize() / CAPACIDAD;
+        double porEntradaMapa = (double) GraphLayout.parseInstance(mapa).totalSize() / mapa.size();
+        log.info("Bytes retenidos por ID con {} entradas: tabla de huellas {}, ConcurrentHashMap {}",
+            CAPACIDAD, String.format("%.1f", porEntradaTabla), String.format("%.1f", porEntradaMapa));
+
+        assertThat(deduplicador.memoryBytes()).isEqualTo(CAPACIDAD * 12L);
+        assertThat(porEntradaTabla).isLessThan(12.1);
+        assertThat(porEntradaMapa).isGreaterThan(100);
+    }
+
+    /**
+     * A Graph API message ID: "wamid." and 54 base64 characters, as sent by Meta
+     */
+    private static String wamid(Random random) {
+        byte[] bytes = new byte[40];
+        random.nextBytes(bytes);
+        return "wamid." + Base64.getEncoder().withoutPadding().encodeToString(bytes).substring(0, 54);
+    }
+}
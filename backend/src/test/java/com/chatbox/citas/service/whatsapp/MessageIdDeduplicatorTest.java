@@ -0,0 +1,64 @@
+package com.chatbox.citas.service.whatsapp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageIdDeduplicatorTest {
+
+    private static final long TTL_MILLIS = 60_000L;
+
+    // Set after the table is built: it keeps time in whole seconds from its construction
+    private long ahora;
+
+    @Test
+    void rechazaUnIdRepetido() {
+        MessageIdDeduplicator deduplicador = nuevo(1024, 8, TTL_MILLIS);
+
+        assertThat(deduplicador.marcarSiNuevo("wamid.uno", ahora)).isTrue();
+        assertThat(deduplicador.marcarSiNuevo("wamid.uno", ahora + 1_000)).isFalse();
+        assertThat(deduplicador.marcarSiNuevo("wamid.dos", ahora + 1_000)).isTrue();
+        assertThat(deduplicador.size(ahora + 1_000)).isEqualTo(2);
+    }
+
+    @Test
+    void aceptaElMismoIdDespuesDelTtl() {
+        MessageIdDeduplicator deduplicador = nuevo(1024, 8, TTL_MILLIS);
+        deduplicador.marcarSiNuevo("wamid.uno", ahora);
+
+        assertThat(deduplicador.marcarSiNuevo("wamid.uno", ahora + TTL_MILLIS - 1_000)).isFalse();
+        assertThat(deduplicador.size(ahora + TTL_MILLIS)).isZero();
+        assertThat(deduplicador.marcarSiNuevo("wamid.uno", ahora + TTL_MILLIS)).isTrue();
+    }
+
+    @Test
+    void ventanaLlenaDesalojaElSlotMasAntiguo() {
+        // Four slots, all probed on every lookup: the window is the whole table
+        MessageIdDeduplicator deduplicador = nuevo(4, 4, TTL_MILLIS);
+        for (int i = 1; i <= 4; i++) {
+            assertThat(deduplicador.marcarSiNuevo("wamid." + i, ahora + i * 1_000L)).isTrue();
+        }
+
+        assertThat(deduplicador.marcarSiNuevo("wamid.5", ahora + 5_000)).isTrue();
+
+        for (int i = 2; i <= 5; i++) {
+            assertThat(deduplicador.marcarSiNuevo("wamid." + i, ahora + 6_000)).as("wamid.%d", i).isFalse();
+        }
+        assertThat(deduplicador.marcarSiNuevo("wamid.1", ahora + 6_000)).isTrue();
+        assertThat(deduplicador.size(ahora + 6_000)).isEqualTo(4);
+    }
+
+    @Test
+    void redondeaLaCapacidadAPotenciaDeDos() {
+        assertThat(new MessageIdDeduplicator(1000, 8, TTL_MILLIS).capacity()).isEqualTo(1024);
+        assertThatThrownBy(() -> new MessageIdDeduplicator(4, 5, TTL_MILLIS))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private MessageIdDeduplicator nuevo(int capacidad, int maxProbe, long ttlMillis) {
+        MessageIdDeduplicator deduplicador = new MessageIdDeduplicator(capacidad, maxProbe, ttlMillis);
+        ahora = System.currentTimeMillis();
+        return deduplicador;
+    }
+}
@@ -0,0 +1,373 @@
+package com.chatbox.citas.service.whatsapp;
+
+import com.chatbox.citas.config.WhatsAppConfig;
+import com.chatbox.citas.dto.CitaRequestCompleto;
+import com.chatbox.citas.model.Paciente;
+import com.chatbox.citas.service.CitaService;
+import com.chatbox.citas.service.DoctorService;
+import com.chatbox.citas.service.EmailService;
+import com.chatbox.citas.service.PacienteService;
+import com.chatbox.citas.service.ValidacionDatosService;
+import com.chatbox.citas.service.ValidacionDocumentoService;
+import com.chatbox.citas.service.paciente.PacienteResumen;
+import com.chatbox.citas.service.whatsapp.store.InMemoryConversationStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Replays scripted conversations through the retired {@link LegacyWhatsAppService} and through
+ * {@link WhatsAppOrchestratorService}/{@link WhatsAppFlowService}, comparing every outbound message,
+ * the conversation state after each turn and the appointment handed to {@link CitaService}
+ */
+class WhatsAppFlowContractTest {
+
+    private static final String TELEFONO = "573001234567";
+    private static final String SIN_CONVERSACION = "SIN_CONVERSACION";
+
+    private final AtomicInteger siguienteId = new AtomicInteger();
+    private final LocalDate fechaCita = proximoDiaHabil();
+
+    private LegacyWhatsAppService servicioLegado;
+    private WhatsAppOrchestratorService orchestrator;
+    private Ruta legado;
+    private Ruta actual;
+
+    @BeforeEach
+    void preparar() {
+        legado = rutaLegada();
+        actual = rutaActual();
+    }
+
+    @AfterEach
+    void detener() {
+        actual.cerrar().run();
+    }
+
+    @Test
+    void cirugiaCierraLaConversacion() {
+        comparar(List.of(
+            Paso.de("hola"),
+            Paso.de("2"),
+            Paso.de("hola")
+        ));
+    }
+
+    @Test
+    void agendamientoCompletoConEntradasInvalidas() {
+        comparar(List.of(
+            Paso.de("hola"),
+            Paso.de("quiero una cita"),
+            Paso.de("XX"),
+            Paso.de("cc"),
+            Paso.de("12ab"),
+            Paso.de("1.020.304.050"),
+            Paso.de("Al"),
+            Paso.de("Andrés Peña"),
+            Paso.de("123"),
+            Paso.de("300 123 4567"),
+            Paso.de("---"),
+            Paso.de("omitir"),
+            Paso.de("Calle 1"),
+            Paso.de("Calle 123 #45-67, Barrio Centro"),
+            Paso.de("01-01-2020"),
+            Paso.de("15-06-1990"),
+            Paso.de("EPS Sura"),
+            Paso.de("3"),
+            Paso.de("1"),
+            Paso.de("32-13-2030"),
+            Paso.de(fechaCita.format(DateTimeFormatter.ofPattern("dd-MM-yyyy"))),
+            // The legacy flow still showed a fixed hour list and needed one more reply before the doctors
+            Paso.soloLegado("1"),
+            Paso.de("9"),
+            Paso.de("dos"),
+            Paso.de("2"),
+            Paso.de("correo-malo"),
+            Paso.de("omitir"),
+            Paso.de("tal vez"),
+            Paso.de("si")
+        ));
+
+        assertThat(actual.citas()).hasSize(1);
+        assertThat(actual.citas().get(0)).usingRecursiveComparison().isEqualTo(legado.citas().get(0));
+        assertThat(actual.citas().get(0).getDoctor()).isEqualTo("Dra. Ana Pérez");
+    }
+
+    @Test
+    void volverReenviaElPasoAnteriorYCancelarTermina() {
+        comparar(List.of(
+            Paso.de("hola"),
+            Paso.de("volver"),
+            Paso.de("1"),
+            Paso.de("TI"),
+            Paso.de("atrás"),
+            Paso.de("RC"),
+            Paso.de("inicio"),
+            Paso.de("1"),
+            Paso.de("cancelar"),
+            Paso.de("hola")
+        ));
+    }
+
+    @Test
+    void pacienteConPerfilIncompletoConfirmaSuTelefono() {
+        Paciente paciente = new Paciente();
+        paciente.setNombre("Marta Ruiz");
+        paciente.setTelefono("3109876543");
+        paciente.setNumeroIdentificacion("52123456");
+        PacienteResumen resumen = PacienteResumen.de(paciente);
+        when(legado.pacienteService().buscarPorNumeroIdentificacion("52123456")).thenReturn(Optional.of(paciente));
+        when(actual.pacienteService().buscarResumenPorNumeroIdentificacion("52123456")).thenReturn(Optional.of(resumen));
+
+        comparar(List.of(
+            Paso.de("hola"),
+            Paso.de("1"),
+            Paso.de("CC"),
+            Paso.de("52123456"),
+            Paso.de("3109876543")
+        ));
+    }
+
+    @Test
+    void sinDoctoresDisponiblesVuelveAPedirLaFecha() {
+        when(legado.citaService().obtenerHorariosDisponibles(fechaCita)).thenReturn(List.of());
+        when(actual.citaService().obtenerHorariosDisponibles(fechaCita)).thenReturn(List.of());
+
+        comparar(List.of(
+            Paso.de("1"),
+            Paso.de("CC"),
+            Paso.de("1020304050"),
+            Paso.de("Andrés Peña"),
+            Paso.de("3001234567"),
+            Paso.de("omitir"),
+            Paso.de("Calle 123 #45-67, Barrio Centro"),
+            Paso.de("15-06-1990"),
+            Paso.de("EPS Sura"),
+            Paso.de("2"),
+            Paso.de(fechaCita.format(DateTimeFormatter.ofPattern("dd-MM-yyyy"))),
+            Paso.soloLegado("1")
+        ));
+
+        verify(actual.citaService(), never()).crearCitaCompleta(any());
+    }
+
+    @Test
+    void mensajeRepetidoSeIgnoraEnAmbasRutas() {
+        legado.webhook().accept("wamid.A", "hola");
+        legado.webhook().accept("wamid.A", "1");
+        actual.webhook().accept("wamid.A", "hola");
+        actual.webhook().accept("wamid.A", "1");
+
+        assertThat(actual.salidas()).containsExactlyElementsOf(legado.salidas()).hasSize(1);
+        assertThat(actual.estado().get()).isEqualTo(legado.estado().get()).isEqualTo("MENU");
+    }
+
+    @Test
+    void notificacionesSalenIgual() {
+        servicioLegado.enviarConfirmacionCita(TELEFONO, "Andrés Peña", "26/10/2026", "10:30", "Dra. Ana Pérez");
+        servicioLegado.enviarRecordatorio(TELEFONO, "Andrés Peña", "26/10/2026", "10:30", "Dra. Ana Pérez", 24);
+        servicioLegado.enviarRecordatorio(TELEFONO, "Andrés Peña", "26/10/2026", "10:30", "Dra. Ana Pérez", 1);
+        servicioLegado.enviarConfirmacionCancelacion(TELEFONO, "26/10/2026", "10:30");
+        orchestrator.enviarConfirmacionCita(TELEFONO, "Andrés Peña", "26/10/2026", "10:30", "Dra. Ana Pérez");
+        orchestrator.enviarRecordatorio(TELEFONO, "Andrés Peña", "26/10/2026", "10:30", "Dra. Ana Pérez", 24);
+        orchestrator.enviarRecordatorio(TELEFONO, "Andrés Peña", "26/10/2026", "10:30", "Dra. Ana Pérez", 1);
+        orchestrator.enviarConfirmacionCancelacion(TELEFONO, "26/10/2026", "10:30");
+
+        assertThat(actual.salidas()).hasSize(4).containsExactlyElementsOf(legado.salidas());
+    }
+
+    /**
+     * Send the script through both paths, turn by turn, with fresh message ids
+     */
+    private void comparar(List<Paso> guion) {
+        List<Turno> turnosLegado = new ArrayList<>();
+        List<Turno> turnosActual = new ArrayList<>();
+
+        for (Paso paso : guion) {
+            Turno turnoLegado = enviar(legado, paso.texto());
+            if (paso.soloLegado()) {
+                // Folded into the previous turn: its reply replaces the step the current flow no longer has
+                Turno anterior = turnosLegado.remove(turnosLegado.size() - 1);
+                turnosLegado.add(new Turno(anterior.entrada(), turnoLegado.salidas(), turnoLegado.estado()));
+                continue;
+            }
+            turnosLegado.add(turnoLegado);
+            turnosActual.add(enviar(actual, paso.texto()));
+        }
+
+        assertThat(turnosActual).containsExactlyElementsOf(turnosLegado);
+        assertThat(actual.citas()).usingRecursiveFieldByFieldElementComparator().isEqualTo(legado.citas());
+    }
+
+    private Turno enviar(Ruta ruta, String texto) {
+        int antes = ruta.salidas().size();
+        ruta.webhook().accept("wamid." + siguienteId.incrementAndGet(), texto);
+        return new Turno(texto, List.copyOf(ruta.salidas().subList(antes, ruta.salidas().size())), ruta.estado().get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Ruta rutaLegada() {
+        PacienteService pacienteService = mock(PacienteService.class);
+        CitaService citaService = conDisponibilidad(mock(CitaService.class));
+        WhatsAppConfig config = mock(WhatsAppConfig.class);
+        when(config.getConversationTimeoutMinutes()).thenReturn(30);
+
+        LegacyWhatsAppService servicio = spy(new LegacyWhatsAppService(
+            config,
+            mock(WebClient.Builder.class),
+            new ObjectMapper(),
+            citaService,
+            pacienteService,
+            mock(DoctorService.class),
+            new ValidacionDocumentoService(),
+            new ValidacionDatosService(),
+            mock(EmailService.class)
+        ));
+        List<String> salidas = new ArrayList<>();
+        doAnswer(invocacion -> salidas.add(invocacion.getArgument(1)))
+            .when(servicio).enviarMensaje(anyString(), anyString());
+        servicioLegado = servicio;
+
+        Map<String, ?> conversaciones = (Map<String, ?>) ReflectionTestUtils.getField(servicio, "conversaciones");
+        return new Ruta(
+            (id, texto) -> servicio.procesarWebhook(payload(id, texto)),
+            salidas,
+            () -> Optional.ofNullable(conversaciones.get(TELEFONO))
+                .map(estado -> String.valueOf(ReflectionTestUtils.getField(estado, "estado")))
+                .orElse(SIN_CONVERSACION),
+            pacienteService,
+            citaService,
+            () -> {}
+        );
+    }
+
+    private Ruta rutaActual() {
+        PacienteService pacienteService = mock(PacienteService.class);
+        CitaService citaService = conDisponibilidad(mock(CitaService.class));
+        WhatsAppConfig config = mock(WhatsAppConfig.class);
+        when(config.getDedupCapacity()).thenReturn(1024);
+        when(config.getDedupMaxProbe()).thenReturn(8);
+        when(config.getConversationTimeoutMinutes()).thenReturn(30);
+
+        InMemoryConversationStore store = new InMemoryConversationStore();
+        PerfilPrefetcher perfilPrefetcher = new PerfilPrefetcher(pacienteService, citaService, 1, 10, store, new MockEnvironment());
+        ConversationFunnel conversationFunnel = new ConversationFunnel();
+        ConversationStateService conversationStateService =
+            new ConversationStateService(config, store, perfilPrefetcher, conversationFunnel);
+        WhatsAppMessageService messageService = mock(WhatsAppMessageService.class);
+        WhatsAppTemplateService templateService = new WhatsAppTemplateService();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        WhatsAppFlowService flowService = new WhatsAppFlowService(
+            conversationStateService,
+            messageService,
+            templateService,
+            citaService,
+            pacienteService,
+            new ValidacionDocumentoService(),
+            new ValidacionDatosService(),
+            mock(EmailService.class),
+            perfilPrefetcher,
+            conversationFunnel,
+            meterRegistry,
+            objectMapper
+        );
+        flowService.inicializarTransiciones();
+        orchestrator = new WhatsAppOrchestratorService(
+            config, conversationStateService, messageService, templateService, flowService,
+            conversationFunnel, objectMapper, meterRegistry);
+
+        List<String> salidas = new ArrayList<>();
+        doAnswer(invocacion -> salidas.add(invocacion.getArgument(1)))
+            .when(messageService).enviarMensaje(anyString(), anyString());
+
+        return new Ruta(
+            (id, texto) -> orchestrator.procesarWebhook(payload(id, texto)),
+            salidas,
+            () -> store.buscar(TELEFONO).map(estado -> estado.getEstado().name()).orElse(SIN_CONVERSACION),
+            pacienteService,
+            citaService,
+            perfilPrefetcher::detener
+        );
+    }
+
+    private CitaService conDisponibilidad(CitaService citaService) {
+        when(citaService.obtenerHorariosDisponibles(fechaCita)).thenReturn(List.of(
+            Map.of("doctor", "Luis Gómez", "hora", "08:00", "disponible", false, "especialidad", "Urología"),
+            Map.of("doctor", "Luis Gómez", "hora", "09:00", "disponible", true, "especialidad", "Urología"),
+            Map.of("doctor", "Dra. Ana Pérez", "hora", "10:30", "disponible", true, "especialidad", "Urología")
+        ));
+        return citaService;
+    }
+
+    private static String payload(String id, String texto) {
+        return """
+            {"entry":[{"changes":[{"value":{"messages":[{"id":"%s","from":"%s","text":{"body":"%s"}}]}}]}]}
+            """.formatted(id, TELEFONO, texto);
+    }
+
+    private static LocalDate proximoDiaHabil() {
+        LocalDate fecha = LocalDate.now().plusDays(7);
+        return fecha.getDayOfWeek() == DayOfWeek.SUNDAY ? fecha.plusDays(1) : fecha;
+    }
+
+    /**
+     * One scripted inbound message
+     * @param soloLegado a step only the legacy flow had; its reply is folded into the previous turn
+     */
+    private record Paso(String texto, boolean soloLegado) {
+        static Paso de(String texto) {
+            return new Paso(texto, false);
+        }
+
+        static Paso soloLegado(String texto) {
+            return new Paso(texto, true);
+        }
+    }
+
+    private record Turno(String entrada, List<String> salidas, String estado) {}
+
+    private record Ruta(
+        BiConsumer<String, String> webhook,
+        List<String> salidas,
+        Supplier<String> estado,
+        PacienteService pacienteService,
+        CitaService citaService,
+        Runnable cerrar
+    ) {
+        List<CitaRequestCompleto> citas() {
+            ArgumentCaptor<CitaRequestCompleto> captor = ArgumentCaptor.forClass(CitaRequestCompleto.class);
+            verify(citaService, atLeast(0)).crearCitaCompleta(captor.capture());
+            return captor.getAllValues();
+        }
+    }
+}
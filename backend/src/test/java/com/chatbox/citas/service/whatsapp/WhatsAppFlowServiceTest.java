@@ -0,0 +1,151 @@
+package com.chatbox.citas.service.whatsapp;
+
+import com.chatbox.citas.config.WhatsAppConfig;
+import com.chatbox.citas.dto.CitaResponse;
+import com.chatbox.citas.service.CitaService;
+import com.chatbox.citas.service.EmailService;
+import com.chatbox.citas.service.PacienteService;
+import com.chatbox.citas.service.ValidacionDatosService;
+import com.chatbox.citas.service.ValidacionDocumentoService;
+import com.chatbox.citas.service.paciente.PacienteResumen;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.ConversacionState;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.EstadoConversacion;
+import com.chatbox.citas.service.whatsapp.store.InMemoryConversationStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WhatsAppFlowServiceTest {
+
+    private static final String TELEFONO = "573001234567";
+
+    private final InMemoryConversationStore store = new InMemoryConversationStore();
+    private final WhatsAppMessageService messageService = mock(WhatsAppMessageService.class);
+    private final PacienteService pacienteService = mock(PacienteService.class);
+    private final CitaService citaService = mock(CitaService.class);
+    private PerfilPrefetcher perfilPrefetcher;
+    private WhatsAppFlowService flowService;
+
+    @BeforeEach
+    void preparar() {
+        WhatsAppConfig config = mock(WhatsAppConfig.class);
+        when(config.getDedupCapacity()).thenReturn(1024);
+        when(config.getDedupMaxProbe()).thenReturn(8);
+        perfilPrefetcher = new PerfilPrefetcher(pacienteService, citaService, 1, 10, store, new MockEnvironment());
+        ConversationFunnel conversationFunnel = new ConversationFunnel();
+
+        flowService = new WhatsAppFlowService(
+            new ConversationStateService(config, store, perfilPrefetcher, conversationFunnel),
+            messageService,
+            new WhatsAppTemplateService(),
+            citaService,
+            pacienteService,
+            new ValidacionDocumentoService(),
+            new ValidacionDatosService(),
+            mock(EmailService.class),
+            perfilPrefetcher,
+            conversationFunnel,
+            new SimpleMeterRegistry(),
+            new ObjectMapper()
+        );
+        flowService.inicializarTransiciones();
+    }
+
+    @AfterEach
+    void detener() {
+        perfilPrefetcher.detener();
+    }
+
+    @Test
+    void primerMenuNoEsperaLaPrecargaYElSiguienteOfreceLaCita() throws InterruptedException {
+        conProximaCita();
+        PacienteResumen paciente = pacienteService.buscarResumenPorTelefono(TELEFONO).orElseThrow();
+        CountDownLatch lenta = new CountDownLatch(1);
+        when(pacienteService.buscarResumenPorTelefono(TELEFONO)).thenAnswer(invocacion -> {
+            lenta.await();
+            return Optional.of(paciente);
+        });
+
+        // Returns while the warm-up is still blocked
+        flowService.procesarMensaje(TELEFONO, "hola");
+
+        verify(messageService).enviarMensaje(TELEFONO, new WhatsAppTemplateService().generarMenu());
+        assertThat(store.buscar(TELEFONO)).get()
+            .extracting(ConversacionState::getProximaCitaId).isNull();
+
+        lenta.countDown();
+        esperarCitaGuardada();
+        flowService.procesarMensaje(TELEFONO, "menu");
+
+        verify(messageService).enviarMensaje(eq(TELEFONO), contains("Tienes una cita el 28/10/2026 a las 15:30 con Dra. Ana Pérez"));
+    }
+
+    @Test
+    void telefonoSecundarioSinDigitosSeRechaza() {
+        ConversacionState estado = enTelefonoSecundario();
+
+        flowService.procesarMensaje(TELEFONO, "---");
+
+        assertThat(estado.getEstado()).isEqualTo(EstadoConversacion.ESPERANDO_TELEFONO_SECUNDARIO);
+        verify(messageService).enviarMensaje(eq(TELEFONO), contains("Teléfono inválido"));
+    }
+
+    @Test
+    void omitirDejaElTelefonoSecundarioVacio() {
+        ConversacionState estado = enTelefonoSecundario();
+
+        flowService.procesarMensaje(TELEFONO, "omitir");
+
+        assertThat(estado.getEstado()).isEqualTo(EstadoConversacion.ESPERANDO_DIRECCION);
+        assertThat(estado.getTelefonoSecundario()).isNull();
+    }
+
+    @Test
+    void telefonoSecundarioValidoSeGuardaSinSeparadores() {
+        ConversacionState estado = enTelefonoSecundario();
+
+        flowService.procesarMensaje(TELEFONO, "310 555-1234");
+
+        assertThat(estado.getEstado()).isEqualTo(EstadoConversacion.ESPERANDO_DIRECCION);
+        assertThat(estado.getTelefonoSecundario()).isEqualTo("3105551234");
+    }
+
+    private void conProximaCita() {
+        PacienteResumen paciente = new PacienteResumen(7L, "Andrés Peña", "CC", "1020304050", TELEFONO,
+            null, null, null, null, null);
+        CitaResponse cita = new CitaResponse();
+        cita.setId(181_234L);
+        cita.setFechaHora(LocalDateTime.of(2026, 10, 28, 15, 30));
+        cita.setDoctor("Dra. Ana Pérez");
+        when(pacienteService.buscarResumenPorTelefono(TELEFONO)).thenReturn(Optional.of(paciente));
+        when(citaService.obtenerProximaCita(7L)).thenReturn(Optional.of(cita));
+    }
+
+    private void esperarCitaGuardada() throws InterruptedException {
+        long limite = System.nanoTime() + 5_000_000_000L;
+        while (store.buscar(TELEFONO).map(ConversacionState::getProximaCitaId).isEmpty()) {
+            assertThat(System.nanoTime()).as("precarga guardada en el estado").isLessThan(limite);
+            Thread.sleep(10);
+        }
+    }
+
+    private ConversacionState enTelefonoSecundario() {
+        ConversacionState estado = new ConversacionState(EstadoConversacion.ESPERANDO_TELEFONO_SECUNDARIO);
+        store.guardar(TELEFONO, estado);
+        return estado;
+    }
+}
@@ -0,0 +1,214 @@
+package com.chatbox.citas.service.whatsapp.store;
+
+import com.chatbox.citas.service.whatsapp.ConversationStateService.ConversacionState;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.EstadoConversacion;
+import com.chatbox.citas.service.whatsapp.ConversationStateService.OpcionDoctor;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinaryConversationStateCodecTest {
+
+    private final BinaryConversationStateCodec codec = new BinaryConversationStateCodec();
+
+    @Test
+    void conservaTodosLosCampos() {
+        ConversacionState original = estadoCompleto();
+
+        ConversacionState copia = codec.decode(codec.encode(original));
+
+        assertThat(snapshot(copia)).isEqualTo(snapshot(original));
+    }
+
+    @Test
+    void conservaCamposNulos() {
+        ConversacionState original = new ConversacionState(EstadoConversacion.MENU);
+        original.setLastActivity(1_760_000_000_000L);
+
+        ConversacionState copia = codec.decode(codec.encode(original));
+
+        assertThat(snapshot(copia)).isEqualTo(snapshot(original));
+        assertThat(copia.getOpcionesDoctor()).isNull();
+        assertThat(copia.getFechaNacimiento()).isNull();
+        assertThat(copia.getProximaCitaId()).isNull();
+        assertThat(copia.getProximaCitaFechaHora()).isNull();
+        assertThat(copia.getHistorialEstados()).isEmpty();
+    }
+
+    @Test
+    void distingueListaDeOpcionesVaciaDeNula() {
+        ConversacionState original = new ConversacionState(EstadoConversacion.ESPERANDO_SELECCION_DOCTOR);
+        original.setOpcionesDoctor(List.of());
+
+        assertThat(codec.decode(codec.encode(original)).getOpcionesDoctor()).isEmpty();
+    }
+
+    @Test
+    void conservaOpcionesDeDoctorEnOrden() {
+        ConversacionState original = new ConversacionState(EstadoConversacion.ESPERANDO_SELECCION_DOCTOR);
+        List<OpcionDoctor> opciones = new ArrayList<>();
+        for (int hora = 8; hora < 18; hora++) {
+            opciones.add(new OpcionDoctor("Dra. María José Muñoz", String.format("%02d:00", hora), "Pediatría"));
+        }
+        opciones.add(new OpcionDoctor("Dr. Ángel Núñez", "08:00", null));
+        original.setOpcionesDoctor(opciones);
+
+        assertThat(codec.decode(codec.encode(original)).getOpcionesDoctor()).containsExactlyElementsOf(opciones);
+    }
+
+    @Test
+    void conservaHistorialLargo() {
+        ConversacionState original = new ConversacionState(EstadoConversacion.MENU);
+        EstadoConversacion[] estados = EstadoConversacion.values();
+        for (int i = 0; i < 40; i++) {
+            original.setEstado(estados[1 + i % (estados.length - 1)]);
+            original.guardarEstadoEnHistorial();
+        }
+
+        ConversacionState copia = codec.decode(codec.encode(original));
+
+        assertThat(copia.getHistorialEstados()).containsExactlyElementsOf(original.getHistorialEstados());
+        while (!original.getHistorialEstados().isEmpty()) {
+            assertThat(copia.volverEstadoAnterior()).isEqualTo(original.volverEstadoAnterior());
+        }
+        assertThat(copia.getHistorialEstados()).isEmpty();
+    }
+
+    @Test
+    void conservaTextoNoAsciiYLargo() {
+        ConversacionState original = new ConversacionState(EstadoConversacion.ESPERANDO_DIRECCION);
+        original.setNombre("José Ñúñez Güiza 👩‍⚕️");
+        original.setDireccion("Carrera 7 # 45-12, Bogotá, D.C. ".repeat(10));
+
+        ConversacionState copia = codec.decode(codec.encode(original));
+
+        assertThat(copia.getNombre()).isEqualTo(original.getNombre());
+        assertThat(copia.getDireccion()).isEqualTo(original.getDireccion());
+    }
+
+    @Test
+    void leeSnapshotsDeLaVersionUno() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(1);
+        out.writeByte(EstadoConversacion.ESPERANDO_EMAIL.ordinal());
+        out.writeLong(1_760_000_000_000L);
+        for (String campo : new String[] {
+            "CC", "1020304050", "Andrés Peña", "3001234567", null,
+            "Calle 10 # 5-20", "Sura", null, "PRIMERA VEZ", "09:00", "Dra. Sofía Ríos"
+        }) {
+            writeString(out, campo);
+        }
+        out.writeInt((int) LocalDate.of(1990, 5, 17).toEpochDay());
+        out.writeInt(Integer.MIN_VALUE);
+        writeVarInt(out, 2);
+        writeString(out, "Dra. Sofía Ríos");
+        writeString(out, "09:00");
+        writeString(out, "Medicina General");
+        writeVarInt(out, 2);
+        out.writeByte(EstadoConversacion.ESPERANDO_FECHA_CITA.ordinal());
+        out.writeByte(EstadoConversacion.ESPERANDO_SELECCION_DOCTOR.ordinal());
+
+        ConversacionState estado = codec.decode(bytes.toByteArray());
+
+        assertThat(estado.getEstado()).isEqualTo(EstadoConversacion.ESPERANDO_EMAIL);
+        assertThat(estado.getLastActivity()).isEqualTo(1_760_000_000_000L);
+        assertThat(estado.getNombre()).isEqualTo("Andrés Peña");
+        assertThat(estado.getTelefonoSecundario()).isNull();
+        assertThat(estado.getEmail()).isNull();
+        assertThat(estado.getDoctor()).isEqualTo("Dra. Sofía Ríos");
+        assertThat(estado.getFechaNacimiento()).isEqualTo(LocalDate.of(1990, 5, 17));
+        assertThat(estado.getFechaCita()).isNull();
+        assertThat(estado.getOpcionesDoctor())
+            .containsExactly(new OpcionDoctor("Dra. Sofía Ríos", "09:00", "Medicina General"));
+        assertThat(estado.getHistorialEstados())
+            .containsExactly(EstadoConversacion.ESPERANDO_FECHA_CITA, EstadoConversacion.ESPERANDO_SELECCION_DOCTOR);
+        assertThat(estado.getProximaCitaId()).isNull();
+        assertThat(estado.getReagendarCitaId()).isNull();
+    }
+
+    @Test
+    void rechazaVersionesDesconocidas() {
+        byte[] datos = codec.encode(estadoCompleto());
+        datos[0] = (byte) (BinaryConversationStateCodec.VERSION + 1);
+
+        assertThatThrownBy(() -> codec.decode(datos)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ocupaMenosQueJson() {
+        ConversacionState estado = estadoCompleto();
+        JsonConversationStateCodec json = new JsonConversationStateCodec(Jackson2ObjectMapperBuilder.json().build());
+
+        assertThat(snapshot(json.decode(json.encode(estado)))).isEqualTo(snapshot(estado));
+        assertThat(codec.encode(estado).length).isLessThan(json.encode(estado).length / 2);
+    }
+
+    /**
+     * A conversation at the final confirmation, with every field set
+     */
+    static ConversacionState estadoCompleto() {
+        ConversacionState estado = new ConversacionState(EstadoConversacion.CONFIRMACION_FINAL);
+        estado.setLastActivity(1_760_000_123_456L);
+        estado.setTipoIdentificacion("CC");
+        estado.setNumeroIdentificacion("1020304050");
+        estado.setNombre("María Fernanda Gómez");
+        estado.setTelefonoPrincipal("3001234567");
+        estado.setTelefonoSecundario("6017654321");
+        estado.setDireccion("Calle 123 # 45-67, Medellín");
+        estado.setFechaNacimiento(LocalDate.of(1988, 2, 29));
+        estado.setEps("Nueva EPS");
+        estado.setEmail("maria.gomez@example.com");
+        estado.setTipoCita("PRIMERA VEZ");
+        estado.setFechaCita(LocalDate.of(2026, 11, 3));
+        estado.setHoraCita("10:00");
+        estado.setDoctor("Dr. Julián Restrepo");
+        estado.setOpcionesDoctor(List.of(
+            new OpcionDoctor("Dr. Julián Restrepo", "10:00", "Cardiología"),
+            new OpcionDoctor("Dra. Ana Pérez", "11:00", "Medicina General")
+        ));
+        estado.restaurarHistorial(List.of(
+            EstadoConversacion.ESPERANDO_TIPO_DOC,
+            EstadoConversacion.ESPERANDO_NUMERO_DOC,
+            EstadoConversacion.ESPERANDO_FECHA_CITA,
+            EstadoConversacion.ESPERANDO_SELECCION_DOCTOR,
+            EstadoConversacion.ESPERANDO_EMAIL
+        ));
+        estado.setProximaCita(181_234L, LocalDateTime.of(2026, 10, 28, 15, 30), "Dra. Ana Pérez");
+        estado.setReagendarCitaId(181_234L);
+        return estado;
+    }
+
+    private static JsonConversationStateCodec.Snapshot snapshot(ConversacionState estado) {
+        return JsonConversationStateCodec.Snapshot.from(estado);
+    }
+
+    private static void writeString(DataOutputStream out, String valor) throws IOException {
+        if (valor == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] utf8 = valor.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, utf8.length + 1);
+        out.write(utf8);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int valor) throws IOException {
+        while ((valor & ~0x7F) != 0) {
+            out.writeByte((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        out.writeByte(valor);
+    }
+}
@@ -1,73 +1,58 @@
 import { useState, useEffect } from 'react'
 import axios from 'axios'
-import { format, startOfWeek, endOfWeek, startOfDay, endOfDay, subDays } from 'date-fns'
+import { format, startOfWeek, endOfWeek, startOfMonth, endOfMonth } from 'date-fns'
 import { es } from 'date-fns/locale'
 import { Calendar, Users, Clock, CheckCircle, XCircle, TrendingUp } from 'lucide-react'
 import EstadisticasCard from './EstadisticasCard'
 
 const API_URL = import.meta.env.VITE_API_URL || 'http://localhost:8080'
 
+const rangoDelPeriodo = (periodo) => {
+  const ahora = new Date()
+  switch (periodo) {
+    case 'semana':
+      return [startOfWeek(ahora, { locale: es }), endOfWeek(ahora, { locale: es })]
+    case 'mes':
+      return [startOfMonth(ahora), endOfMonth(ahora)]
+    default:
+      return [ahora, ahora]
+  }
+}
+
 export default function Dashboard() {
-  const [citas, setCitas] = useState([])
+  const [estadisticas, setEstadisticas] = useState(null)
   const [cargando, setCargando] = useState(true)
   const [periodo, setPeriodo] = useState('hoy')
 
   useEffect(() => {
-    fetchTodasLasCitas()
-  }, [])
+    fetchEstadisticas(periodo)
+  }, [periodo])
 
-  const fetchTodasLasCitas = async () => {
+  // Totals are computed by the backend from per-day counters; only the selected range is fetched
+  const fetchEstadisticas = async (periodo) => {
+    const [inicio, fin] = rangoDelPeriodo(periodo)
     setCargando(true)
     try {
-      const response = await axios.get(`${API_URL}/api/citas/todas`)
-      setCitas(response.data)
+      const response = await axios.get(`${API_URL}/api/citas/estadisticas`, {
+        params: { desde: format(inicio, 'yyyy-MM-dd'), hasta: format(fin, 'yyyy-MM-dd') }
+      })
+      setEstadisticas(response.data)
     } catch (error) {
-      console.error('Error al obtener las citas:', error)
+      console.error('Error al obtener las estadísticas:', error)
     } finally {
       setCargando(false)
     }
   }
 
-  const filtrarCitasPorPeriodo = (citas, periodo) => {
-    const ahora = new Date()
-    let inicio, fin
-
-    switch (periodo) {
-      case 'hoy':
-        inicio = startOfDay(ahora)
-        fin = endOfDay(ahora)
-        break
-      case 'semana':
-        inicio = startOfWeek(ahora, { locale: es })
-        fin = endOfWeek(ahora, { locale: es })
-        break
-      case 'mes':
-        inicio = new Date(ahora.getFullYear(), ahora.getMonth(), 1)
-        fin = new Date(ahora.getFullYear(), ahora.getMonth() + 1, 0, 23, 59, 59)
-        break
-      default:
-        return citas
-    }
-
-    return citas.filter(cita => {
-      const fechaCita = new Date(cita.fechaHora)
-      return fechaCita >= inicio && fechaCita <= fin
-    })
-  }
-
-  const calcularEstadisticas = (citasFiltradas) => {
-    const total = citasFiltradas.length
-    const programadas = citasFiltradas.filter(c => c.estado === 'PROGRAMADA').length
-    const confirmadas = citasFiltradas.filter(c => c.estado === 'CONFIRMADA').length
-    const canceladas = citasFiltradas.filter(c => c.estado === 'CANCELADA').length
-    const completadas = citasFiltradas.filter(c => c.estado === 'COMPLETADA').length
-
-    return { total, programadas, confirmadas, canceladas, completadas }
+  const porEstado = estadisticas?.porEstado ?? {}
+  const stats = {
+    total: estadisticas?.total ?? 0,
+    programadas: porEstado.PROGRAMADA ?? 0,
+    confirmadas: porEstado.CONFIRMADA ?? 0,
+    canceladas: porEstado.CANCELADA ?? 0,
+    completadas: porEstado.COMPLETADA ?? 0
   }
-
-  const citasFiltradas = filtrarCitasPorPeriodo(citas, periodo)
-  const stats = calcularEstadisticas(citasFiltradas)
-  const citasTodas = filtrarCitasPorPeriodo(citas, 'todos')
+  const totalHistorico = estadisticas?.totalHistorico ?? 0
 
   const tasaCancelacion = stats.total > 0 ? ((stats.canceladas / stats.total) * 100).toFixed(1) : 0
   const tasaCompletacion = stats.total > 0 ? ((stats.completadas / stats.total) * 100).toFixed(1) : 0
@@ -113,7 +98,7 @@ export default function Dashboard() {
           value={stats.total}
           icon={<Calendar className="h-6 w-6" />}
           color="blue"
-          trend={citasTodas.length > 0 ? `Total: ${citasTodas.length}` : ''}
+          trend={totalHistorico > 0 ? `Total: ${totalHistorico}` : ''}
         />
         <EstadisticasCard
           title="Programadas"
@@ -211,7 +196,7 @@ export default function Dashboard() {
                 <span className="text-sm font-medium text-gray-700">Pacientes Únicos</span>
               </div>
               <span className="text-lg font-bold text-blue-600">
-                {new Set(citasFiltradas.map(c => c.telefono)).size}
+                {estadisticas?.pacientesUnicos ?? 0}
               </span>
             </div>
             <div className="flex items-center justify-between p-3 bg-green-50 rounded-lg">